@@ -0,0 +1,42 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Model.AuditReport;
+import com.Prisonman.Prisonman.Service.ConsistencyAuditService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full read-only consistency audit. The fixtures hold 658 inmates per copy, so
+ * {@code -p scale=1520} audits about a million inmates; the audit should finish in under a minute.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class AuditBenchmarks {
+
+    private ConsistencyAuditService auditService;
+
+    @Setup(Level.Trial)
+    public void init(PrisonmanState state) {
+        auditService = state.bean(ConsistencyAuditService.class);
+    }
+
+    @Benchmark
+    public AuditReport audit() {
+        return auditService.audit(false);
+    }
+}
@@ -0,0 +1,48 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Service.CellBlockStatsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cell block statistics: the per-admission delta against the full recount from the cells
+ * collection that the scheduled reconciliation runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CellBlockStatsBenchmarks {
+
+    private CellBlockStatsService statsService;
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void init(PrisonmanState state) {
+        statsService = state.bean(CellBlockStatsService.class);
+    }
+
+    // Alternates +1/-1 so the block totals stay where the fixtures put them
+    @Benchmark
+    public void applyOccupancyChange() {
+        statsService.applyOccupancyChange("Block A", (calls++ & 1) == 0 ? 1 : -1);
+    }
+
+    @Benchmark
+    public void reconcileAll() {
+        statsService.reconcileAll();
+    }
+}
@@ -0,0 +1,68 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Controller.DashboardSummaryController;
+import com.Prisonman.Prisonman.Model.DashboardSummary;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/dashboard-summary: a full response, a conditional request that ends in 304, and the
+ * from-scratch rebuild the snapshot falls back to.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DashboardBenchmarks {
+
+    private DashboardSummaryController controller;
+    private DashboardSummaryService summaryService;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void init(PrisonmanState state) {
+        controller = state.bean(DashboardSummaryController.class);
+        summaryService = state.bean(DashboardSummaryService.class);
+        etag = summaryService.current().etag();
+    }
+
+    @Benchmark
+    public ResponseEntity<DashboardSummary> getSummary() {
+        return controller.getSummary(request(null));
+    }
+
+    @Benchmark
+    public ResponseEntity<DashboardSummary> getSummaryNotModified() {
+        return controller.getSummary(request(etag));
+    }
+
+    @Benchmark
+    public DashboardSummaryService.Snapshot reloadSummary() {
+        summaryService.reload();
+        return summaryService.current();
+    }
+
+    private static HttpHeaders request(String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,102 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Loads the exported collections in "Database Collections" into a scratch database, repeated
+ * {@code scale} times.
+ *
+ * Copy 0 is the export as-is. Every further copy gets fresh ObjectIds and a "~n" suffix on the
+ * keys other documents refer to (inmateId, cellNumber, employeeId), with the references rewritten
+ * to match, so cell membership and visitor-inmate links stay consistent at every scale. Cell
+ * blocks, staff status and weekly activity are one row per real-world thing and are not copied;
+ * the block totals are recomputed from the cells once the application is up.
+ */
+final class Fixtures {
+
+    private static final int INSERT_BATCH = 10_000;
+
+    private Fixtures() {
+    }
+
+    static void seed(String uri, Path directory, int scale) {
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase(new ConnectionString(uri).getDatabase());
+            db.drop();
+
+            load(db, directory, "cell_blocks", 1, (doc, suffix) -> { });
+            load(db, directory, "staff_status", 1, (doc, suffix) -> { });
+            load(db, directory, "weekly_activity", 1, (doc, suffix) -> { });
+
+            load(db, directory, "cells", scale, (doc, suffix) -> {
+                doc.put("cellNumber", doc.getString("cellNumber") + suffix);
+                List<String> inmates = new ArrayList<>();
+                for (Object inmateId : doc.getList("inmates", Object.class, List.of())) {
+                    inmates.add(inmateId + suffix);
+                }
+                doc.put("inmates", inmates);
+            });
+            load(db, directory, "inmates", scale, (doc, suffix) -> {
+                doc.put("inmateId", doc.getString("inmateId") + suffix);
+                doc.put("cellNumber", doc.getString("cellNumber") + suffix);
+            });
+            load(db, directory, "visitors", scale, (doc, suffix) ->
+                    doc.put("visitingInmate", doc.getString("visitingInmate") + suffix));
+            load(db, directory, "staff", scale, (doc, suffix) ->
+                    doc.put("employeeId", doc.getString("employeeId") + suffix));
+        }
+    }
+
+    private static void load(MongoDatabase db, Path directory, String collection, int copies,
+                             BiConsumer<Document, String> rekey) {
+        List<Document> rows = read(directory.resolve("prisonDB." + collection + ".json"));
+        MongoCollection<Document> target = db.getCollection(collection);
+        List<Document> batch = new ArrayList<>(INSERT_BATCH);
+
+        for (int copy = 0; copy < copies; copy++) {
+            String suffix = copy == 0 ? "" : "~" + copy;
+            for (Document row : rows) {
+                Document doc = new Document(row);
+                if (copy > 0) {
+                    Object id = doc.get("_id");
+                    doc.put("_id", id instanceof ObjectId ? new ObjectId() : id + suffix);
+                    rekey.accept(doc, suffix);
+                }
+                batch.add(doc);
+                if (batch.size() == INSERT_BATCH) {
+                    target.insertMany(batch, new InsertManyOptions().ordered(false));
+                    batch = new ArrayList<>(INSERT_BATCH);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            target.insertMany(batch, new InsertManyOptions().ordered(false));
+        }
+    }
+
+    // The files are mongoexport --jsonArray output (extended JSON), which Document.parse understands
+    private static List<Document> read(Path file) {
+        try {
+            String json = Files.readString(file, StandardCharsets.UTF_8);
+            return Document.parse("{\"rows\": " + json + "}").getList("rows", Document.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read fixture " + file.toAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Controller.InmateController;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Service.PlacementOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission and discharge through InmateController. Each call is a handful of Mongo round trips,
+ * long enough for per-invocation setup (creating or removing the inmate the call needs) not to
+ * distort the numbers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InmateBenchmarks {
+
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    @State(Scope.Thread)
+    public static class Admission {
+        InmateController controller;
+        Inmate inmate;
+
+        @Setup(Level.Trial)
+        public void init(PrisonmanState state) {
+            controller = state.bean(InmateController.class);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare(PrisonmanState state) {
+            inmate = state.newInmate();
+        }
+
+        // Frees the bed again so the open cells never fill up
+        @TearDown(Level.Invocation)
+        public void discharge() {
+            controller.deleteInmate(inmate.getInmateId());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Discharge {
+        InmateController controller;
+        String inmateId;
+
+        @Setup(Level.Trial)
+        public void init(PrisonmanState state) {
+            controller = state.bean(InmateController.class);
+        }
+
+        @Setup(Level.Invocation)
+        public void admit(PrisonmanState state) {
+            Inmate inmate = state.newInmate();
+            controller.addInmate(inmate, NO_OPTIONS, null);
+            inmateId = inmate.getInmateId();
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> addInmate(Admission admission) {
+        return admission.controller.addInmate(admission.inmate, NO_OPTIONS, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> deleteInmate(Discharge discharge) {
+        return discharge.controller.deleteInmate(discharge.inmateId);
+    }
+}
@@ -0,0 +1,92 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import com.Prisonman.Prisonman.Repository.InmateRepository;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single-document lookups LookupCache serves, through the cache and straight from the
+ * repositories it reads through to. The keys are a fixed working set smaller than the caches, so
+ * after warmup the cached side measures hits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmarks {
+
+    private static final int WORKING_SET = 1000;
+
+    private LookupCache lookupCache;
+    private InmateRepository inmateRepository;
+    private CellRepository cellRepository;
+    private List<String> inmateIds;
+    private List<Cell> cells;
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void init(PrisonmanState state) {
+        lookupCache = state.bean(LookupCache.class);
+        inmateRepository = state.bean(InmateRepository.class);
+        cellRepository = state.bean(CellRepository.class);
+
+        MongoTemplate mongoTemplate = state.bean(MongoTemplate.class);
+        Query inmates = new Query().limit(WORKING_SET);
+        inmates.fields().include("inmateId");
+        inmateIds = mongoTemplate.find(inmates, Inmate.class).stream().map(Inmate::getInmateId).toList();
+        Query locations = new Query().limit(WORKING_SET);
+        locations.fields().include("block", "cellNumber");
+        cells = mongoTemplate.find(locations, Cell.class);
+    }
+
+    @Benchmark
+    public Optional<Inmate> inmateCached() {
+        return lookupCache.findInmate(nextInmateId());
+    }
+
+    @Benchmark
+    public Optional<Inmate> inmateUncached() {
+        return inmateRepository.findByInmateId(nextInmateId());
+    }
+
+    @Benchmark
+    public Optional<Cell> cellByLocationCached() {
+        Cell cell = nextCell();
+        return lookupCache.findCell(cell.getBlock(), cell.getCellNumber());
+    }
+
+    @Benchmark
+    public Optional<Cell> cellByLocationUncached() {
+        Cell cell = nextCell();
+        return cellRepository.findByBlockAndCellNumber(cell.getBlock(), cell.getCellNumber());
+    }
+
+    private String nextInmateId() {
+        return inmateIds.get(calls++ % inmateIds.size());
+    }
+
+    private Cell nextCell() {
+        return cells.get(calls++ % cells.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import com.Prisonman.Prisonman.PrisonmanApplication;
+import com.Prisonman.Prisonman.Service.CellBlockStatsService;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The application, running against a freshly seeded database, shared by all benchmark threads.
+ *
+ * Settings come from system properties (or the matching environment variables):
+ * <ul>
+ *   <li>prisonman.bench.mongo-uri (PRISONMAN_BENCH_MONGO_URI): scratch database, dropped and
+ *       reloaded for every trial; default mongodb://localhost:27017/prisonman_bench</li>
+ *   <li>prisonman.bench.fixtures (PRISONMAN_BENCH_FIXTURES): directory with the prisonDB.*.json
+ *       exports; default ../../Database Collections, i.e. run from Prisonman/benchmarks</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class PrisonmanState {
+
+    /** How many copies of the exported collections to load. */
+    @Param({"10", "100", "1000"})
+    public int scale;
+
+    private ConfigurableApplicationContext context;
+    private List<Cell> openCells;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        String uri = setting("prisonman.bench.mongo-uri", "PRISONMAN_BENCH_MONGO_URI",
+                "mongodb://localhost:27017/prisonman_bench");
+        Path fixtures = Path.of(setting("prisonman.bench.fixtures", "PRISONMAN_BENCH_FIXTURES",
+                "../../Database Collections"));
+
+        Fixtures.seed(uri, fixtures, scale);
+
+        // Indexes and migrations run at startup as in production; the timed jobs are left off so
+        // they cannot fire in the middle of a measurement
+        context = new SpringApplicationBuilder(PrisonmanApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.data.mongodb.uri=" + uri,
+                        "--prisonman.scheduling.enabled=false",
+                        "--logging.level.root=WARN");
+
+        bean(CellBlockStatsService.class).reconcileAll();
+        bean(DashboardSummaryService.class).reload();
+
+        // Cells with a free bed. Admission benchmarks discharge again afterwards, so these stay open.
+        Query open = new Query(Criteria.expr(
+                ComparisonOperators.valueOf("currentOccupancy").lessThan("capacity"))).limit(1000);
+        openCells = bean(MongoTemplate.class).find(open, Cell.class);
+        if (openCells.isEmpty()) {
+            throw new IllegalStateException("The fixtures have no cell with a free bed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /** A new inmate with a unique inmateId, placed in one of the open cells (round-robin). */
+    public Inmate newInmate() {
+        long n = sequence.incrementAndGet();
+        Cell cell = openCells.get((int) (n % openCells.size()));
+
+        Inmate inmate = new Inmate();
+        inmate.setInmateId("BENCH-" + n);
+        inmate.setName("Bench Inmate " + n);
+        inmate.setAge(30);
+        inmate.setBlock(cell.getBlock());
+        inmate.setCellNumber(cell.getCellNumber());
+        inmate.setAdmissionDate(LocalDate.of(2025, 1, 20));
+        inmate.setStatus(InmateStatus.ACTIVE);
+        inmate.setCharges("Theft");
+        return inmate;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,81 @@
+package com.Prisonman.Prisonman.Benchmarks;
+
+import com.Prisonman.Prisonman.Controller.VisitorController;
+import com.Prisonman.Prisonman.Model.VisitStatus;
+import com.Prisonman.Prisonman.Model.Visitor;
+import com.Prisonman.Prisonman.Service.VisitScheduleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Visitor registration through VisitorController, including the check that the visited inmate
+ * exists and the slot booking. Visitors are registered against the fixture inmates round-robin,
+ * one per visiting slot, moving on a day every 24 slots, so no booking runs into a limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class VisitorBenchmarks {
+
+    // INM001..INM600 all exist in the export (copy 0 keeps the original ids)
+    private static final int INMATES = 600;
+    // 08:00 to 20:00 in 30-minute slots
+    private static final int SLOTS_PER_DAY = 24;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 7);
+
+    private VisitorController controller;
+    private MongoTemplate mongoTemplate;
+    private VisitScheduleService visitScheduleService;
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void init(PrisonmanState state) {
+        controller = state.bean(VisitorController.class);
+        mongoTemplate = state.bean(MongoTemplate.class);
+        visitScheduleService = state.bean(VisitScheduleService.class);
+    }
+
+    // Keep the collection at fixture size from one iteration to the next
+    @TearDown(Level.Iteration)
+    public void removeRegistered() {
+        mongoTemplate.remove(new Query(where("idNumber").regex("^BENCH-")), Visitor.class);
+        visitScheduleService.invalidate();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> registerVisitor() {
+        int n = calls++;
+        Visitor visitor = new Visitor();
+        visitor.setName("Bench Visitor " + n);
+        visitor.setRelationship("Friend");
+        visitor.setVisitDate(FIRST_DAY.plusDays(n / SLOTS_PER_DAY));
+        visitor.setVisitTime(LocalTime.of(8, 0).plusMinutes(30L * (n % SLOTS_PER_DAY)));
+        visitor.setStatus(VisitStatus.SCHEDULED);
+        visitor.setPhone("+1 5550100");
+        visitor.setIdNumber("BENCH-" + n);
+        visitor.setVisitingInmate(String.format("INM%03d", n % INMATES + 1));
+        return controller.createVisitor(visitor);
+    }
+}
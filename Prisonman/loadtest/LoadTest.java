@@ -0,0 +1,174 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing the platform-thread, virtual-thread and reactive
+ * modes.
+ *
+ * Each client sends a request, waits for the response and immediately sends the next one, so the
+ * number of clients is the number of requests in flight. Run it against the service started
+ * normally and again with --spring.profiles.active=vthreads (or reactive), with the same arguments:
+ *
+ *   java loadtest/LoadTest.java --base http://localhost:8080 --clients 1000 --duration 60 \
+ *        --warmup 10 --pid 12345 /api/dashboard-summary /api/inmates?limit=50 /api/cells?limit=100
+ *
+ * Paths are requested round-robin. Reports throughput, error count and latency percentiles. With
+ * --pid (Linux only) it also samples the server process during the measured window and reports
+ * its peak thread count and resident memory.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String base = "http://localhost:8080";
+        int clients = 1000;
+        int durationSeconds = 60;
+        int warmupSeconds = 10;
+        long pid = -1;
+        List<String> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--base" -> base = args[++i];
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--duration" -> durationSeconds = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(args[++i]);
+                case "--pid" -> pid = Long.parseLong(args[++i]);
+                default -> paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            paths.add("/api/dashboard-summary");
+        }
+
+        List<URI> targets = new ArrayList<>();
+        for (String path : paths) {
+            targets.add(URI.create(base + path));
+        }
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        System.out.printf("%d clients, %ds warmup + %ds measured, %s%n", clients, warmupSeconds, durationSeconds, paths);
+
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(durationSeconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        // Filled in by each client; visible here once the executor has been closed
+        long[][] perClient = new long[clients][];
+
+        // Peak threads and VmRSS (kB) of the server, sampled from /proc once the warmup is over
+        long[] peak = new long[2];
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        if (pid > 0) {
+            Path status = Path.of("/proc", Long.toString(pid), "status");
+            sampler.scheduleAtFixedRate(() -> {
+                if (System.nanoTime() < warmupEnd) {
+                    return;
+                }
+                try {
+                    for (String line : Files.readAllLines(status)) {
+                        if (line.startsWith("Threads:")) {
+                            peak[0] = Math.max(peak[0], Long.parseLong(line.substring(8).trim()));
+                        } else if (line.startsWith("VmRSS:")) {
+                            peak[1] = Math.max(peak[1], Long.parseLong(line.substring(6).replace("kB", "").trim()));
+                        }
+                    }
+                } catch (Exception e) {
+                    // process gone or not Linux; report whatever was collected
+                }
+            }, 0, 250, TimeUnit.MILLISECONDS);
+        }
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int slot = c;
+                pool.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    int next = slot;
+                    while (true) {
+                        long start = System.nanoTime();
+                        if (start >= end) {
+                            break;
+                        }
+                        HttpRequest request = HttpRequest.newBuilder(targets.get(next++ % targets.size()))
+                                .timeout(Duration.ofSeconds(30)).GET().build();
+                        boolean ok;
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            ok = response.statusCode() < 400;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long elapsed = System.nanoTime() - start;
+                        if (start < warmupEnd) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                    perClient[slot] = Arrays.copyOf(latencies, count);
+                    return null;
+                });
+            }
+        }
+
+        long total = 0;
+        for (long[] latencies : perClient) {
+            total += latencies == null ? 0 : latencies.length;
+        }
+        long[] all = new long[(int) total];
+        int pos = 0;
+        for (long[] latencies : perClient) {
+            if (latencies != null) {
+                System.arraycopy(latencies, 0, all, pos, latencies.length);
+                pos += latencies.length;
+            }
+        }
+        Arrays.sort(all);
+
+        System.out.printf("requests   %d (%d errors)%n", total, errors.get());
+        System.out.printf("throughput %.1f req/s%n", total / (double) durationSeconds);
+        System.out.printf("latency    p50 %s  p95 %s  p99 %s  p99.9 %s  max %s%n",
+                ms(percentile(all, 50)), ms(percentile(all, 95)), ms(percentile(all, 99)),
+                ms(percentile(all, 99.9)), ms(all.length == 0 ? 0 : all[all.length - 1]));
+
+        sampler.shutdown();
+        sampler.awaitTermination(1, TimeUnit.SECONDS);
+        if (pid > 0) {
+            System.out.printf("server     peak threads %d  peak rss %.1fMB%n", peak[0], peak[1] / 1024.0);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,13 @@
+package com.Prisonman.Prisonman.Config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on the lookup caches. The cache provider, sizes and TTL come from the spring.cache.*
+ * properties; spring.cache.type=none switches caching off without code changes.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,47 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Service.ChangeEventBus;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the change event bus from the entity saves and deletes Spring Data reports (repository
+ * and template save/insert/delete, bulk inserts). Atomic and bulk updates raise no such events;
+ * those write paths report their changes to the bus themselves.
+ */
+@Component
+public class ChangeEventMappingListener extends AbstractMongoEventListener<Object> {
+
+    private final ChangeEventBus changeEvents;
+
+    public ChangeEventMappingListener(ChangeEventBus changeEvents) {
+        this.changeEvents = changeEvents;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        changeEvents.publishLocal(event.getCollectionName(), Operation.CHANGED,
+                idOf(event.getDocument()), event.getSource());
+    }
+
+    // The document is the delete's query: only a delete by _id says which document went
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        String id = idOf(event.getDocument());
+        changeEvents.publishLocal(event.getCollectionName(), id == null ? Operation.RELOADED : Operation.DELETED,
+                id, null);
+    }
+
+    private static String idOf(Document document) {
+        Object id = document == null ? null : document.get("_id");
+        if (id instanceof ObjectId objectId) {
+            return objectId.toHexString();
+        }
+        return id instanceof String value ? value : null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many documents each find/aggregate/getMore batch brings back, per collection, as
+ * the mongodb.driver.documents.returned summary. The driver's own timers only say how long a
+ * command took; a max or a per-request sum in the thousands here is what an accidental
+ * findAll() or unindexed scan looks like.
+ */
+public class DocumentsReturnedListener implements CommandListener {
+
+    private static final Set<String> CURSOR_COMMANDS = Set.of("find", "aggregate", "getMore");
+
+    private final MeterRegistry registry;
+    // Collection of each in-flight cursor command; the reply does not repeat it
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    public DocumentsReturnedListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String command = event.getCommandName();
+        if (!CURSOR_COMMANDS.contains(command)) {
+            return;
+        }
+        BsonValue collection = event.getCommand().get(command.equals("getMore") ? "collection" : command);
+        collections.put(event.getRequestId(), collection != null && collection.isString()
+                ? collection.asString().getValue()
+                : "none");
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        if (collection == null) {
+            return;
+        }
+        BsonDocument cursor = event.getResponse().getDocument("cursor", null);
+        if (cursor == null) {
+            return;
+        }
+        BsonArray batch = cursor.containsKey("firstBatch")
+                ? cursor.getArray("firstBatch")
+                : cursor.getArray("nextBatch", new BsonArray());
+
+        DistributionSummary.builder("mongodb.driver.documents.returned")
+                .description("Documents returned per cursor batch")
+                .baseUnit("documents")
+                .tag("collection", collection)
+                .tag("command", event.getCommandName())
+                .register(registry)
+                .record(batch.size());
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        collections.remove(event.getRequestId());
+    }
+}
@@ -0,0 +1,26 @@
+package com.Prisonman.Prisonman.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoClientConfig {
+
+    /**
+     * Connection pool sizing. With virtual threads a thousand requests can be waiting on Mongo at
+     * once, so the pool, not the request thread pool, becomes the limit on concurrent queries.
+     * These settings take precedence over pool options in the connection string.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${prisonman.mongo.max-pool-size:100}") int maxPoolSize,
+            @Value("${prisonman.mongo.max-wait-ms:120000}") long maxWaitMs) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxPoolSize)
+                .maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import com.Prisonman.Prisonman.Model.LabeledEnum;
+import com.Prisonman.Prisonman.Model.StaffShift;
+import com.Prisonman.Prisonman.Model.VisitStatus;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * How the typed model fields are stored.
+ *
+ * <ul>
+ *   <li>LocalDate: a BSON date at midnight UTC, so date ranges are index range scans and the
+ *       stored day does not depend on the server's time zone (Spring Data's default conversion
+ *       uses the system zone).</li>
+ *   <li>LocalTime: "HH:mm", which sorts correctly and reads well in the shell.</li>
+ *   <li>Labeled enums: their label ("On Duty"), the value the documents have always held.</li>
+ * </ul>
+ *
+ * Dates still stored as strings (documents not yet migrated, or brought in by mongoimport) are
+ * read as well, padded ("2025-01-20") or not ("2025-1-20"). A stored value that cannot be read
+ * fails the read with the value in the message: reading it as null would erase it on the next
+ * save of the document. Blank strings read as null.
+ */
+@Configuration
+public class MongoConversionsConfig {
+
+    private static final List<Class<? extends Enum<?>>> LABELED_ENUMS =
+            List.of(InmateStatus.class, VisitStatus.class, StaffShift.class, DutyStatus.class);
+
+    private static final DateTimeFormatter LENIENT_DATE = DateTimeFormatter.ofPattern("yyyy-M-d");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter LENIENT_TIME = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new LocalDateToDate(), new DateToLocalDate(), new StringToLocalDate(),
+                new LocalTimeToString(), new StringToLocalTime(),
+                new LabeledEnumToString(), new StringToLabeledEnum()));
+    }
+
+    @WritingConverter
+    static class LocalDateToDate implements Converter<LocalDate, Date> {
+        @Override
+        public Date convert(LocalDate source) {
+            return Date.from(source.atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+    }
+
+    @ReadingConverter
+    static class DateToLocalDate implements Converter<Date, LocalDate> {
+        @Override
+        public LocalDate convert(Date source) {
+            return LocalDate.ofInstant(source.toInstant(), ZoneOffset.UTC);
+        }
+    }
+
+    @ReadingConverter
+    static class StringToLocalDate implements Converter<String, LocalDate> {
+        @Override
+        public LocalDate convert(String source) {
+            if (source.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(source.trim(), LENIENT_DATE);
+            } catch (DateTimeParseException e) {
+                throw unreadable(source, LocalDate.class, e);
+            }
+        }
+    }
+
+    @WritingConverter
+    static class LocalTimeToString implements Converter<LocalTime, String> {
+        @Override
+        public String convert(LocalTime source) {
+            return TIME.format(source);
+        }
+    }
+
+    @ReadingConverter
+    static class StringToLocalTime implements Converter<String, LocalTime> {
+        @Override
+        public LocalTime convert(String source) {
+            if (source.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalTime.parse(source.trim(), LENIENT_TIME);
+            } catch (DateTimeParseException e) {
+                throw unreadable(source, LocalTime.class, e);
+            }
+        }
+    }
+
+    @WritingConverter
+    static class LabeledEnumToString implements GenericConverter {
+        @Override
+        public Set<ConvertiblePair> getConvertibleTypes() {
+            Set<ConvertiblePair> pairs = new LinkedHashSet<>();
+            LABELED_ENUMS.forEach(type -> pairs.add(new ConvertiblePair(type, String.class)));
+            return pairs;
+        }
+
+        @Override
+        public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+            return source == null ? null : ((LabeledEnum) source).label();
+        }
+    }
+
+    // Case-insensitive
+    @ReadingConverter
+    static class StringToLabeledEnum implements GenericConverter {
+        @Override
+        public Set<ConvertiblePair> getConvertibleTypes() {
+            Set<ConvertiblePair> pairs = new LinkedHashSet<>();
+            LABELED_ENUMS.forEach(type -> pairs.add(new ConvertiblePair(String.class, type)));
+            return pairs;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+            try {
+                return LabeledEnum.fromLabel((Class) targetType.getType(), (String) source);
+            } catch (IllegalArgumentException e) {
+                throw unreadable((String) source, targetType.getType(), e);
+            }
+        }
+    }
+
+    private static IllegalArgumentException unreadable(String source, Class<?> type, Exception cause) {
+        return new IllegalArgumentException(
+                "Stored value '" + source + "' is not a valid " + type.getSimpleName() + "; fix it in the database", cause);
+    }
+}
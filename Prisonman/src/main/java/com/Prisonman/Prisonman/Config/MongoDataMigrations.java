@@ -0,0 +1,182 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Model.ActivityBucket;
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.Staff;
+import com.Prisonman.Prisonman.Model.Visitor;
+import com.Prisonman.Prisonman.Model.WeeklyActivity;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Locale;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Brings documents written by older versions (or imported with mongoimport) up to what the
+ * current model expects. Every step is idempotent and only touches documents that still need it.
+ */
+@Component
+public class MongoDataMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoDataMigrations.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityService activityService;
+    private final boolean migrateOnStartup;
+
+    public MongoDataMigrations(MongoTemplate mongoTemplate, ActivityService activityService,
+                               @Value("${prisonman.mongo.migrate-on-startup:true}") boolean migrateOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.activityService = activityService;
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            migrate();
+        }
+    }
+
+    // Also run after bulk imports, which bring in documents in the old shape
+    public void migrate() {
+        initVersion(Cell.class);
+        initVersion(CellBlock.class);
+        initInmateSearchName();
+        typeDates(Inmate.class, "admissionDate");
+        typeDates(Visitor.class, "visitDate");
+        typeDates(Staff.class, "hireDate");
+        padVisitTimes();
+        seedActivityFromWeeklyRows();
+    }
+
+    // A @Version entity loaded without the field would be treated as new and inserted again on save
+    private void initVersion(Class<?> type) {
+        long updated = mongoTemplate.updateMulti(
+                query(where("version").exists(false)), new Update().set("version", 0L), type).getModifiedCount();
+        if (updated > 0) {
+            log.info("Initialized version on {} {} document(s)", updated, mongoTemplate.getCollectionName(type));
+        }
+    }
+
+    // Name prefix search runs against the lower-cased copy that Inmate.setName maintains
+    private void initInmateSearchName() {
+        long updated = mongoTemplate.updateMulti(
+                query(where("searchName").exists(false).and("name").type(JsonSchemaObject.Type.STRING)),
+                AggregationUpdate.update().set("searchName").toValue(StringOperators.valueOf("name").toLower()),
+                Inmate.class).getModifiedCount();
+        if (updated > 0) {
+            log.info("Initialized searchName on {} inmate(s)", updated);
+        }
+    }
+
+    // Dates used to be stored as strings, some unpadded ("2025-1-20"), which neither sort nor
+    // range-scan as dates. They become BSON dates at midnight UTC, as MongoConversionsConfig
+    // writes them; anything that is not a y-m-d string is left alone and reported, as it cannot be read.
+    private void typeDates(Class<?> type, String field) {
+        long updated = mongoTemplate.updateMulti(
+                query(where(field).regex("^\\s*\\d{4}-\\d{1,2}-\\d{1,2}\\s*$")),
+                AggregationUpdate.update().set(field).toValue(dateFromParts(field)),
+                type).getModifiedCount();
+        if (updated > 0) {
+            log.info("Converted {} on {} {} document(s) to a date", field, updated, mongoTemplate.getCollectionName(type));
+        }
+        long unreadable = mongoTemplate.count(query(where(field).type(JsonSchemaObject.Type.STRING)), type);
+        if (unreadable > 0) {
+            log.warn("{} {} document(s) have a {} that is not a date; reading them fails until it is fixed",
+                    unreadable, mongoTemplate.getCollectionName(type), field);
+        }
+    }
+
+    // {$dateFromParts: {year: int(parts[0]), month: int(parts[1]), day: int(parts[2])}} of the trimmed y-m-d string
+    private static AggregationExpression dateFromParts(String field) {
+        return context -> {
+            Document split = new Document("$split",
+                    List.of(new Document("$trim", new Document("input", "$" + field)), "-"));
+            Document parts = new Document();
+            String[] names = {"year", "month", "day"};
+            for (int i = 0; i < names.length; i++) {
+                parts.append(names[i], new Document("$toInt", new Document("$arrayElemAt", List.of(split, i))));
+            }
+            return new Document("$dateFromParts", parts);
+        };
+    }
+
+    // visitTime stays a string, but zero-padded ("09:05") so it sorts like the time it is
+    private void padVisitTimes() {
+        long updated = mongoTemplate.updateMulti(
+                query(where("visitTime").regex("^\\d:\\d{2}$")),
+                AggregationUpdate.update().set("visitTime").toValue(
+                        StringOperators.Concat.stringValue("0").concatValueOf("visitTime")),
+                Visitor.class).getModifiedCount();
+        if (updated > 0) {
+            log.info("Zero-padded visitTime on {} visit(s)", updated);
+        }
+    }
+
+    // The seven weekday rows of weekly_activity predate the activity store. Each is booked, at
+    // noon, on the most recent date with that weekday, so the chart shows the same week as before.
+    // Only done while the store is still empty; the rows themselves are left in place.
+    private void seedActivityFromWeeklyRows() {
+        if (mongoTemplate.exists(query(where("_id").exists(true)), ActivityBucket.class)) {
+            return;
+        }
+        List<WeeklyActivity> rows = mongoTemplate.findAll(WeeklyActivity.class);
+        LocalDate today = LocalDate.now(activityService.zone());
+        int seeded = 0;
+        for (WeeklyActivity row : rows) {
+            DayOfWeek day = dayOf(row.getDay());
+            if (day == null) {
+                log.warn("Skipped weekly_activity row {} with unknown day '{}'", row.getId(), row.getDay());
+                continue;
+            }
+            Instant at = today.with(TemporalAdjusters.previousOrSame(day)).atTime(12, 0)
+                    .atZone(activityService.zone()).toInstant();
+            activityService.record(ActivityKind.ADMISSION, at, row.getAdmissions());
+            activityService.record(ActivityKind.RELEASE, at, row.getReleases());
+            activityService.record(ActivityKind.VISIT, at, row.getVisitors());
+            activityService.record(ActivityKind.INCIDENT, at, row.getIncidents());
+            seeded++;
+        }
+        if (seeded > 0) {
+            log.info("Seeded the activity store from {} weekly_activity row(s)", seeded);
+        }
+    }
+
+    // "Mon" as stored by the dashboard seed data, or a full name such as "Monday"
+    private static DayOfWeek dayOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (name.trim().equalsIgnoreCase(day.getDisplayName(TextStyle.SHORT, Locale.ENGLISH))
+                    || name.trim().equalsIgnoreCase(day.getDisplayName(TextStyle.FULL, Locale.ENGLISH))) {
+                return day;
+            }
+        }
+        return null;
+    }
+}
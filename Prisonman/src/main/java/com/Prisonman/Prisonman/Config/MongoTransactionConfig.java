@@ -0,0 +1,59 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Multi-document transactions for the admission, release and transfer paths (see
+ * TransactionRunner). They need a replica set or sharded cluster, so they are only switched on
+ * with prisonman.mongo.transactions=true; without them those paths undo a failed step by hand.
+ */
+@Configuration
+@ConditionalOnProperty(name = "prisonman.mongo.transactions", havingValue = "true")
+public class MongoTransactionConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory,
+                                                      @Value("${prisonman.mongo.commit-retries:3}") int commitRetries) {
+        return new CommitRetryingTransactionManager(databaseFactory, commitRetries);
+    }
+
+    /**
+     * Retries a commit whose outcome is unknown (e.g. the primary stepped down while it was being
+     * acknowledged). Committing again is safe: the server recognises the transaction and answers
+     * with its result.
+     */
+    static class CommitRetryingTransactionManager extends MongoTransactionManager {
+
+        private static final Logger log = LoggerFactory.getLogger(CommitRetryingTransactionManager.class);
+
+        private final int retries;
+
+        CommitRetryingTransactionManager(MongoDatabaseFactory databaseFactory, int retries) {
+            super(databaseFactory);
+            this.retries = retries;
+        }
+
+        @Override
+        protected void doCommit(MongoTransactionObject transactionObject) throws Exception {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    transactionObject.commitTransaction();
+                    return;
+                } catch (MongoException e) {
+                    if (attempt >= retries || !e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)) {
+                        throw e;
+                    }
+                    log.debug("Commit result unknown, committing again: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
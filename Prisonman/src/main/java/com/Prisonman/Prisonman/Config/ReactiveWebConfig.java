@@ -0,0 +1,47 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Service.CursorPage;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.util.List;
+
+/**
+ * WebFlux setup for the reactive profile.
+ *
+ * The existing controllers still call the blocking repositories, so their handler methods are run
+ * on virtual threads instead of the server's request threads; only the routes in ReactiveRoutes
+ * are non-blocking end to end.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("blocking-handler-");
+        executor.setVirtualThreads(true);
+        configurer.setExecutor(executor);
+    }
+
+    // @CrossOrigin only covers annotated controllers; router functions need the filter
+    @Bean
+    public CorsWebFilter corsWebFilter() {
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.setAllowedOrigins(List.of("http://localhost:5173"));
+        cors.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE"));
+        cors.addAllowedHeader("*");
+        cors.setExposedHeaders(List.of(CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER, "ETag"));
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/api/**", cors);
+        return new CorsWebFilter(source);
+    }
+}
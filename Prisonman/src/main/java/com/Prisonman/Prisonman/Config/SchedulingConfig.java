@@ -0,0 +1,15 @@
+package com.Prisonman.Prisonman.Config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs (reconciliation of derived counters and similar). Switched off in tests,
+ * which run without a database.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "prisonman.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
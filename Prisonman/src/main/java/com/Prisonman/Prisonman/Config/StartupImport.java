@@ -0,0 +1,36 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Service.ImportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Seeds or migrates a facility at startup:
+ * {@code --prisonman.import.directory="Database Collections" [--prisonman.import.replace=true]}.
+ */
+@Component
+@ConditionalOnProperty(name = "prisonman.import.directory")
+public class StartupImport {
+
+    private final ImportService importService;
+    private final Path directory;
+    private final boolean replace;
+
+    public StartupImport(ImportService importService,
+                         @Value("${prisonman.import.directory}") String directory,
+                         @Value("${prisonman.import.replace:false}") boolean replace) {
+        this.importService = importService;
+        this.directory = Path.of(directory);
+        this.replace = replace;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importOnStartup() {
+        importService.importDirectory(directory, replace);
+    }
+}
@@ -0,0 +1,60 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.ActivityBucket.Granularity;
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+@RestController
+@RequestMapping("/api/activity")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ActivityController {
+
+    @Autowired
+    private ActivityService activityService;
+
+    // Activity per hour, day, week or month between two dates (both inclusive). Without dates:
+    // today by the hour, the last 30 days, 12 weeks or 12 months.
+    @GetMapping
+    public ResponseEntity<?> getActivity(@RequestParam(defaultValue = "day") String granularity,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Granularity unit;
+        try {
+            unit = Granularity.of(granularity);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body("granularity must be one of hour, day, week, month.");
+        }
+
+        ZoneId zone = activityService.zone();
+        LocalDate last = to != null ? to : LocalDate.now(zone);
+        LocalDate first = from != null ? from : switch (unit) {
+            case HOUR -> last;
+            case DAY -> last.minusDays(29);
+            case WEEK -> last.minusWeeks(11);
+            case MONTH -> last.minusMonths(11);
+        };
+        if (first.isAfter(last)) {
+            return ResponseEntity.status(400).body("from must not be after to.");
+        }
+
+        return ResponseEntity.ok(activityService.buckets(unit,
+                first.atStartOfDay(zone).toInstant(), last.plusDays(1).atStartOfDay(zone).toInstant()));
+    }
+
+    // Incidents are not tied to any other record yet, so they are reported directly
+    @PostMapping("/incidents")
+    public ResponseEntity<?> recordIncidents(@RequestParam(defaultValue = "1") int count) {
+        if (count < 1) {
+            return ResponseEntity.status(400).body("count must be at least 1.");
+        }
+        activityService.record(ActivityKind.INCIDENT, count);
+        return ResponseEntity.noContent().build();
+    }
+}
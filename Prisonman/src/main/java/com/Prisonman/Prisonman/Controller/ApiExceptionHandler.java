@@ -0,0 +1,16 @@
+package com.Prisonman.Prisonman.Controller;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // A cell or block was changed (e.g. by an admission) between loading it and saving the edit
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentModification(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(409).body("The record was modified by another request. Reload and try again.");
+    }
+}
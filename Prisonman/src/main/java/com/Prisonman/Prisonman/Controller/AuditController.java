@@ -0,0 +1,27 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.AuditReport;
+import com.Prisonman.Prisonman.Service.ConsistencyAuditService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/audit")
+@CrossOrigin(origins = "http://localhost:5173")
+public class AuditController {
+
+    @Autowired
+    private ConsistencyAuditService auditService;
+
+    // Cross-checks cells, cell blocks and inmates and reports what disagrees, without changing anything
+    @GetMapping
+    public AuditReport audit() {
+        return auditService.audit(false);
+    }
+
+    // Same check, then rewrites the cells' slot lists and block totals to match the inmates
+    @PostMapping("/repair")
+    public AuditReport repair() {
+        return auditService.audit(true);
+    }
+}
@@ -2,36 +2,65 @@ package com.Prisonman.Prisonman.Controller;
 
 import com.Prisonman.Prisonman.Model.CellBlock;
 import com.Prisonman.Prisonman.Repository.CellBlockRepository;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
+import com.Prisonman.Prisonman.Service.CursorPage;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import com.Prisonman.Prisonman.Service.PageQuery;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/cell-block")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = {CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER})
 public class CellBlockController {
 
     @Autowired
     private CellBlockRepository cellBlockRepository;
 
-    // Get all cell blocks
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private LookupCache lookupCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    // Get all cell blocks; 304 when nothing changed since the client's copy
     @GetMapping
-    public List<CellBlock> getAllCellBlocks() {
-        return cellBlockRepository.findAll();
+    public ResponseEntity<List<Object>> getAllCellBlocks(PageQuery page, @RequestParam MultiValueMap<String, String> params,
+            @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("cell_blocks", params);
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(keysetPager.page(CellBlock.class, page).toResponse());
     }
 
     // Get a single cell block by id (optional)
     @GetMapping("/{id}")
     public CellBlock getCellBlockById(@PathVariable String id) {
-        return cellBlockRepository.findById(id).orElse(null);
+        return lookupCache.findCellBlock(id).orElse(null);
     }
 
     // Create a new cell block
     @PostMapping
     public CellBlock createCellBlock(@RequestBody CellBlock cellBlock) {
-        return cellBlockRepository.save(cellBlock);
+        CellBlock saved = cellBlockRepository.save(cellBlock);
+        lookupCache.evictCellBlocks();
+        dashboardSummaryService.onCellBlockChange(null, saved);
+        return saved;
     }
 
     // Update existing cell block
@@ -39,11 +68,16 @@ public class CellBlockController {
     public CellBlock updateCellBlock(@PathVariable String id, @RequestBody CellBlock updatedCellBlock) {
         return cellBlockRepository.findById(id)
                 .map(cellBlock -> {
+                    CellBlock before = new CellBlock(cellBlock.getId(), cellBlock.getName(),
+                            cellBlock.getCapacity(), cellBlock.getCurrent(), cellBlock.getUtilization());
                     cellBlock.setName(updatedCellBlock.getName());
                     cellBlock.setCapacity(updatedCellBlock.getCapacity());
                     cellBlock.setCurrent(updatedCellBlock.getCurrent());
                     cellBlock.setUtilization(updatedCellBlock.getUtilization());
-                    return cellBlockRepository.save(cellBlock);
+                    CellBlock saved = cellBlockRepository.save(cellBlock);
+                    lookupCache.evictCellBlocks();
+                    dashboardSummaryService.onCellBlockChange(before, saved);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -51,6 +85,10 @@ public class CellBlockController {
     // Delete a cell block
     @DeleteMapping("/{id}")
     public void deleteCellBlock(@PathVariable String id) {
-        cellBlockRepository.deleteById(id);
+        cellBlockRepository.findById(id).ifPresent(cellBlock -> {
+            cellBlockRepository.deleteById(id);
+            lookupCache.evictCellBlocks();
+            dashboardSummaryService.onCellBlockChange(cellBlock, null);
+        });
     }
 }
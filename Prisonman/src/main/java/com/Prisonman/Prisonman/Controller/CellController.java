@@ -2,8 +2,17 @@ package com.Prisonman.Prisonman.Controller;
 
 import com.Prisonman.Prisonman.Model.Cell;
 import com.Prisonman.Prisonman.Repository.CellRepository;
+import com.Prisonman.Prisonman.Service.CellBlockStatsService;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
+import com.Prisonman.Prisonman.Service.CursorPage;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import com.Prisonman.Prisonman.Service.OccupancyService;
+import com.Prisonman.Prisonman.Service.PageQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -11,20 +20,41 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/cells")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = {CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER})
 public class CellController {
 
     @Autowired
     private CellRepository cellRepository;
 
+    @Autowired
+    private CellBlockStatsService cellBlockStatsService;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private LookupCache lookupCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private OccupancyService occupancy;
+
+    // 304 when no cell changed since the client's copy
     @GetMapping
-    public List<Cell> getAllCells() {
-        return cellRepository.findAll();
+    public ResponseEntity<List<Object>> getAllCells(PageQuery page, @RequestParam MultiValueMap<String, String> params,
+            @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("cells", params);
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(keysetPager.page(Cell.class, page).toResponse());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Cell> getCellById(@PathVariable String id) {
-        Optional<Cell> cell = cellRepository.findById(id);
+        Optional<Cell> cell = lookupCache.findCell(id);
         return cell.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -32,6 +62,9 @@ public class CellController {
     @PostMapping
     public ResponseEntity<Cell> createCell(@RequestBody Cell cell) {
         Cell saved = cellRepository.save(cell);
+        lookupCache.evictCell(saved);
+        occupancy.refresh(saved);
+        cellBlockStatsService.reconcileBlock(saved.getBlock());
         return ResponseEntity.ok(saved);
     }
 
@@ -39,6 +72,8 @@ public class CellController {
     public ResponseEntity<Cell> updateCell(@PathVariable String id, @RequestBody Cell updatedCell) {
         return cellRepository.findById(id)
                 .map(cell -> {
+                    String previousBlock = cell.getBlock();
+                    lookupCache.evictCell(cell);
                     cell.setId(updatedCell.getId());
                     cell.setCellNumber(updatedCell.getCellNumber());
                     cell.setBlock(updatedCell.getBlock());
@@ -48,6 +83,14 @@ public class CellController {
                     cell.setInmates(updatedCell.getInmates());
 
                     Cell saved = cellRepository.save(cell);
+                    lookupCache.evictCell(saved);
+                    occupancy.refresh(saved);
+
+                    // Capacity and occupancy can change by any amount here, so recompute rather than apply a delta
+                    cellBlockStatsService.reconcileBlock(saved.getBlock());
+                    if (previousBlock != null && !previousBlock.equals(saved.getBlock())) {
+                        cellBlockStatsService.reconcileBlock(previousBlock);
+                    }
                     return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
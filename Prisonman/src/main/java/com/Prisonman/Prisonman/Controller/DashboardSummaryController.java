@@ -1,43 +1,33 @@
 package com.Prisonman.Prisonman.Controller;
 
-import com.Prisonman.Prisonman.Model.CellBlock;
 import com.Prisonman.Prisonman.Model.DashboardSummary;
-import com.Prisonman.Prisonman.Model.StaffStatus;
-import com.Prisonman.Prisonman.Model.WeeklyActivity;
-import com.Prisonman.Prisonman.Repository.CellBlockRepository;
-import com.Prisonman.Prisonman.Repository.StaffStatusRepository;
-import com.Prisonman.Prisonman.Repository.WeeklyActivityRepository;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/dashboard-summary")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = "ETag")
 public class DashboardSummaryController {
 
     @Autowired
-    private CellBlockRepository cellBlockRepo;
-
-    @Autowired
-    private StaffStatusRepository staffRepo;
-
-    @Autowired
-    private WeeklyActivityRepository weeklyRepo;
+    private DashboardSummaryService summaryService;
 
     @GetMapping
-    public DashboardSummary getSummary() {
-        List<CellBlock> blocks = cellBlockRepo.findAll();
-        int totalInmates = blocks.stream().mapToInt(CellBlock::getCurrent).sum();
-        int availableCells = blocks.stream().mapToInt(block -> block.getCapacity() - block.getCurrent()).sum();
-
-        int activeStaff = staffRepo.findAll().stream().mapToInt(StaffStatus::getValue).sum();
-        int dailyVisitors = weeklyRepo.findAll().stream().mapToInt(WeeklyActivity::getVisitors).sum();
+    public ResponseEntity<DashboardSummary> getSummary(@RequestHeader HttpHeaders headers) {
+        DashboardSummaryService.Snapshot snapshot = summaryService.current();
 
-        return new DashboardSummary(totalInmates, activeStaff, dailyVisitors, availableCells);
+        if (CollectionVersions.matches(headers, snapshot.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.summary());
     }
 }
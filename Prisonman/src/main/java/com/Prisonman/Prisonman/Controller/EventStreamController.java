@@ -0,0 +1,148 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.ChangeEvent;
+import com.Prisonman.Prisonman.Service.ChangeEventBus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events with every change to the watched collections and to the dashboard totals, so
+ * a client can load a list once and keep it current from the deltas.
+ *
+ * Each event is named after its collection ("cells", "inmates", "dashboard", ...) and carries
+ * the ChangeEvent as JSON. Browsers reconnect on their own and send Last-Event-ID, and the events
+ * missed in between are replayed. A "reset" event means some could not be (the client fell too
+ * far behind, or the server restarted): reload whatever is shown.
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "http://localhost:5173")
+public class EventStreamController {
+
+    @Autowired
+    private ChangeEventBus changeEvents;
+
+    @Value("${prisonman.events.heartbeat:PT15S}")
+    private Duration heartbeat;
+
+    @Value("${prisonman.events.max-clients:200}")
+    private int maxClients;
+
+    private final AtomicInteger clients = new AtomicInteger();
+
+    // Each client's reader blocks between events, which costs nothing on a virtual thread
+    private final Scheduler readers = Schedulers.fromExecutorService(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("change-event-stream-", 0).factory()),
+            "change-event-stream");
+
+    @PreDestroy
+    public void close() {
+        readers.dispose();
+    }
+
+    // e.g. GET /api/events?collections=cells,inmates
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> stream(@RequestParam(required = false) Set<String> collections,
+                                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (collections != null) {
+            for (String collection : collections) {
+                if (!changeEvents.watches(collection) && !ChangeEvent.DASHBOARD.equals(collection)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown collection: " + collection);
+                }
+            }
+        }
+        if (clients.incrementAndGet() > maxClients) {
+            clients.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many event stream clients.");
+        }
+
+        Long resumeFrom = changeEvents.seqOf(lastEventId);
+        Reader reader = new Reader(collections,
+                resumeFrom != null ? resumeFrom : changeEvents.latest(),
+                lastEventId != null && resumeFrom == null);
+
+        return Flux.<List<ServerSentEvent<Object>>, Reader>generate(() -> reader, (state, sink) -> {
+                    try {
+                        sink.next(state.next());
+                    } catch (InterruptedException e) {
+                        sink.complete();
+                    }
+                    return state;
+                })
+                .concatMapIterable(events -> events)
+                .subscribeOn(readers)
+                .doFinally(signal -> clients.decrementAndGet());
+    }
+
+    private final class Reader {
+
+        private final Set<String> collections;
+        private long position;
+        private boolean reset;
+
+        Reader(Set<String> collections, long position, boolean reset) {
+            this.collections = collections;
+            this.position = position;
+            this.reset = reset;
+        }
+
+        // Returns an empty list when every new event was filtered out
+        List<ServerSentEvent<Object>> next() throws InterruptedException {
+            if (reset) {
+                reset = false;
+                return List.of(reset());
+            }
+            List<ChangeEvent> events = changeEvents.after(position, heartbeat);
+            if (events == null) {
+                position = changeEvents.latest();
+                return List.of(reset());
+            }
+            if (events.isEmpty()) {
+                return List.of(ServerSentEvent.builder().comment("heartbeat").build());
+            }
+
+            List<ServerSentEvent<Object>> sent = new ArrayList<>(events.size());
+            for (ChangeEvent event : events) {
+                if (collections == null || collections.contains(event.collection())) {
+                    sent.add(ServerSentEvent.builder()
+                            .id(changeEvents.eventId(event.seq()))
+                            .event(event.collection())
+                            .data((Object) event)
+                            .build());
+                }
+            }
+            position = events.getLast().seq();
+            return sent;
+        }
+
+        private ServerSentEvent<Object> reset() {
+            return ServerSentEvent.builder()
+                    .id(changeEvents.eventId(position))
+                    .event("reset")
+                    .data((Object) Map.of("seq", position))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// StreamingResponseBody is servlet-only; under the reactive profile ReactiveExportHandler serves /api/export
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "http://localhost:5173")
+@Profile("!reactive")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // e.g. GET /api/export/visitors?format=csv
+    @GetMapping("/{collection}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String collection,
+                                    @RequestParam(defaultValue = "ndjson") String format) {
+        Class<?> type = exportService.exportable(collection);
+        MediaType contentType = ExportService.contentType(format);
+
+        StreamingResponseBody body = contentType.equals(ExportService.CSV)
+                ? out -> exportService.writeCsv(type, out)
+                : out -> exportService.writeNdjson(type, out);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(collection + "." + format).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,69 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.ImportResult;
+import com.Prisonman.Prisonman.Service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Imports can empty whole collections, so the endpoints exist only with prisonman.import.api-enabled=true
+@RestController
+@RequestMapping("/api/admin/import")
+@CrossOrigin(origins = "http://localhost:5173")
+@ConditionalOnProperty(name = "prisonman.import.api-enabled", havingValue = "true")
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    @Value("${prisonman.import.root:}")
+    private String root;
+
+    // Loads every prisonDB.<collection>.json export in a directory under prisonman.import.root
+    @PostMapping
+    public List<ImportResult> importDirectory(@RequestParam String directory,
+                                              @RequestParam(defaultValue = "false") boolean replace) {
+        return importService.importDirectory(underRoot(directory), replace);
+    }
+
+    // Loads one collection from the request body: a JSON array or one document per line
+    @PostMapping("/{collection}")
+    public ImportResult importCollection(@PathVariable String collection,
+                                         @RequestParam(defaultValue = "false") boolean replace,
+                                         InputStream body) {
+        return importService.importCollection(collection, body, replace);
+    }
+
+    // Real paths on both sides, so neither ".." nor a symbolic link leads outside the root
+    private Path underRoot(String directory) {
+        if (root.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No import root is configured.");
+        }
+        Path resolved;
+        Path base;
+        try {
+            base = Path.of(root).toRealPath();
+            resolved = base.resolve(directory).normalize();
+            if (!resolved.startsWith(base) || !Files.isDirectory(resolved)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No such directory under the import root.");
+            }
+            resolved = resolved.toRealPath();
+        } catch (InvalidPathException | IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No such directory under the import root.");
+        }
+        if (!resolved.startsWith(base)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No such directory under the import root.");
+        }
+        return resolved;
+    }
+}
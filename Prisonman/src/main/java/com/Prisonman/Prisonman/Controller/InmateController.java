@@ -1,22 +1,46 @@
 package com.Prisonman.Prisonman.Controller;
 
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.BatchItemResult;
+import com.Prisonman.Prisonman.Model.BatchItemResult.Outcome;
 import com.Prisonman.Prisonman.Model.Cell;
 import com.Prisonman.Prisonman.Model.Inmate;
-import com.Prisonman.Prisonman.Repository.CellBlockRepository;
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import com.Prisonman.Prisonman.Model.TransferRequest;
 import com.Prisonman.Prisonman.Repository.CellRepository;
 import com.Prisonman.Prisonman.Repository.InmateRepository;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import com.Prisonman.Prisonman.Service.CellBlockStatsService;
+import com.Prisonman.Prisonman.Service.CursorPage;
+import com.Prisonman.Prisonman.Service.IdempotencyService;
+import com.Prisonman.Prisonman.Service.InmateBatchService;
+import com.Prisonman.Prisonman.Service.InmateSearch;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import com.Prisonman.Prisonman.Service.OccupancyService;
+import com.Prisonman.Prisonman.Service.PageQuery;
+import com.Prisonman.Prisonman.Service.PlacementOptions;
+import com.Prisonman.Prisonman.Service.PlacementService;
+import com.Prisonman.Prisonman.Service.TransactionRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/inmates")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173",
+        exposedHeaders = {CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER, IdempotencyService.REPLAYED_HEADER})
 public class InmateController {
 
+    // Cells an automatic placement may try when the database turns the first ones away
+    private static final int PLACEMENT_ATTEMPTS = 3;
+
     @Autowired
     private InmateRepository inmateRepository;
 
@@ -24,125 +48,262 @@ public class InmateController {
     private CellRepository cellRepository;
 
     @Autowired
-    private CellBlockRepository cellBlockRepository;
+    private CellBlockStatsService cellBlockStatsService;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private LookupCache lookupCache;
+
+    @Autowired
+    private InmateBatchService inmateBatchService;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private OccupancyService occupancy;
+
+    @Autowired
+    private PlacementService placementService;
+
+    @Autowired
+    private TransactionRunner transactions;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     @GetMapping
-    public List<Inmate> getAllInmates() {
-        return inmateRepository.findAll();
+    public ResponseEntity<List<Object>> getAllInmates(InmateSearch search, PageQuery page) {
+        return keysetPager.page(Inmate.class, search.toCriteria(), search.sortField(), page).toResponse();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Inmate> getInmateById(@PathVariable String id) {
-        Optional<Inmate> inmate = inmateRepository.findByInmateId(id);
+        Optional<Inmate> inmate = lookupCache.findInmate(id);
         return inmate.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Send an Idempotency-Key to make retrying safe: a repeat gets the first response back.
+    // Leave out cellNumber to have a free bed picked, e.g. ?blocks=A&blocks=B&separateFrom=INM-7
     @PostMapping
-    public ResponseEntity<?> addInmate(@RequestBody Inmate inmate) {
-        Optional<Cell> cellOpt = cellRepository.findAll().stream()
-                .filter(cell -> cell.getCellNumber().equals(inmate.getCellNumber()) &&
-                        cell.getBlock().equals(inmate.getBlock()))
-                .findFirst();
+    public ResponseEntity<?> addInmate(@RequestBody Inmate inmate, PlacementOptions options,
+                                       @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/inmates", List.of(inmate, options),
+                () -> transactions.inTransaction(() -> admit(inmate, options)));
+    }
 
-        if (cellOpt.isEmpty()) {
-            return ResponseEntity.status(404).body("Specified cell not found.");
-        }
+    // Admit a whole intake group in one request; the response has one result per inmate, in order
+    @PostMapping("/batch")
+    public ResponseEntity<?> addInmates(@RequestBody List<Inmate> inmates, PlacementOptions options,
+                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/inmates/batch", List.of(inmates, options),
+                () -> ResponseEntity.ok(inmateBatchService.admit(inmates, options)));
+    }
 
-        Cell cell = cellOpt.get();
+    @PostMapping("/transfers")
+    public ResponseEntity<?> transferInmates(@RequestBody List<TransferRequest> transfers,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/inmates/transfers", transfers,
+                () -> ResponseEntity.ok(inmateBatchService.transfer(transfers)));
+    }
 
-        if (cell.getCurrentOccupancy() >= cell.getCapacity()) {
-            return ResponseEntity.status(409).body("Cell is already full.");
-        }
+    // A new block or cell number moves the inmate's bed as a transfer does, so the cells keep agreeing
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateInmate(@PathVariable String id, @RequestBody Inmate updatedInmate) {
+        return transactions.inTransaction(() -> update(id, updatedInmate));
+    }
 
-        Inmate savedInmate = inmateRepository.save(inmate);
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteInmate(@PathVariable String id) {
+        return transactions.inTransaction(() -> release(id));
+    }
+
+    // Claim the bed in memory first, then in the database: the conditional update alone decides
+    // whether the cell has room, so memory that is behind (a bed freed by another instance) cannot
+    // turn an admission away. In a transaction the bed and the inmate commit together; without one
+    // a failed save gives the bed back.
+    private ResponseEntity<?> admit(Inmate inmate, PlacementOptions options) {
+        if (isBlank(inmate.getCellNumber())) {
+            return admitToFreeBed(inmate, options);
+        }
 
-        List<String> inmatesList = cell.getInmates();
-        inmatesList.add(savedInmate.getInmateId());
-        cell.setInmates(inmatesList);
-        cell.setCurrentOccupancy(cell.getCurrentOccupancy() + 1);
-        cell.setStatus(cell.getCurrentOccupancy() >= cell.getCapacity() ? "Occupied" : "Available");
-        cellRepository.save(cell);
+        OccupancyService.Hold bed = occupancy.hold(inmate.getBlock(), inmate.getCellNumber());
+        if (bed.full()) {
+            cellRepository.findByBlockAndCellNumber(inmate.getBlock(), inmate.getCellNumber())
+                    .ifPresent(occupancy::refresh);
+            bed = occupancy.hold(inmate.getBlock(), inmate.getCellNumber());
+        }
 
-        updateCellBlockStats(cell.getBlock());
+        Optional<Cell> reserved = cellRepository.reserveSlot(inmate.getBlock(), inmate.getCellNumber(), inmate.getInmateId());
 
-        return ResponseEntity.ok(savedInmate);
+        if (reserved.isEmpty()) {
+            bed.release();
+            return refused(inmate);
+        }
+        return save(inmate, bed, reserved.get());
     }
 
+    // Why the guarded update matched nothing, read fresh: the cached cell may predate the refusal
+    private ResponseEntity<?> refused(Inmate inmate) {
+        Optional<Cell> cell = cellRepository.findByBlockAndCellNumber(inmate.getBlock(), inmate.getCellNumber());
+        if (cell.isEmpty()) {
+            return ResponseEntity.status(404).body("Specified cell not found.");
+        }
+        if (cell.get().getInmates() != null && cell.get().getInmates().contains(inmate.getInmateId())) {
+            return ResponseEntity.status(409).body("Inmate is already listed in that cell.");
+        }
+        if (Cell.isClosed(cell.get().getStatus())) {
+            return ResponseEntity.status(409).body("Cell is closed to new inmates.");
+        }
+        return ResponseEntity.status(409).body("Cell is already full.");
+    }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<Inmate> updateInmate(@PathVariable String id, @RequestBody Inmate updatedInmate) {
-        return inmateRepository.findById(id).map(inmate -> {
-            inmate.setName(updatedInmate.getName());
-            inmate.setInmateId(updatedInmate.getInmateId());
-            inmate.setAge(updatedInmate.getAge());
-            inmate.setAdmissionDate(updatedInmate.getAdmissionDate());
-            inmate.setStatus(updatedInmate.getStatus());
-            inmate.setCharges(updatedInmate.getCharges());
-            inmate.setBlock(updatedInmate.getBlock());
-            Inmate saved = inmateRepository.save(inmate);
-            return ResponseEntity.ok(saved);
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+    // The bed comes from memory, so the database can still turn it away when memory is behind; the
+    // cell is then brought up to date and the next free bed tried
+    private ResponseEntity<?> admitToFreeBed(Inmate inmate, PlacementOptions options) {
+        String requestedBlock = inmate.getBlock();
+        Set<String> refused = new HashSet<>();
+        for (int attempt = 0; attempt < PLACEMENT_ATTEMPTS; attempt++) {
+            inmate.setBlock(requestedBlock);
+            OccupancyService.Hold bed = placementService.place(inmate, options, refused);
+            if (bed.full()) {
+                break;
+            }
+            Optional<Cell> reserved = cellRepository.reserveSlot(inmate.getBlock(), inmate.getCellNumber(), inmate.getInmateId());
+            if (reserved.isPresent()) {
+                return save(inmate, bed, reserved.get());
+            }
+            bed.release();
+            cellRepository.findByBlockAndCellNumber(inmate.getBlock(), inmate.getCellNumber()).ifPresent(cell -> {
+                refused.add(cell.getId());
+                occupancy.refresh(cell);
+            });
+        }
+        inmate.setBlock(requestedBlock);
+        inmate.setCellNumber(null);
+        return ResponseEntity.status(409).body("No free bed in the allowed blocks.");
     }
 
-    @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteInmate(@PathVariable String id) {
-        Optional<Inmate> inmateOpt = inmateRepository.findByInmateId(id);
-        if (inmateOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    private ResponseEntity<?> save(Inmate inmate, OccupancyService.Hold bed, Cell reserved) {
+        Inmate savedInmate;
+        try {
+            savedInmate = inmateRepository.save(inmate);
+        } catch (RuntimeException e) {
+            bed.release();
+            TransactionRunner.compensate(() ->
+                    cellRepository.releaseSlot(inmate.getBlock(), inmate.getCellNumber(), inmate.getInmateId()));
+            throw e;
         }
 
-        Inmate inmate = inmateOpt.get();
+        TransactionRunner.afterCommit(() -> {
+            bed.confirm();
+            if (bed.full()) {
+                // Nothing was held in memory, which is behind: take on the cell as now stored
+                occupancy.refresh(reserved);
+            }
+            lookupCache.evictCell(reserved);
+            lookupCache.evictInmate(savedInmate.getInmateId());
+            cellBlockStatsService.applyOccupancyChange(inmate.getBlock(), 1);
+            activityService.record(ActivityKind.ADMISSION, 1);
+        });
+        return ResponseEntity.ok(savedInmate);
+    }
 
-        Optional<Cell> cellOpt = cellRepository.findAll().stream()
-                .filter(cell -> cell.getCellNumber().equals(inmate.getCellNumber()) &&
-                        cell.getBlock().equals(inmate.getBlock()))
-                .findFirst();
+    private ResponseEntity<?> update(String id, Inmate updatedInmate) {
+        Optional<Inmate> found = inmateRepository.findById(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Inmate inmate = found.get();
+        String previousInmateId = inmate.getInmateId();
+        boolean wasReleased = isReleased(inmate);
+
+        String inmateId = isBlank(updatedInmate.getInmateId()) ? previousInmateId : updatedInmate.getInmateId();
+        boolean renamed = previousInmateId != null && !previousInmateId.equals(inmateId);
+        if (renamed && inmateRepository.existsByInmateIdAndIdNot(inmateId, id)) {
+            return ResponseEntity.status(409).body("Another inmate already has that inmateId.");
+        }
 
-        if (cellOpt.isPresent()) {
-            Cell cell = getCell(cellOpt, inmate);
+        // The cell lists inmates by inmateId: hand the bed over to the new id first, in one update
+        // so the bed is never free in between, and any move below then takes it along under that id
+        if (renamed && !isBlank(inmate.getCellNumber())) {
+            Optional<Cell> handedOver = cellRepository.renameSlot(inmate.getBlock(), inmate.getCellNumber(), previousInmateId, inmateId);
+            if (handedOver.isEmpty()) {
+                return ResponseEntity.status(409).body("The inmate's cell does not list it under its current inmateId.");
+            }
+            lookupCache.evictCell(handedOver.get());
+        }
 
-            cellRepository.save(cell);
-            updateCellBlockStats(cell.getBlock());
+        String block = isBlank(updatedInmate.getBlock()) ? inmate.getBlock() : updatedInmate.getBlock();
+        String cellNumber = isBlank(updatedInmate.getCellNumber()) ? inmate.getCellNumber() : updatedInmate.getCellNumber();
+        if (!Objects.equals(block, inmate.getBlock()) || !Objects.equals(cellNumber, inmate.getCellNumber())) {
+            BatchItemResult moved = inmateBatchService.transfer(
+                    List.of(new TransferRequest(inmateId, block, cellNumber, inmate.getId()))).get(0);
+            if (!moved.succeeded()) {
+                if (renamed && !isBlank(inmate.getCellNumber())) {
+                    // Nothing is saved, so the bed goes back to the id the inmate keeps
+                    cellRepository.renameSlot(inmate.getBlock(), inmate.getCellNumber(), inmateId, previousInmateId)
+                            .ifPresent(lookupCache::evictCell);
+                }
+                return ResponseEntity.status(moved.outcome() == Outcome.CELL_NOT_FOUND ? 404 : 409).body(moved.message());
+            }
         }
 
-        inmateRepository.deleteById(id);
-        return ResponseEntity.noContent().build();
+        inmate.setName(updatedInmate.getName());
+        inmate.setInmateId(inmateId);
+        inmate.setAge(updatedInmate.getAge());
+        inmate.setAdmissionDate(updatedInmate.getAdmissionDate());
+        inmate.setStatus(updatedInmate.getStatus());
+        inmate.setCharges(updatedInmate.getCharges());
+        inmate.setBlock(block);
+        inmate.setCellNumber(cellNumber);
+        Inmate saved = inmateRepository.save(inmate);
+
+        TransactionRunner.afterCommit(() -> {
+            lookupCache.evictInmate(previousInmateId);
+            lookupCache.evictInmate(saved.getInmateId());
+            if (isReleased(saved) != wasReleased) {
+                // A release set back by mistake is taken out of the counts again
+                activityService.record(ActivityKind.RELEASE, wasReleased ? -1 : 1);
+            }
+        });
+        return ResponseEntity.ok(saved);
     }
 
-    private static Cell getCell(Optional<Cell> cellOpt, Inmate inmate) {
-        Cell cell = cellOpt.get();
-
-        List<String> inmatesList = cell.getInmates();
-        inmatesList.remove(inmate.getInmateId());
-        cell.setInmates(inmatesList);
+    private ResponseEntity<Void> release(String inmateId) {
+        Optional<Inmate> inmateOpt = inmateRepository.findByInmateId(inmateId);
+        if (inmateOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
 
-        cell.setCurrentOccupancy(cell.getCurrentOccupancy() - 1);
+        Inmate inmate = inmateOpt.get();
 
-        if (cell.getCurrentOccupancy() < cell.getCapacity()) {
-            cell.setStatus("Available");
-        }
-        return cell;
+        Optional<Cell> released = cellRepository.releaseSlot(inmate.getBlock(), inmate.getCellNumber(), inmate.getInmateId());
+        inmateRepository.deleteById(inmate.getId());
+
+        TransactionRunner.afterCommit(() -> {
+            released.ifPresent(cell -> {
+                occupancy.adjust(cell.getBlock(), cell.getCellNumber(), -1);
+                lookupCache.evictCell(cell);
+                cellBlockStatsService.applyOccupancyChange(inmate.getBlock(), -1);
+            });
+            lookupCache.evictInmate(inmate.getInmateId());
+            if (!isReleased(inmate)) {
+                // An inmate set to RELEASED was counted then
+                activityService.record(ActivityKind.RELEASE, 1);
+            }
+        });
+        return ResponseEntity.noContent().build();
     }
 
-    private void updateCellBlockStats(String blockName) {
-        List<Cell> cellsInBlock = cellRepository.findAll().stream()
-                .filter(cell -> cell.getBlock().equals(blockName))
-                .toList();
-
-        int totalCapacity = cellsInBlock.stream().mapToInt(Cell::getCapacity).sum();
-        int totalCurrent = cellsInBlock.stream().mapToInt(Cell::getCurrentOccupancy).sum();
-        int utilization = (int) ((totalCurrent / (double) totalCapacity) * 100);
-
-        cellBlockRepository.findAll().stream()
-                .filter(block -> block.getName().equals(blockName))
-                .findFirst()
-                .ifPresent(block -> {
-                    block.setCapacity(totalCapacity);
-                    block.setCurrent(totalCurrent);
-                    block.setUtilization(utilization);
-                    cellBlockRepository.save(block);
-                });
+    private static boolean isReleased(Inmate inmate) {
+        return inmate.getStatus() == InmateStatus.RELEASED;
     }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 }
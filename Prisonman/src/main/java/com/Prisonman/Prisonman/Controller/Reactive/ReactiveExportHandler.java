@@ -0,0 +1,52 @@
+package com.Prisonman.Prisonman.Controller.Reactive;
+
+import com.Prisonman.Prisonman.Service.ExportService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * GET /api/export/{collection} under the reactive profile, where ExportController's
+ * StreamingResponseBody cannot be used. Same URLs, formats and rows; the documents come off the
+ * reactive driver, which only fetches the next batch once the response has taken the last one.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveExportHandler {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ExportService exportService;
+
+    public ReactiveExportHandler(ReactiveMongoTemplate mongoTemplate, ExportService exportService) {
+        this.mongoTemplate = mongoTemplate;
+        this.exportService = exportService;
+    }
+
+    // e.g. GET /api/export/visitors?format=csv
+    public Mono<ServerResponse> export(ServerRequest request) {
+        String collection = request.pathVariable("collection");
+        String format = request.queryParam("format").orElse("ndjson");
+        Class<?> type = exportService.exportable(collection);
+        MediaType contentType = ExportService.contentType(format);
+
+        ServerResponse.BodyBuilder response = ServerResponse.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(collection + "." + format).build().toString());
+
+        Flux<Object> documents = mongoTemplate.find(exportService.query(), type).cast(Object.class);
+        if (contentType.equals(ExportService.CSV)) {
+            ExportService.CsvLayout layout = exportService.csvLayout(type);
+            Flux<String> lines = Flux.concat(Mono.just(layout.header()), documents.map(layout::row));
+            return response.body(lines, String.class);
+        }
+        return response.body(documents, Object.class);
+    }
+}
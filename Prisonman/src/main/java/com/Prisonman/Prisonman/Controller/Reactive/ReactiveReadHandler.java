@@ -0,0 +1,142 @@
+package com.Prisonman.Prisonman.Controller.Reactive;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.Visitor;
+import com.Prisonman.Prisonman.Repository.Reactive.ReactiveCellRepository;
+import com.Prisonman.Prisonman.Repository.Reactive.ReactiveInmateRepository;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import com.Prisonman.Prisonman.Service.InmateSearch;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Non-blocking versions of the read-heavy GET endpoints, served when the reactive profile is on.
+ *
+ * Lists are streamed straight off the Mongo cursor: as a JSON array by default, or one document
+ * per line when the client asks for application/x-ndjson. Since the first bytes go out before the
+ * last document is read there is no X-Next-Cursor header; to continue, pass the last _id seen as
+ * ?after=. Lists are always in _id order here.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveReadHandler {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveInmateRepository inmateRepository;
+    private final ReactiveCellRepository cellRepository;
+    private final DashboardSummaryService summaryService;
+    private final KeysetPager keysetPager;
+
+    public ReactiveReadHandler(ReactiveMongoTemplate mongoTemplate,
+                               ReactiveInmateRepository inmateRepository,
+                               ReactiveCellRepository cellRepository,
+                               DashboardSummaryService summaryService,
+                               KeysetPager keysetPager) {
+        this.mongoTemplate = mongoTemplate;
+        this.inmateRepository = inmateRepository;
+        this.cellRepository = cellRepository;
+        this.summaryService = summaryService;
+        this.keysetPager = keysetPager;
+    }
+
+    public Mono<ServerResponse> listInmates(ServerRequest request) {
+        InmateSearch search = new InmateSearch(
+                param(request, "inmateId"), param(request, "name"), param(request, "status"),
+                param(request, "block"), param(request, "charges"),
+                date(request, "admittedFrom"), date(request, "admittedTo"));
+        return stream(request, Inmate.class, search.toCriteria());
+    }
+
+    public Mono<ServerResponse> getInmate(ServerRequest request) {
+        return inmateRepository.findByInmateId(request.pathVariable("id"))
+                .flatMap(inmate -> ServerResponse.ok().bodyValue(inmate))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> listCells(ServerRequest request) {
+        return stream(request, Cell.class, new Criteria());
+    }
+
+    public Mono<ServerResponse> getCell(ServerRequest request) {
+        return cellRepository.findById(request.pathVariable("id"))
+                .flatMap(cell -> ServerResponse.ok().bodyValue(cell))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> listVisitors(ServerRequest request) {
+        return stream(request, Visitor.class, new Criteria());
+    }
+
+    public Mono<ServerResponse> dashboardSummary(ServerRequest request) {
+        // Normally an in-memory read, but the very first call loads the snapshot with the blocking driver
+        return Mono.fromCallable(summaryService::current)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(snapshot -> request.checkNotModified(snapshot.etag())
+                        .switchIfEmpty(ServerResponse.ok()
+                                .eTag(snapshot.etag())
+                                .bodyValue(snapshot.summary())));
+    }
+
+    private <T> Mono<ServerResponse> stream(ServerRequest request, Class<T> type, Criteria filter) {
+        Criteria criteria = filter;
+        String after = param(request, "after");
+        if (after != null) {
+            criteria = filter.getCriteriaObject().isEmpty()
+                    ? KeysetPager.afterId(after)
+                    : new Criteria().andOperator(filter, KeysetPager.afterId(after));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(keysetPager.resolveLimit(limit(request)));
+
+        Flux<T> documents = mongoTemplate.find(query, type);
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(contentType).body(documents, type);
+    }
+
+    private static Integer limit(ServerRequest request) {
+        String limit = param(request, "limit");
+        if (limit == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(limit);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("limit must be a number");
+        }
+    }
+
+    private static LocalDate date(ServerRequest request, String name) {
+        String date = param(request, name);
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ServerWebInputException(name + " must be a date (yyyy-MM-dd)");
+        }
+    }
+
+    private static String param(ServerRequest request, String name) {
+        return request.queryParam(name).filter(value -> !value.isBlank()).orElse(null);
+    }
+}
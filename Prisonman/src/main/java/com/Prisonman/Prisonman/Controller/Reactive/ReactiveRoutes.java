@@ -0,0 +1,39 @@
+package com.Prisonman.Prisonman.Controller.Reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes the read-heavy GETs to {@link ReactiveReadHandler}. Router functions are consulted before
+ * annotated controllers, so these take over the matching @GetMapping methods while every other
+ * endpoint keeps going to the existing controllers. The exports have their own handler, as
+ * ExportController is servlet-only and left out of this profile.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveRoutes {
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveReadRoutes(ReactiveReadHandler handler) {
+        return route()
+                .GET("/api/inmates", handler::listInmates)
+                .GET("/api/inmates/{id}", handler::getInmate)
+                .GET("/api/cells", handler::listCells)
+                .GET("/api/cells/{id}", handler::getCell)
+                .GET("/api/visitors", handler::listVisitors)
+                .GET("/api/dashboard-summary", handler::dashboardSummary)
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveExportRoutes(ReactiveExportHandler handler) {
+        return route()
+                .GET("/api/export/{collection}", handler::export)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.BlockOccupancy;
+import com.Prisonman.Prisonman.Model.ReportRow;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
+import com.Prisonman.Prisonman.Service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ReportController {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    // ?by=status|block|charge
+    @GetMapping("/inmates")
+    public ResponseEntity<List<ReportRow>> inmates(@RequestParam(defaultValue = "status") String by,
+                                                   @RequestParam MultiValueMap<String, String> params,
+                                                   @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("inmates", params, "inmates");
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(ResponseEntity.ok(reportService.inmatesBy(by)));
+    }
+
+    // ?by=day|status, optionally &from=yyyy-MM-dd&to=yyyy-MM-dd
+    @GetMapping("/visits")
+    public ResponseEntity<List<ReportRow>> visits(@RequestParam(defaultValue = "day") String by,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam MultiValueMap<String, String> params,
+                                                  @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("visitors", params, "visits");
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(ResponseEntity.ok(reportService.visitsBy(by, from, to)));
+    }
+
+    @GetMapping("/occupancy")
+    public ResponseEntity<List<BlockOccupancy>> occupancy(@RequestParam MultiValueMap<String, String> params,
+                                                          @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("cells", params, "occupancy");
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(ResponseEntity.ok(reportService.occupancyByBlock()));
+    }
+}
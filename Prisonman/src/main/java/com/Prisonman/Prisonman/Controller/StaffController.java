@@ -1,32 +1,67 @@
 package com.Prisonman.Prisonman.Controller;
 
+import com.Prisonman.Prisonman.Model.DutyCount;
 import com.Prisonman.Prisonman.Model.Staff;
 import com.Prisonman.Prisonman.Repository.StaffRepository;
+import com.Prisonman.Prisonman.Service.CursorPage;
+import com.Prisonman.Prisonman.Service.DashboardSummaryService;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import com.Prisonman.Prisonman.Service.PageQuery;
+import com.Prisonman.Prisonman.Service.StaffRosterService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/staff")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = {CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER})
 public class StaffController {
 
     @Autowired
     private StaffRepository staffRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private StaffRosterService staffRosterService;
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
     @GetMapping
-    public List<Staff> getAllStaff() {
-        return staffRepository.findAll();
+    public ResponseEntity<List<Object>> getAllStaff(PageQuery page) {
+        return keysetPager.page(Staff.class, page).toResponse();
+    }
+
+    // ?department=...&shift=Day|Night|Rotating (any shift when left out)
+    @GetMapping("/on-duty")
+    public List<Staff> getOnDuty(@RequestParam String department, @RequestParam(required = false) String shift) {
+        List<String> ids = staffRosterService.onDuty(department, shift);
+        return ids.isEmpty() ? List.of() : staffRepository.findAllById(ids);
+    }
+
+    @GetMapping("/on-duty/counts")
+    public List<DutyCount> getOnDutyCounts() {
+        return staffRosterService.counts();
     }
 
     @PostMapping
     public Staff addStaff(@RequestBody Staff staff) {
-        return staffRepository.save(staff);
+        Staff before = staff.getId() == null ? null : staffRepository.findById(staff.getId()).orElse(null);
+        Staff saved = staffRepository.save(staff);
+        staffRosterService.put(saved);
+        dashboardSummaryService.onStaffChange(before, saved);
+        return saved;
     }
 
     @DeleteMapping("/{id}")
     public void deleteStaff(@PathVariable String id) {
+        Staff before = staffRepository.findById(id).orElse(null);
         staffRepository.deleteById(id);
+        staffRosterService.remove(id);
+        dashboardSummaryService.onStaffChange(before, null);
     }
 }
@@ -2,6 +2,10 @@ package com.Prisonman.Prisonman.Controller;
 
 import com.Prisonman.Prisonman.Model.StaffStatus;
 import com.Prisonman.Prisonman.Repository.StaffStatusRepository;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -12,16 +16,24 @@ import java.util.List;
 public class StaffStatusController {
 
     private final StaffStatusRepository repository;
+    private final CollectionVersions collectionVersions;
 
-    public StaffStatusController(StaffStatusRepository repository) {
+    public StaffStatusController(StaffStatusRepository repository, CollectionVersions collectionVersions) {
         this.repository = repository;
+        this.collectionVersions = collectionVersions;
     }
 
     @GetMapping
-    public List<StaffStatus> getAll() {
-        return repository.findAll();
+    public ResponseEntity<List<StaffStatus>> getAll(@RequestParam MultiValueMap<String, String> params,
+            @RequestHeader HttpHeaders headers) {
+        CollectionVersions.Validators validators = collectionVersions.validators("staff_status", params);
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+        return validators.apply(ResponseEntity.ok(repository.findAll()));
     }
 
+    // Chart figures only: the dashboard's active staff come from the staff records (see StaffRosterService)
     @PostMapping
     public StaffStatus addStatus(@RequestBody StaffStatus status) {
         return repository.save(status);
@@ -1,65 +1,137 @@
 package com.Prisonman.Prisonman.Controller;
 
+import com.Prisonman.Prisonman.Model.VisitSlot;
 import com.Prisonman.Prisonman.Model.Visitor;
-import com.Prisonman.Prisonman.Repository.InmateRepository;
 import com.Prisonman.Prisonman.Repository.VisitorRepository;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import com.Prisonman.Prisonman.Service.CursorPage;
+import com.Prisonman.Prisonman.Service.KeysetPager;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import com.Prisonman.Prisonman.Service.PageQuery;
+import com.Prisonman.Prisonman.Service.VisitScheduleService;
+import com.Prisonman.Prisonman.Service.VisitSlotIndex;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/visitors")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = {CursorPage.NEXT_CURSOR_HEADER, CursorPage.TOTAL_COUNT_HEADER})
 public class VisitorController {
 
+    private static final int MAX_FREE_SLOT_DAYS = 31;
+
     @Autowired
-    private InmateRepository inmateRepository;
+    private LookupCache lookupCache;
 
     @Autowired
     private VisitorRepository visitorRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private VisitScheduleService visitScheduleService;
+
     @GetMapping
-    public List<Visitor> getAllVisitors() {
-        return visitorRepository.findAll();
+    public ResponseEntity<List<Object>> getAllVisitors(PageQuery page) {
+        return keysetPager.page(Visitor.class, page).toResponse();
+    }
+
+    // Bookable slots for one inmate, by default for the seven days from today
+    @GetMapping("/free-slots")
+    public ResponseEntity<?> getFreeSlots(@RequestParam String inmateId,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(defaultValue = "7") int days) {
+        if (days < 1 || days > MAX_FREE_SLOT_DAYS) {
+            return ResponseEntity.status(400).body("days must be between 1 and " + MAX_FREE_SLOT_DAYS + ".");
+        }
+        if (lookupCache.findInmate(inmateId).isEmpty()) {
+            return ResponseEntity.status(404).body("The specified inmate does not exist.");
+        }
+        List<VisitSlot> slots = visitScheduleService.freeSlots(inmateId, from, days);
+        return ResponseEntity.ok(slots);
     }
 
     @PostMapping
     public ResponseEntity<?> createVisitor(@RequestBody Visitor visitor) {
-        boolean inmateExists = inmateRepository.findByInmateId(visitor.getVisitingInmate()).isPresent();
+        boolean inmateExists = lookupCache.findInmate(visitor.getVisitingInmate()).isPresent();
 
         if (!inmateExists) {
             return ResponseEntity.status(400).body("The specified inmate does not exist.");
         }
 
-        Visitor savedVisitor = visitorRepository.save(visitor);
-        return ResponseEntity.ok(savedVisitor);
+        // The slot is claimed under the visit's id, so it needs one before it is saved
+        if (visitor.get_id() == null) {
+            visitor.set_id(new ObjectId().toHexString());
+        }
+        return book(null, visitor);
     }
 
-
-
     @DeleteMapping("/{id}")
     public void deleteVisitor(@PathVariable String id) {
-        visitorRepository.deleteById(id);
+        visitorRepository.findById(id).ifPresent(existing -> {
+            visitorRepository.deleteById(id);
+            visitScheduleService.release(id);
+            activityService.onVisitChange(existing, null);
+        });
     }
 
     @PutMapping("/{id}")
-    public Visitor updateVisitor(@PathVariable String id, @RequestBody Visitor updatedVisitor) {
-        return visitorRepository.findById(id).map(visitor -> {
-            visitor.setId(updatedVisitor.getId());
-            visitor.setName(updatedVisitor.getName());
-            visitor.setRelationship(updatedVisitor.getRelationship());
-            visitor.setVisitDate(updatedVisitor.getVisitDate());
-            visitor.setVisitTime(updatedVisitor.getVisitTime());
-            visitor.setStatus(updatedVisitor.getStatus());
-            visitor.setPhone(updatedVisitor.getPhone());
-            visitor.setIdNumber(updatedVisitor.getIdNumber());
-            visitor.setVisitingInmate(updatedVisitor.getVisitingInmate());
-            return visitorRepository.save(visitor);
-        }).orElseGet(() -> {
+    public ResponseEntity<?> updateVisitor(@PathVariable String id, @RequestBody Visitor updatedVisitor) {
+        Optional<Visitor> existing = visitorRepository.findById(id);
+        if (existing.isEmpty()) {
             updatedVisitor.set_id(id);
-            return visitorRepository.save(updatedVisitor);
-        });
+            return book(null, updatedVisitor);
+        }
+
+        Visitor visitor = existing.get();
+        Visitor before = new Visitor(visitor.getId(), visitor.getName(), visitor.getRelationship(),
+                visitor.getVisitDate(), visitor.getVisitTime(), visitor.getStatus(), visitor.getPhone(),
+                visitor.getIdNumber(), visitor.getVisitingInmate());
+        before.set_id(id);
+
+        visitor.setId(updatedVisitor.getId());
+        visitor.setName(updatedVisitor.getName());
+        visitor.setRelationship(updatedVisitor.getRelationship());
+        visitor.setVisitDate(updatedVisitor.getVisitDate());
+        visitor.setVisitTime(updatedVisitor.getVisitTime());
+        visitor.setStatus(updatedVisitor.getStatus());
+        visitor.setPhone(updatedVisitor.getPhone());
+        visitor.setIdNumber(updatedVisitor.getIdNumber());
+        visitor.setVisitingInmate(updatedVisitor.getVisitingInmate());
+        return book(before, visitor);
+    }
+
+    // Claim the slot first, as admissions claim a bed: the in-memory check is what stops two
+    // bookings taking the last seat, and it is undone if the save fails
+    private ResponseEntity<?> book(Visitor before, Visitor visitor) {
+        VisitSlotIndex.Result result = visitScheduleService.reserve(before, visitor);
+        if (result != VisitSlotIndex.Result.ACCEPTED) {
+            return ResponseEntity.status(409).body(result.message());
+        }
+
+        Visitor saved;
+        try {
+            saved = visitorRepository.save(visitor);
+        } catch (RuntimeException e) {
+            if (before == null) {
+                visitScheduleService.release(visitor.get_id());
+            } else {
+                visitScheduleService.restore(before);
+            }
+            throw e;
+        }
+        activityService.onVisitChange(before, saved);
+        return ResponseEntity.ok(saved);
     }
 }
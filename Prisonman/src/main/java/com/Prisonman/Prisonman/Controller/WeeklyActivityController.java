@@ -1,55 +1,58 @@
 package com.Prisonman.Prisonman.Controller;
 
+import com.Prisonman.Prisonman.Model.ActivityBucket;
+import com.Prisonman.Prisonman.Model.ActivityBucket.Granularity;
 import com.Prisonman.Prisonman.Model.WeeklyActivity;
-import com.Prisonman.Prisonman.Repository.WeeklyActivityRepository;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import com.Prisonman.Prisonman.Service.CollectionVersions;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
 import java.util.List;
+import java.util.Locale;
 
+// The dashboard chart's view of the activity store: the last seven days, one row per day.
+// The rows are derived from the day buckets, so they can no longer be created or edited here.
 @RestController
 @RequestMapping("/api/weekly-activity")
 @CrossOrigin(origins = "http://localhost:5173")
 public class WeeklyActivityController {
 
     @Autowired
-    private WeeklyActivityRepository weeklyActivityRepository;
+    private ActivityService activityService;
 
-    // Get all activity records
-    @GetMapping
-    public List<WeeklyActivity> getAllWeeklyActivities() {
-        return weeklyActivityRepository.findAll();
-    }
-
-    // Get by ID
-    @GetMapping("/{id}")
-    public WeeklyActivity getById(@PathVariable String id) {
-        return weeklyActivityRepository.findById(id).orElse(null);
-    }
-
-    // Create new
-    @PostMapping
-    public WeeklyActivity create(@RequestBody WeeklyActivity activity) {
-        return weeklyActivityRepository.save(activity);
-    }
-
-    // Update
-    @PutMapping("/{id}")
-    public WeeklyActivity update(@PathVariable String id, @RequestBody WeeklyActivity newActivity) {
-        return weeklyActivityRepository.findById(id).map(existing -> {
-            existing.setDay(newActivity.getDay());
-            existing.setAdmissions(newActivity.getAdmissions());
-            existing.setReleases(newActivity.getReleases());
-            existing.setVisitors(newActivity.getVisitors());
-            existing.setIncidents(newActivity.getIncidents());
-            return weeklyActivityRepository.save(existing);
-        }).orElse(null);
-    }
+    @Autowired
+    private CollectionVersions collectionVersions;
 
-    // Delete
-    @DeleteMapping("/{id}")
-    public void delete(@PathVariable String id) {
-        weeklyActivityRepository.deleteById(id);
+    @GetMapping
+    public ResponseEntity<List<WeeklyActivity>> getAllWeeklyActivities(@RequestParam MultiValueMap<String, String> params,
+            @RequestHeader HttpHeaders headers) {
+        ZoneId zone = activityService.zone();
+        LocalDate today = LocalDate.now(zone);
+        // The seven days move at midnight even when no activity is recorded
+        CollectionVersions.Validators validators = collectionVersions.validators("activity_buckets", params, today);
+        if (validators.notModified(headers)) {
+            return validators.notModifiedResponse();
+        }
+
+        List<ActivityBucket> days = activityService.buckets(Granularity.DAY,
+                today.minusDays(6).atStartOfDay(zone).toInstant(),
+                today.plusDays(1).atStartOfDay(zone).toInstant());
+
+        return validators.apply(ResponseEntity.ok(days.stream().map(bucket -> {
+            WeeklyActivity activity = new WeeklyActivity(
+                    bucket.getStart().atZone(zone).getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH),
+                    (int) bucket.getAdmissions(), (int) bucket.getReleases(),
+                    (int) bucket.getVisits(), (int) bucket.getIncidents());
+            activity.setId(bucket.getId());
+            return activity;
+        }).toList()));
     }
 }
@@ -0,0 +1,141 @@
+package com.Prisonman.Prisonman.Model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Activity counters for one hour, day, week (Monday to Sunday) or month. The id is derived from
+ * the granularity and the local start time ("day:2025-01-20"), so recording an event is a blind
+ * upsert-and-increment on a known key. Hour ids carry the UTC offset as well
+ * ("hour:2025-11-02T01-04:00"): the hour repeated when clocks go back is a bucket of its own.
+ */
+@Document(collection = "activity_buckets")
+@CompoundIndex(name = "granularity_start", def = "{'granularity': 1, 'start': 1}")
+public class ActivityBucket {
+
+    @Id
+    private String id;
+    private String granularity;
+    private Instant start;
+    private long admissions;
+    private long releases;
+    private long visits;
+    private long incidents;
+
+    public ActivityBucket() {}
+
+    public ActivityBucket(Granularity granularity, ZonedDateTime start) {
+        this.id = granularity.id(start);
+        this.granularity = granularity.key();
+        this.start = start.toInstant();
+    }
+
+    public enum Granularity {
+        HOUR(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HHxxx")),
+        DAY(DateTimeFormatter.ISO_LOCAL_DATE),
+        WEEK(DateTimeFormatter.ISO_LOCAL_DATE),
+        MONTH(DateTimeFormatter.ofPattern("yyyy-MM"));
+
+        private final DateTimeFormatter idFormat;
+
+        Granularity(DateTimeFormatter idFormat) {
+            this.idFormat = idFormat;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /** Start of the bucket containing the given local time. */
+        public ZonedDateTime start(ZonedDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.toLocalDate().atStartOfDay(time.getZone());
+                case WEEK -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay(time.getZone());
+                case MONTH -> time.toLocalDate().withDayOfMonth(1).atStartOfDay(time.getZone());
+            };
+        }
+
+        public ZonedDateTime next(ZonedDateTime start) {
+            return switch (this) {
+                case HOUR -> start.plusHours(1);
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+
+        public String id(ZonedDateTime start) {
+            return key() + ":" + idFormat.format(start);
+        }
+
+        public static Granularity of(String key) {
+            return valueOf(key.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public void setStart(Instant start) {
+        this.start = start;
+    }
+
+    public long getAdmissions() {
+        return admissions;
+    }
+
+    public void setAdmissions(long admissions) {
+        this.admissions = admissions;
+    }
+
+    public long getReleases() {
+        return releases;
+    }
+
+    public void setReleases(long releases) {
+        this.releases = releases;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+
+    public long getIncidents() {
+        return incidents;
+    }
+
+    public void setIncidents(long incidents) {
+        this.incidents = incidents;
+    }
+}
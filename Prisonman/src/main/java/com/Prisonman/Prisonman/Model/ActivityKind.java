@@ -0,0 +1,21 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * The events counted in the activity buckets, with the bucket field each one increments.
+ */
+public enum ActivityKind {
+    ADMISSION("admissions"),
+    RELEASE("releases"),
+    VISIT("visits"),
+    INCIDENT("incidents");
+
+    private final String field;
+
+    ActivityKind(String field) {
+        this.field = field;
+    }
+
+    public String field() {
+        return field;
+    }
+}
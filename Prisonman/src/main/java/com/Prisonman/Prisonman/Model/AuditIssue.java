@@ -0,0 +1,29 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * One disagreement between the cells, the inmates and the cell block totals found by the
+ * consistency audit. Fields that do not apply are null.
+ */
+public record AuditIssue(Kind kind, String block, String cellNumber, String inmateId, String detail) {
+
+    public enum Kind {
+        /** The inmate is recorded in a cell that does not exist. */
+        UNKNOWN_CELL,
+        /** The inmate is recorded in a cell that does not list them. */
+        MISSING_SLOT,
+        /** The cell lists an inmate recorded in another cell. */
+        STALE_SLOT,
+        /** The cell lists an inmate that does not exist (released, or never saved). */
+        ORPHAN_SLOT,
+        /** The cell lists the same inmate more than once. */
+        DUPLICATE_SLOT,
+        /** The cell's currentOccupancy is not the number of inmates it lists. */
+        OCCUPANCY_MISMATCH,
+        /** The cell holds more inmates than its capacity. */
+        OVER_CAPACITY,
+        /** The CellBlock's capacity or current is not the sum over its cells. */
+        BLOCK_TOTALS,
+        /** Cells use a block name that has no CellBlock. */
+        MISSING_BLOCK
+    }
+}
@@ -0,0 +1,14 @@
+package com.Prisonman.Prisonman.Model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a consistency audit. {@code issues} lists at most prisonman.audit.max-reported-issues
+ * of them; {@code issueCounts} counts all. The repair figures are zero for a report-only run;
+ * cells skipped were changed while the audit ran and are left for the next one.
+ */
+public record AuditReport(int blocks, long cells, long inmates, Map<AuditIssue.Kind, Long> issueCounts,
+                          List<AuditIssue> issues, int cellsRepaired, int cellsSkipped, int blocksRepaired,
+                          long elapsedMs) {
+}
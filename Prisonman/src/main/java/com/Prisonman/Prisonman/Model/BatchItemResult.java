@@ -0,0 +1,24 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * Outcome of one item in a batch admission or transfer, in request order.
+ */
+public record BatchItemResult(int index, String inmateId, Outcome outcome, String message) {
+
+    public enum Outcome {
+        ADMITTED,
+        TRANSFERRED,
+        UNCHANGED,
+        INVALID,
+        DUPLICATE,
+        INMATE_NOT_FOUND,
+        AMBIGUOUS_INMATE,
+        CELL_NOT_FOUND,
+        CELL_CLOSED,
+        CELL_FULL
+    }
+
+    public boolean succeeded() {
+        return outcome == Outcome.ADMITTED || outcome == Outcome.TRANSFERRED || outcome == Outcome.UNCHANGED;
+    }
+}
@@ -0,0 +1,9 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * Occupancy of one block, summed from its cells. Utilization is a whole percentage, rounded down
+ * like CellBlock.utilization.
+ */
+public record BlockOccupancy(String block, int cells, int availableCells, int capacity, int occupied,
+                             int utilization) {
+}
@@ -1,23 +1,39 @@
 package com.Prisonman.Prisonman.Model;
 
+import org.springframework.data.annotation.AccessType;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
 @Document(collection = "cells")
+@CompoundIndex(name = "block_cellNumber", def = "{'block': 1, 'cellNumber': 1}", unique = true)
 public class Cell {
 
+    /** Statuses under which a cell takes no admissions or transfers in, whatever its free beds. */
+    public static final List<String> CLOSED_STATUSES = List.of("Maintenance", "Closed");
+
+    public static boolean isClosed(String status) {
+        return status != null && CLOSED_STATUSES.contains(status);
+    }
+
     @Id
     private String id;
 
     private String cellNumber;
+    @AccessType(AccessType.Type.PROPERTY)
     private String block;
     private int capacity;
     private int currentOccupancy;
     private String status;
     private List<String> inmates;
 
+    // Optimistic lock for whole-document saves; the atomic occupancy updates bump it as well
+    @Version
+    private Long version;
+
     public String getId() {
         return id;
     }
@@ -38,8 +54,9 @@ public class Cell {
         return block;
     }
 
+    // Interned: a handful of block names are shared by every inmate and cell document
     public void setBlock(String block) {
-        this.block = block;
+        this.block = block == null ? null : block.intern();
     }
 
     public int getCapacity() {
@@ -73,4 +90,12 @@ public class Cell {
     public void setInmates(List<String> inmates) {
         this.inmates = inmates;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,6 +1,8 @@
 package com.Prisonman.Prisonman.Model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "cell_blocks")
@@ -9,11 +11,16 @@ public class CellBlock {
     @Id
     private String id;
 
+    @Indexed(unique = true)
     private String name;
     private int capacity;
     private int current;
     private int utilization;
 
+    // Also bumped by the occupancy delta and reconciliation updates
+    @Version
+    private Long version;
+
     // Constructors
     public CellBlock() {}
 
@@ -56,4 +63,10 @@ public class CellBlock {
     public void setUtilization(int utilization) {
         this.utilization = utilization;
     }
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
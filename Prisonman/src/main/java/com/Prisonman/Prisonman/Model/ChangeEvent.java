@@ -0,0 +1,24 @@
+package com.Prisonman.Prisonman.Model;
+
+import java.time.Instant;
+
+/**
+ * One change to a watched collection (or to the dashboard totals), as pushed to clients on
+ * /api/events.
+ *
+ * {@code document} is the document as it is after the change when the source knows it, and null
+ * otherwise (bulk updates, deletes): clients fetch it by {@code id} if they need it. RELOADED
+ * means an unknown set of documents changed (an import, a filtered delete) and the collection
+ * should be fetched again.
+ */
+public record ChangeEvent(long seq, String collection, Operation operation, String id, Object document,
+                          Instant at) {
+
+    public static final String DASHBOARD = "dashboard";
+
+    public enum Operation {
+        CHANGED,
+        DELETED,
+        RELOADED
+    }
+}
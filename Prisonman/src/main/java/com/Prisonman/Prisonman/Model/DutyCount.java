@@ -0,0 +1,8 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * Staff on duty in one department and shift. {@code department} and {@code shift} are null for
+ * staff without one.
+ */
+public record DutyCount(String department, StaffShift shift, int onDuty) {
+}
@@ -0,0 +1,34 @@
+package com.Prisonman.Prisonman.Model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** A staff member's current availability. */
+public enum DutyStatus implements LabeledEnum {
+    ON_DUTY("On Duty"),
+    OFF_DUTY("Off Duty"),
+    ON_LEAVE("On Leave"),
+    TRAINING("Training");
+
+    private final String label;
+
+    DutyStatus(String label) {
+        this.label = label;
+    }
+
+    @JsonValue
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @JsonCreator
+    public static DutyStatus of(String label) {
+        return LabeledEnum.fromLabel(DutyStatus.class, label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,121 @@
+package com.Prisonman.Prisonman.Model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A POST sent with an Idempotency-Key: which request it was, and once it has finished, the
+ * response to replay when the client sends it again. The lease identifies the attempt currently
+ * allowed to finish it, so a retry can take over from one that died. Kept for a day.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String key;
+    private String scope;
+    private String fingerprint;
+    private String lease;
+    private Instant leasedAt;
+    private boolean completed;
+    private int status;
+    private String body;
+    private boolean json;
+
+    @Indexed(name = "expiry", expireAfter = "1d")
+    private Instant createdAt;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String key, String scope, String fingerprint, String lease, Instant now) {
+        this.key = key;
+        this.scope = scope;
+        this.fingerprint = fingerprint;
+        this.lease = lease;
+        this.leasedAt = now;
+        this.createdAt = now;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getLease() {
+        return lease;
+    }
+
+    public void setLease(String lease) {
+        this.lease = lease;
+    }
+
+    public Instant getLeasedAt() {
+        return leasedAt;
+    }
+
+    public void setLeasedAt(Instant leasedAt) {
+        this.leasedAt = leasedAt;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    public void setJson(boolean json) {
+        this.json = json;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
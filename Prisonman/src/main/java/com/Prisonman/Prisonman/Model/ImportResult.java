@@ -0,0 +1,14 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * What an import did to one collection. Rejected documents are the ones the database refused,
+ * typically duplicates of an existing _id or unique key.
+ */
+public record ImportResult(String collection, long read, long inserted, long rejected, long elapsedMs,
+                           double docsPerSecond) {
+
+    public static ImportResult of(String collection, long read, long inserted, long rejected, long elapsedMs) {
+        return new ImportResult(collection, read, inserted, rejected, elapsedMs,
+                inserted * 1000.0 / Math.max(1, elapsedMs));
+    }
+}
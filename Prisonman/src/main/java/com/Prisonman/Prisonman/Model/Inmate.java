@@ -1,20 +1,37 @@
 package com.Prisonman.Prisonman.Model;
 
+import org.springframework.data.annotation.AccessType;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
+import java.util.Locale;
+
+// Search indexes end in _id so a filtered page is read in cursor order without a sort
 @Document(collection = "inmates")
+@CompoundIndex(name = "searchName_id", def = "{'searchName': 1, '_id': 1}")
+@CompoundIndex(name = "status_block_id", def = "{'status': 1, 'block': 1, '_id': 1}")
+@CompoundIndex(name = "block_id", def = "{'block': 1, '_id': 1}")
+@CompoundIndex(name = "charges_id", def = "{'charges': 1, '_id': 1}")
+@CompoundIndex(name = "admissionDate_id", def = "{'admissionDate': 1, '_id': 1}")
 public class Inmate {
 
     @Id
     private String id;
     private String name;
+    // Lower-cased copy of name for case-insensitive prefix search; not part of the API
+    private String searchName;
+    // Not unique: existing records reuse some ids
+    @Indexed
     private String inmateId;
     private int age;
     private String cellNumber;
-    private String admissionDate;
-    private String status;
+    private LocalDate admissionDate;
+    private InmateStatus status;
     private String charges;
+    @AccessType(AccessType.Type.PROPERTY)
     private String block;
 
 
@@ -32,6 +49,7 @@ public class Inmate {
 
     public void setName(String name) {
         this.name = name;
+        this.searchName = name == null ? null : name.toLowerCase(Locale.ROOT);
     }
 
     public String getInmateId() {
@@ -58,19 +76,19 @@ public class Inmate {
         this.cellNumber = cellNumber;
     }
 
-    public String getAdmissionDate() {
+    public LocalDate getAdmissionDate() {
         return admissionDate;
     }
 
-    public void setAdmissionDate(String admissionDate) {
+    public void setAdmissionDate(LocalDate admissionDate) {
         this.admissionDate = admissionDate;
     }
 
-    public String getStatus() {
+    public InmateStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(InmateStatus status) {
         this.status = status;
     }
 
@@ -86,7 +104,8 @@ public class Inmate {
         return block;
     }
 
+    // Interned: a handful of block names are shared by every inmate and cell document
     public void setBlock(String block) {
-        this.block = block;
+        this.block = block == null ? null : block.intern();
     }
 }
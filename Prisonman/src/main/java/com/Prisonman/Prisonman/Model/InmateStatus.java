@@ -0,0 +1,34 @@
+package com.Prisonman.Prisonman.Model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** Where an inmate stands: held (active or restricted), moved elsewhere, or released. */
+public enum InmateStatus implements LabeledEnum {
+    ACTIVE("Active"),
+    RESTRICTED("Restricted"),
+    TRANSFERRED("Transferred"),
+    RELEASED("Released");
+
+    private final String label;
+
+    InmateStatus(String label) {
+        this.label = label;
+    }
+
+    @JsonValue
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @JsonCreator
+    public static InmateStatus of(String label) {
+        return LabeledEnum.fromLabel(InmateStatus.class, label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
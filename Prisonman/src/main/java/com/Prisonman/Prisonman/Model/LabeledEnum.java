@@ -0,0 +1,26 @@
+package com.Prisonman.Prisonman.Model;
+
+import java.util.Locale;
+
+/**
+ * An enum that is stored and sent as its display label ("On Duty") rather than its constant name,
+ * so documents and API payloads keep the values they have always had.
+ */
+public interface LabeledEnum {
+
+    String label();
+
+    /** The constant with the given label, ignoring case and surrounding blanks; null for null or blank. */
+    static <E extends Enum<E> & LabeledEnum> E fromLabel(Class<E> type, String label) {
+        if (label == null || label.isBlank()) {
+            return null;
+        }
+        String wanted = label.trim().toLowerCase(Locale.ROOT);
+        for (E constant : type.getEnumConstants()) {
+            if (constant.label().toLowerCase(Locale.ROOT).equals(wanted)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + label);
+    }
+}
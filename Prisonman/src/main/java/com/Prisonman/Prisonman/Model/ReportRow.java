@@ -0,0 +1,8 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * One group of a count report, e.g. the inmates with status "Active" or the visits on a day.
+ * {@code key} is null for documents without the grouped field.
+ */
+public record ReportRow(String key, long count) {
+}
@@ -1,9 +1,15 @@
 package com.Prisonman.Prisonman.Model;
 
+import org.springframework.data.annotation.AccessType;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
+
 @Document(collection = "staff")
+// Staff on duty per department and shift: the duty roster's load and the dashboard count
+@CompoundIndex(name = "status_department_shift", def = "{'status': 1, 'department': 1, 'shift': 1}")
 public class Staff {
 
     @Id
@@ -11,10 +17,11 @@ public class Staff {
     private String name;
     private String employeeId;
     private String position;
+    @AccessType(AccessType.Type.PROPERTY)
     private String department;
-    private String shift;
-    private String status;
-    private String hireDate;
+    private StaffShift shift;
+    private DutyStatus status;
+    private LocalDate hireDate;
     private String phone;
 
     // Getters and Setters
@@ -55,31 +62,32 @@ public class Staff {
         return department;
     }
 
+    // Interned: a dozen department names are shared by every staff document
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = department == null ? null : department.intern();
     }
 
-    public String getShift() {
+    public StaffShift getShift() {
         return shift;
     }
 
-    public void setShift(String shift) {
+    public void setShift(StaffShift shift) {
         this.shift = shift;
     }
 
-    public String getStatus() {
+    public DutyStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(DutyStatus status) {
         this.status = status;
     }
 
-    public String getHireDate() {
+    public LocalDate getHireDate() {
         return hireDate;
     }
 
-    public void setHireDate(String hireDate) {
+    public void setHireDate(LocalDate hireDate) {
         this.hireDate = hireDate;
     }
 
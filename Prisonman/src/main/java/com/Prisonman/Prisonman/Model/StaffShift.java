@@ -0,0 +1,33 @@
+package com.Prisonman.Prisonman.Model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** The shift pattern a staff member works. */
+public enum StaffShift implements LabeledEnum {
+    DAY("Day"),
+    NIGHT("Night"),
+    ROTATING("Rotating");
+
+    private final String label;
+
+    StaffShift(String label) {
+        this.label = label;
+    }
+
+    @JsonValue
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @JsonCreator
+    public static StaffShift of(String label) {
+        return LabeledEnum.fromLabel(StaffShift.class, label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,11 @@
+package com.Prisonman.Prisonman.Model;
+
+/**
+ * Move an inmate to another cell, possibly in another block.
+ *
+ * The inmate is found by {@code inmateId}, which existing records sometimes share; one matching
+ * more than one inmate is refused. A caller that already holds the inmate's document passes its
+ * {@code id} (the _id) as well, and the document is then found by that alone.
+ */
+public record TransferRequest(String inmateId, String block, String cellNumber, String id) {
+}
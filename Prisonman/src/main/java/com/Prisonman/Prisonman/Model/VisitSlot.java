@@ -0,0 +1,10 @@
+package com.Prisonman.Prisonman.Model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A visiting slot that can still be booked, and how many seats the visiting room has left in it.
+ */
+public record VisitSlot(LocalDate date, LocalTime time, int remaining) {
+}
@@ -0,0 +1,33 @@
+package com.Prisonman.Prisonman.Model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** Life cycle of a booked visit. Cancelled visits give up their slot. */
+public enum VisitStatus implements LabeledEnum {
+    SCHEDULED("Scheduled"),
+    COMPLETED("Completed"),
+    CANCELLED("Cancelled");
+
+    private final String label;
+
+    VisitStatus(String label) {
+        this.label = label;
+    }
+
+    @JsonValue
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @JsonCreator
+    public static VisitStatus of(String label) {
+        return LabeledEnum.fromLabel(VisitStatus.class, label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
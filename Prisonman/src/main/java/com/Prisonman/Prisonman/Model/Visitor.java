@@ -1,9 +1,16 @@
 package com.Prisonman.Prisonman.Model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+
 @Document(collection = "visitors")
+// Serves the visit reports: a date range read from the index alone
+@CompoundIndex(name = "visitDate_status", def = "{'visitDate': 1, 'status': 1}")
 public class Visitor {
 
     @Id
@@ -12,17 +19,18 @@ public class Visitor {
     private String id;
     private String name;
     private String relationship;
-    private String visitDate;
-    private String visitTime;
-    private String status;
+    private LocalDate visitDate;
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime visitTime;
+    private VisitStatus status;
     private String phone;
     private String idNumber;
     private String visitingInmate;
 
     public Visitor() {}
 
-    public Visitor(String id, String name, String relationship, String visitDate, String visitTime,
-                   String status, String phone, String idNumber, String visitingInmate) {
+    public Visitor(String id, String name, String relationship, LocalDate visitDate, LocalTime visitTime,
+                   VisitStatus status, String phone, String idNumber, String visitingInmate) {
         this.id = id;
         this.name = name;
         this.relationship = relationship;
@@ -66,27 +74,27 @@ public class Visitor {
         this.relationship = relationship;
     }
 
-    public String getVisitDate() {
+    public LocalDate getVisitDate() {
         return visitDate;
     }
 
-    public void setVisitDate(String visitDate) {
+    public void setVisitDate(LocalDate visitDate) {
         this.visitDate = visitDate;
     }
 
-    public String getVisitTime() {
+    public LocalTime getVisitTime() {
         return visitTime;
     }
 
-    public void setVisitTime(String visitTime) {
+    public void setVisitTime(LocalTime visitTime) {
         this.visitTime = visitTime;
     }
 
-    public String getStatus() {
+    public VisitStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(VisitStatus status) {
         this.status = status;
     }
 
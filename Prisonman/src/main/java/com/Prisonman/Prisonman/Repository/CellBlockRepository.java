@@ -4,7 +4,9 @@ import com.Prisonman.Prisonman.Model.CellBlock;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
-public interface CellBlockRepository extends MongoRepository<CellBlock, String> {
-    // No extra methods needed now; basic CRUD provided by MongoRepository
+public interface CellBlockRepository extends MongoRepository<CellBlock, String>, CellBlockRepositoryCustom {
+    Optional<CellBlock> findByName(String name);
 }
@@ -0,0 +1,20 @@
+package com.Prisonman.Prisonman.Repository;
+
+public interface CellBlockRepositoryCustom {
+
+    /**
+     * Atomically adds {@code delta} to the block's {@code current} count and recomputes
+     * {@code utilization} from the new value, in a single update on the block document.
+     *
+     * @return true if a block with that name exists
+     */
+    boolean applyOccupancyDelta(String blockName, int delta);
+
+    /**
+     * Overwrites the block's totals, but only if {@code current} still holds
+     * {@code expectedCurrent}, so a concurrent delta is never silently lost.
+     *
+     * @return true if the block was updated
+     */
+    boolean replaceTotals(String blockId, int expectedCurrent, int capacity, int current, int utilization);
+}
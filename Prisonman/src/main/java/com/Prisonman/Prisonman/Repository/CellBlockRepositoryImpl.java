@@ -0,0 +1,71 @@
+package com.Prisonman.Prisonman.Repository;
+
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Service.ChangeEventBus;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CellBlockRepositoryImpl implements CellBlockRepositoryCustom {
+
+    // utilization = floor(current / capacity * 100), or 0 for a block without capacity
+    private static final AggregationOperation RECOMPUTE_UTILIZATION = context -> new Document("$set",
+            new Document("utilization", new Document("$cond", List.of(
+                    new Document("$gt", List.of("$capacity", 0)),
+                    new Document("$toInt", new Document("$floor", new Document("$multiply", List.of(
+                            new Document("$divide", List.of("$current", "$capacity")), 100)))),
+                    0))));
+
+    private static final AggregationOperation BUMP_VERSION = context -> new Document("$set",
+            new Document("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L))));
+
+    private static final String COLLECTION = "cell_blocks";
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventBus changeEvents;
+
+    public CellBlockRepositoryImpl(MongoTemplate mongoTemplate, ChangeEventBus changeEvents) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeEvents = changeEvents;
+    }
+
+    @Override
+    public boolean applyOccupancyDelta(String blockName, int delta) {
+        AggregationOperation addDelta = context -> new Document("$set",
+                new Document("current", new Document("$add", List.of("$current", delta))));
+
+        // Returns the updated block so the change event can carry it
+        CellBlock updated = mongoTemplate.findAndModify(
+                query(where("name").is(blockName)),
+                AggregationUpdate.from(List.of(addDelta, RECOMPUTE_UTILIZATION, BUMP_VERSION)),
+                FindAndModifyOptions.options().returnNew(true),
+                CellBlock.class);
+        if (updated == null) {
+            return false;
+        }
+        changeEvents.publishLocal(COLLECTION, Operation.CHANGED, updated.getId(), updated);
+        return true;
+    }
+
+    @Override
+    public boolean replaceTotals(String blockId, int expectedCurrent, int capacity, int current, int utilization) {
+        boolean replaced = mongoTemplate.updateFirst(
+                query(where("_id").is(blockId).and("current").is(expectedCurrent)),
+                new Update().set("capacity", capacity).set("current", current).set("utilization", utilization)
+                        .inc("version", 1),
+                CellBlock.class).getModifiedCount() > 0;
+        if (replaced) {
+            changeEvents.publishLocal(COLLECTION, Operation.CHANGED, blockId, null);
+        }
+        return replaced;
+    }
+}
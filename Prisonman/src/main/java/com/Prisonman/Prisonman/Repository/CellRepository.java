@@ -3,5 +3,9 @@ package com.Prisonman.Prisonman.Repository;
 import com.Prisonman.Prisonman.Model.Cell;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CellRepository extends MongoRepository<Cell, String> {
+import java.util.Optional;
+
+public interface CellRepository extends MongoRepository<Cell, String>, CellRepositoryCustom {
+    // Served by the (block, cellNumber) compound index declared on Cell
+    Optional<Cell> findByBlockAndCellNumber(String block, String cellNumber);
 }
@@ -0,0 +1,59 @@
+package com.Prisonman.Prisonman.Repository;
+
+import com.Prisonman.Prisonman.Model.Cell;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface CellRepositoryCustom {
+
+    /**
+     * Claims a bed in the cell for {@code inmateId} in one conditional update: it only matches
+     * while {@code currentOccupancy < capacity}, the cell is not closed ({@link Cell#CLOSED_STATUSES})
+     * and the inmate is not already listed, and then appends the inmate, increments the occupancy
+     * and refreshes the status together.
+     *
+     * @return the updated cell, or empty if the cell does not exist, is closed or has no free bed
+     */
+    Optional<Cell> reserveSlot(String block, String cellNumber, String inmateId);
+
+    /**
+     * Removes {@code inmateId} from the cell and gives the bed back, if the inmate is listed there.
+     *
+     * @return the updated cell, or empty if the inmate was not in that cell
+     */
+    Optional<Cell> releaseSlot(String block, String cellNumber, String inmateId);
+
+    /**
+     * Hands the bed listed under {@code oldInmateId} over to {@code newInmateId} in one update,
+     * keeping its place in the list. Occupancy does not change, so capacity and status are not
+     * checked.
+     *
+     * @return the updated cell, or empty if the old id is not listed there or the new one already is
+     */
+    Optional<Cell> renameSlot(String block, String cellNumber, String oldInmateId, String newInmateId);
+
+    /**
+     * Batch form of {@link #reserveSlot}: one bulk write with a guarded update per cell. Each
+     * cell takes its whole group of inmates or none of them.
+     *
+     * @param inmateIdsByCellId inmate ids to place, keyed by cell id
+     * @return ids of the cells whose group was placed
+     */
+    Set<String> reserveSlots(Map<String, List<String>> inmateIdsByCellId);
+
+    /**
+     * Batch form of {@link #releaseSlot}, keyed by cell id. Ids not listed in a cell are ignored.
+     */
+    void releaseSlots(Map<String, List<String>> inmateIdsByCellId);
+
+    /**
+     * Replaces the cell's slot list, setting its occupancy to match, if the cell is still at
+     * {@code expectedVersion}. For repairs: a cell changed since it was read is left alone.
+     *
+     * @return whether the cell was updated
+     */
+    boolean replaceSlots(String cellId, Long expectedVersion, List<String> inmateIds);
+}
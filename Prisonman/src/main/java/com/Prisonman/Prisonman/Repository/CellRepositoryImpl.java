@@ -0,0 +1,184 @@
+package com.Prisonman.Prisonman.Repository;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Service.ChangeEventBus;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CellRepositoryImpl implements CellRepositoryCustom {
+
+    // Runs after the occupancy change, so it sees the new value. A closed cell stays closed.
+    private static final AggregationOperation REFRESH_STATUS = context -> new Document("$set", new Document()
+            .append("status", new Document("$cond", List.of(
+                    new Document("$in", List.of("$status", Cell.CLOSED_STATUSES)), "$status",
+                    new Document("$cond", List.of(
+                            new Document("$gte", List.of("$currentOccupancy", "$capacity")), "Occupied", "Available")))))
+            .append("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L))));
+
+    private static final String COLLECTION = "cells";
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventBus changeEvents;
+
+    public CellRepositoryImpl(MongoTemplate mongoTemplate, ChangeEventBus changeEvents) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeEvents = changeEvents;
+    }
+
+    @Override
+    public Optional<Cell> reserveSlot(String block, String cellNumber, String inmateId) {
+        Query guard = query(where("block").is(block)
+                .and("cellNumber").is(cellNumber)
+                .and("inmates").ne(inmateId)
+                .and("status").nin(Cell.CLOSED_STATUSES)
+                .andOperator(Criteria.expr(
+                        ComparisonOperators.valueOf("currentOccupancy").lessThan("capacity"))));
+
+        return changed(mongoTemplate.findAndModify(guard, claim(List.of(inmateId)),
+                FindAndModifyOptions.options().returnNew(true), Cell.class));
+    }
+
+    @Override
+    public Optional<Cell> releaseSlot(String block, String cellNumber, String inmateId) {
+        Query guard = query(where("block").is(block)
+                .and("cellNumber").is(cellNumber)
+                .and("inmates").is(inmateId));
+
+        return changed(mongoTemplate.findAndModify(guard, release(List.of(inmateId)),
+                FindAndModifyOptions.options().returnNew(true), Cell.class));
+    }
+
+    // The $expr guard does not touch the array match, so inmates.$ is the old id's element
+    @Override
+    public Optional<Cell> renameSlot(String block, String cellNumber, String oldInmateId, String newInmateId) {
+        Query guard = query(where("block").is(block)
+                .and("cellNumber").is(cellNumber)
+                .and("inmates").is(oldInmateId)
+                .andOperator(Criteria.expr(BooleanOperators.Not.not(ArrayOperators.In
+                        .arrayOf(ConditionalOperators.ifNull("inmates").then(List.of()))
+                        .containsValue(newInmateId)))));
+
+        Update rename = new Update().set("inmates.$", newInmateId).inc("version", 1);
+        return changed(mongoTemplate.findAndModify(guard, rename,
+                FindAndModifyOptions.options().returnNew(true), Cell.class));
+    }
+
+    @Override
+    public Set<String> reserveSlots(Map<String, List<String>> inmateIdsByCellId) {
+        if (inmateIdsByCellId.isEmpty()) {
+            return Set.of();
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cell.class);
+        inmateIdsByCellId.forEach((cellId, inmateIds) -> bulk.updateOne(
+                query(where("_id").is(cellId)
+                        .and("inmates").nin(inmateIds)
+                        .and("status").nin(Cell.CLOSED_STATUSES)
+                        .andOperator(Criteria.expr(ComparisonOperators
+                                .valueOf(ArithmeticOperators.valueOf("currentOccupancy").add(inmateIds.size()))
+                                .lessThanEqualTo("capacity")))),
+                claim(inmateIds)));
+
+        if (bulk.execute().getMatchedCount() == inmateIdsByCellId.size()) {
+            changed(inmateIdsByCellId.keySet());
+            return inmateIdsByCellId.keySet();
+        }
+
+        // Some cells lost beds to concurrent admissions. Each update is all-or-nothing per cell,
+        // so one of its inmates being listed means the whole group got in.
+        Query reloaded = query(where("_id").in(inmateIdsByCellId.keySet()));
+        reloaded.fields().include("inmates");
+        Set<String> reserved = new HashSet<>();
+        for (Cell cell : mongoTemplate.find(reloaded, Cell.class)) {
+            List<String> wanted = inmateIdsByCellId.get(cell.getId());
+            if (wanted != null && cell.getInmates() != null && cell.getInmates().contains(wanted.get(0))) {
+                reserved.add(cell.getId());
+            }
+        }
+        changed(reserved);
+        return reserved;
+    }
+
+    @Override
+    public void releaseSlots(Map<String, List<String>> inmateIdsByCellId) {
+        if (inmateIdsByCellId.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cell.class);
+        inmateIdsByCellId.forEach((cellId, inmateIds) ->
+                bulk.updateOne(query(where("_id").is(cellId)), release(inmateIds)));
+        bulk.execute();
+        changed(inmateIdsByCellId.keySet());
+    }
+
+    @Override
+    public boolean replaceSlots(String cellId, Long expectedVersion, List<String> inmateIds) {
+        AggregationOperation replace = context -> new Document("$set", new Document()
+                .append("currentOccupancy", inmateIds.size())
+                .append("inmates", inmateIds));
+        boolean replaced = mongoTemplate.updateFirst(query(where("_id").is(cellId).and("version").is(expectedVersion)),
+                AggregationUpdate.from(List.of(replace, REFRESH_STATUS)), Cell.class).getModifiedCount() == 1;
+        if (replaced) {
+            changed(Set.of(cellId));
+        }
+        return replaced;
+    }
+
+    // Atomic and bulk updates raise no mapping events, so they are reported here
+    private Optional<Cell> changed(Cell cell) {
+        if (cell != null) {
+            changeEvents.publishLocal(COLLECTION, Operation.CHANGED, cell.getId(), cell);
+        }
+        return Optional.ofNullable(cell);
+    }
+
+    private void changed(Set<String> cellIds) {
+        cellIds.forEach(cellId -> changeEvents.publishLocal(COLLECTION, Operation.CHANGED, cellId, null));
+    }
+
+    private static AggregationUpdate claim(List<String> inmateIds) {
+        AggregationOperation add = context -> new Document("$set", new Document()
+                .append("currentOccupancy", new Document("$add", List.of("$currentOccupancy", inmateIds.size())))
+                .append("inmates", new Document("$concatArrays", List.of(
+                        new Document("$ifNull", List.of("$inmates", List.of())), inmateIds))));
+        return AggregationUpdate.from(List.of(add, REFRESH_STATUS));
+    }
+
+    // Only beds actually held by the given inmates are given back
+    private static AggregationUpdate release(List<String> inmateIds) {
+        Document current = new Document("$ifNull", List.of("$inmates", List.of()));
+        Document remaining = new Document("$filter", new Document()
+                .append("input", current)
+                .append("cond", new Document("$not", List.of(new Document("$in", List.of("$$this", inmateIds))))));
+        Document removedCount = new Document("$subtract", List.of(
+                new Document("$size", current), new Document("$size", remaining)));
+
+        AggregationOperation remove = context -> new Document("$set", new Document()
+                .append("currentOccupancy", new Document("$max", List.of(
+                        new Document("$subtract", List.of("$currentOccupancy", removedCount)), 0)))
+                .append("inmates", remaining));
+        return AggregationUpdate.from(List.of(remove, REFRESH_STATUS));
+    }
+}
@@ -7,4 +7,6 @@ import java.util.Optional;
 
 public interface InmateRepository extends MongoRepository<Inmate, String> {
     Optional<Inmate> findByInmateId(String inmateId);
+
+    boolean existsByInmateIdAndIdNot(String inmateId, String id);
 }
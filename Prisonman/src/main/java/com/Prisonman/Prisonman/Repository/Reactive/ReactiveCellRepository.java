@@ -0,0 +1,9 @@
+package com.Prisonman.Prisonman.Repository.Reactive;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCellRepository extends ReactiveMongoRepository<Cell, String> {
+    Mono<Cell> findByBlockAndCellNumber(String block, String cellNumber);
+}
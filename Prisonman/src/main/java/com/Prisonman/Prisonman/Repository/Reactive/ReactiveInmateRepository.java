@@ -0,0 +1,9 @@
+package com.Prisonman.Prisonman.Repository.Reactive;
+
+import com.Prisonman.Prisonman.Model.Inmate;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveInmateRepository extends ReactiveMongoRepository<Inmate, String> {
+    Mono<Inmate> findByInmateId(String inmateId);
+}
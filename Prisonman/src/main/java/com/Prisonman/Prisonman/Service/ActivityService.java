@@ -0,0 +1,158 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ActivityBucket;
+import com.Prisonman.Prisonman.Model.ActivityBucket.Granularity;
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Time-bucketed activity counts (admissions, releases, visits, incidents).
+ *
+ * Every event increments its hour, day, week and month bucket in one unordered bulk upsert, so
+ * the rollups are always current and a chart over N buckets reads exactly N small documents.
+ * Buckets are never overwritten, so history accumulates instead of the old seven weekday rows
+ * being edited in place. Visits are counted in the bucket of their scheduled time; the other
+ * events when they are recorded.
+ */
+@Service
+public class ActivityService {
+
+    private final MongoTemplate mongoTemplate;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final CollectionVersions collectionVersions;
+    private final ZoneId zone;
+    private final int maxBuckets;
+
+    public ActivityService(MongoTemplate mongoTemplate, DashboardSummaryService dashboardSummaryService,
+                           CollectionVersions collectionVersions,
+                           @Value("${prisonman.activity.zone:UTC}") ZoneId zone,
+                           @Value("${prisonman.activity.max-buckets:2000}") int maxBuckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.dashboardSummaryService = dashboardSummaryService;
+        this.collectionVersions = collectionVersions;
+        this.zone = zone;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public void record(ActivityKind kind, int count) {
+        record(kind, Instant.now(), count);
+    }
+
+    public void record(ActivityKind kind, Instant at, int count) {
+        if (count == 0) {
+            return;
+        }
+        ZonedDateTime time = at.atZone(zone);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucket.class);
+        for (Granularity granularity : Granularity.values()) {
+            ZonedDateTime start = granularity.start(time);
+            bulk.upsert(query(where("_id").is(granularity.id(start))), new Update()
+                    .inc(kind.field(), count)
+                    .setOnInsert("granularity", granularity.key())
+                    .setOnInsert("start", start.toInstant()));
+        }
+        bulk.execute();
+        collectionVersions.changed("activity_buckets");
+
+        if (kind == ActivityKind.VISIT) {
+            dashboardSummaryService.onVisitsChange(time.toLocalDate(), count);
+        }
+    }
+
+    /**
+     * A visit was registered, edited or removed; pass null for the missing side. Cancelled
+     * visits and visits whose date or time cannot be read do not count.
+     */
+    public void onVisitChange(Visitor before, Visitor after) {
+        Instant timeBefore = VisitScheduleService.holdsSlot(before) ? scheduledAt(before) : null;
+        Instant timeAfter = VisitScheduleService.holdsSlot(after) ? scheduledAt(after) : null;
+        boolean countedBefore = timeBefore != null;
+        boolean countedAfter = timeAfter != null;
+        if (countedBefore && countedAfter && sameHour(timeBefore, timeAfter)) {
+            return;
+        }
+        if (countedBefore) {
+            record(ActivityKind.VISIT, timeBefore, -1);
+        }
+        if (countedAfter) {
+            record(ActivityKind.VISIT, timeAfter, 1);
+        }
+    }
+
+    /**
+     * Buckets of one granularity from the one containing {@code from} up to, not including,
+     * {@code to}. Buckets without any activity are returned with zero counts, so charts get an
+     * evenly spaced series.
+     */
+    public List<ActivityBucket> buckets(Granularity granularity, Instant from, Instant to) {
+        ZonedDateTime first = granularity.start(from.atZone(zone));
+        ZonedDateTime end = to.atZone(zone);
+        if (!first.isBefore(end)) {
+            return List.of();
+        }
+
+        Query range = query(where("granularity").is(granularity.key())
+                .and("start").gte(first.toInstant()).lt(end.toInstant()))
+                .with(Sort.by("start"));
+        // By start rather than id: hour buckets written before their ids had an offset are found too
+        Map<Instant, ActivityBucket> stored = new HashMap<>();
+        for (ActivityBucket bucket : mongoTemplate.find(range, ActivityBucket.class)) {
+            stored.merge(bucket.getStart(), bucket, ActivityService::sum);
+        }
+
+        List<ActivityBucket> series = new ArrayList<>();
+        for (ZonedDateTime start = first; start.isBefore(end); start = granularity.next(start)) {
+            if (series.size() == maxBuckets) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Range covers more than " + maxBuckets + " " + granularity.key() + " buckets");
+            }
+            ActivityBucket bucket = stored.get(start.toInstant());
+            series.add(bucket != null ? bucket : new ActivityBucket(granularity, start));
+        }
+        return series;
+    }
+
+    private static ActivityBucket sum(ActivityBucket a, ActivityBucket b) {
+        a.setAdmissions(a.getAdmissions() + b.getAdmissions());
+        a.setReleases(a.getReleases() + b.getReleases());
+        a.setVisits(a.getVisits() + b.getVisits());
+        a.setIncidents(a.getIncidents() + b.getIncidents());
+        return a;
+    }
+
+    public ZoneId zone() {
+        return zone;
+    }
+
+    private boolean sameHour(Instant a, Instant b) {
+        return Granularity.HOUR.start(a.atZone(zone)).equals(Granularity.HOUR.start(b.atZone(zone)));
+    }
+
+    // Null for an unreadable date: such visits are not counted, as the schedule skips them too, so
+    // adding and taking one away always land in the same bucket
+    private Instant scheduledAt(Visitor visitor) {
+        LocalDateTime time = VisitScheduleService.scheduledTime(visitor);
+        return time == null ? null : time.atZone(zone).toInstant();
+    }
+}
@@ -0,0 +1,138 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.AuditIssue;
+import com.Prisonman.Prisonman.Model.AuditIssue.Kind;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cross-checks one block in memory: its cells, the inmates recorded in it and its CellBlock.
+ *
+ * The inmates are hashed by inmateId to the cell they are recorded in, then every cell's slot
+ * list is checked against that map and every recorded inmate against its cell, so a block costs
+ * one pass over each side whatever its size. Only one block is held at a time. Slots for inmates
+ * the block does not know cannot be judged here (the inmate may have moved to another block); they
+ * come back as strays for the caller to look up.
+ *
+ * Each cell found wrong gets a fix: the inmates it should list, once each. Strays are left out of
+ * it, since either way the slot does not belong in that cell.
+ */
+public class BlockAudit {
+
+    /** The slot list a cell should have; currentOccupancy follows its size. */
+    public record CellFix(String cellId, String block, String cellNumber, Long version, List<String> inmates) {
+    }
+
+    /** A slot for an inmate not recorded in this block. */
+    public record Stray(String block, String cellNumber, String inmateId) {
+    }
+
+    public record Result(String block, long cells, long inmates, List<AuditIssue> issues, List<CellFix> fixes,
+                         List<Stray> strays) {
+    }
+
+    private final String block;
+    private final Map<String, Cell> cells = new HashMap<>();
+    private final Map<String, String> cellOfInmate = new HashMap<>();
+    private long inmates;
+
+    public BlockAudit(String block) {
+        this.block = block;
+    }
+
+    public void addCell(Cell cell) {
+        cells.putIfAbsent(cell.getCellNumber(), cell);
+    }
+
+    public void addInmate(String inmateId, String cellNumber) {
+        inmates++;
+        if (inmateId != null) {
+            cellOfInmate.putIfAbsent(inmateId, cellNumber == null ? "" : cellNumber);
+        }
+    }
+
+    /** Checks what was added against {@code stored}, the block's CellBlock (null if it has none). */
+    public Result check(CellBlock stored) {
+        List<AuditIssue> issues = new ArrayList<>();
+        List<CellFix> fixes = new ArrayList<>();
+        List<Stray> strays = new ArrayList<>();
+
+        Map<String, List<String>> missing = new HashMap<>();
+        cellOfInmate.forEach((inmateId, cellNumber) -> {
+            if (cellNumber.isBlank()) {
+                return;
+            }
+            Cell cell = cells.get(cellNumber);
+            if (cell == null) {
+                issues.add(issue(Kind.UNKNOWN_CELL, cellNumber, inmateId, "No such cell in the block."));
+            } else if (cell.getInmates() == null || !cell.getInmates().contains(inmateId)) {
+                issues.add(issue(Kind.MISSING_SLOT, cellNumber, inmateId, "The cell does not list the inmate."));
+                missing.computeIfAbsent(cellNumber, k -> new ArrayList<>()).add(inmateId);
+            }
+        });
+
+        long capacity = 0;
+        long current = 0;
+        for (Cell cell : cells.values()) {
+            capacity += cell.getCapacity();
+            current += cell.getCurrentOccupancy();
+
+            List<String> listed = cell.getInmates() == null ? List.of() : cell.getInmates();
+            Set<String> seen = new HashSet<>();
+            Set<String> kept = new LinkedHashSet<>();
+            for (String inmateId : listed) {
+                if (!seen.add(inmateId)) {
+                    issues.add(issue(Kind.DUPLICATE_SLOT, cell.getCellNumber(), inmateId, "Listed more than once."));
+                    continue;
+                }
+                String recorded = cellOfInmate.get(inmateId);
+                if (recorded == null) {
+                    strays.add(new Stray(block, cell.getCellNumber(), inmateId));
+                } else if (!recorded.equals(cell.getCellNumber())) {
+                    issues.add(issue(Kind.STALE_SLOT, cell.getCellNumber(), inmateId,
+                            recorded.isBlank() ? "The inmate is recorded without a cell." : "The inmate is recorded in cell " + recorded + "."));
+                } else {
+                    kept.add(inmateId);
+                }
+            }
+            kept.addAll(missing.getOrDefault(cell.getCellNumber(), List.of()));
+
+            if (cell.getCurrentOccupancy() != listed.size()) {
+                issues.add(issue(Kind.OCCUPANCY_MISMATCH, cell.getCellNumber(), null,
+                        "Occupancy " + cell.getCurrentOccupancy() + ", but " + listed.size() + " inmate(s) listed."));
+            }
+            if (kept.size() > cell.getCapacity()) {
+                issues.add(issue(Kind.OVER_CAPACITY, cell.getCellNumber(), null,
+                        kept.size() + " inmate(s) in a cell for " + cell.getCapacity() + "."));
+            }
+            if (!List.copyOf(kept).equals(listed) || cell.getCurrentOccupancy() != kept.size()) {
+                fixes.add(new CellFix(cell.getId(), cell.getBlock(), cell.getCellNumber(), cell.getVersion(),
+                        List.copyOf(kept)));
+            }
+        }
+
+        if (stored == null) {
+            if (!cells.isEmpty()) {
+                issues.add(issue(Kind.MISSING_BLOCK, null, null,
+                        block == null ? cells.size() + " cell(s) have no block." : cells.size() + " cell(s) use it."));
+            }
+        } else if (stored.getCapacity() != capacity || stored.getCurrent() != current) {
+            issues.add(issue(Kind.BLOCK_TOTALS, null, null, "Stored " + stored.getCurrent() + "/" + stored.getCapacity()
+                    + ", cells say " + current + "/" + capacity + "."));
+        }
+
+        return new Result(block, cells.size(), inmates, issues, fixes, strays);
+    }
+
+    private AuditIssue issue(Kind kind, String cellNumber, String inmateId, String detail) {
+        return new AuditIssue(kind, block, cellNumber, inmateId, detail);
+    }
+}
@@ -0,0 +1,191 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Repository.CellBlockRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keeps CellBlock.capacity/current/utilization in step with the cells collection.
+ *
+ * Admissions and releases apply a +1/-1 delta to the block document, so intake cost does not
+ * depend on the number of cells or blocks. The deltas are written behind: they are added up per
+ * block in memory and applied once every prisonman.cell-block-stats.flush-interval, so a busy
+ * block's document takes one write per interval instead of one per admission, and admissions do
+ * not queue on it. Live per-block figures come from OccupancyService meanwhile. A periodic
+ * reconciliation recomputes the totals from the cells with one aggregation and repairs any block
+ * that has drifted (cells edited directly, failed writes, manual imports).
+ */
+@Service
+public class CellBlockStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CellBlockStatsService.class);
+
+    private final CellBlockRepository cellBlockRepository;
+    private final MongoTemplate mongoTemplate;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final LookupCache lookupCache;
+    private final boolean writeBehind;
+
+    private final Map<String, AtomicInteger> pendingDeltas = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public CellBlockStatsService(CellBlockRepository cellBlockRepository, MongoTemplate mongoTemplate,
+                                 DashboardSummaryService dashboardSummaryService, LookupCache lookupCache,
+                                 @Value("${prisonman.scheduling.enabled:true}") boolean scheduling,
+                                 @Value("${prisonman.cell-block-stats.flush-interval:PT1S}") Duration flushInterval) {
+        this.cellBlockRepository = cellBlockRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.dashboardSummaryService = dashboardSummaryService;
+        this.lookupCache = lookupCache;
+        // Without the scheduler nothing would flush, so deltas are then written straight away
+        this.writeBehind = scheduling && flushInterval.isPositive();
+    }
+
+    public void applyOccupancyChange(String blockName, int delta) {
+        if (writeBehind) {
+            pendingDeltas.computeIfAbsent(blockName, name -> new AtomicInteger()).addAndGet(delta);
+        } else {
+            write(blockName, delta);
+        }
+    }
+
+    /** Writes the deltas gathered since the last flush, one update per block. */
+    @Scheduled(fixedDelayString = "${prisonman.cell-block-stats.flush-interval:PT1S}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            pendingDeltas.forEach((blockName, pending) -> {
+                int delta = pending.getAndSet(0);
+                if (delta == 0) {
+                    return;
+                }
+                try {
+                    write(blockName, delta);
+                } catch (RuntimeException e) {
+                    // Keep it for the next flush
+                    pending.addAndGet(delta);
+                    log.warn("Could not apply occupancy delta {} to cell block '{}'", delta, blockName, e);
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(String blockName, int delta) {
+        if (cellBlockRepository.applyOccupancyDelta(blockName, delta)) {
+            lookupCache.evictCellBlocks();
+            dashboardSummaryService.onOccupancyChange(delta);
+        } else {
+            log.warn("No cell block named '{}' to apply occupancy delta {} to", blockName, delta);
+        }
+    }
+
+    /**
+     * Recomputes one block from its cells. Used after edits that can change capacity or
+     * occupancy by arbitrary amounts (creating or editing a cell).
+     */
+    public void reconcileBlock(String blockName) {
+        flush();
+        Map<String, Totals> totals = aggregateCellTotals(blockName);
+        cellBlockRepository.findByName(blockName)
+                .ifPresent(block -> repair(block, totals.getOrDefault(blockName, Totals.EMPTY)));
+    }
+
+    /**
+     * Recomputes every block from the cells collection and repairs the ones that drifted.
+     *
+     * @return the number of blocks that were repaired
+     */
+    @Scheduled(fixedDelayString = "${prisonman.cell-block-stats.reconcile-interval:PT5M}",
+            initialDelayString = "${prisonman.cell-block-stats.reconcile-interval:PT5M}")
+    public int reconcileAll() {
+        flush();
+        Map<String, Totals> totals = aggregateCellTotals(null);
+
+        int repaired = 0;
+        for (CellBlock block : cellBlockRepository.findAll()) {
+            // A block whose cells are all gone is repaired to zero, as in reconcileBlock
+            if (repair(block, totals.getOrDefault(block.getName(), Totals.EMPTY))) {
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            log.info("Cell block reconciliation repaired {} block(s)", repaired);
+        }
+        return repaired;
+    }
+
+    private boolean repair(CellBlock block, Totals expected) {
+        // Admissions since the flush are in the cells already: repairing now would count them twice
+        AtomicInteger pending = pendingDeltas.get(block.getName());
+        if (pending != null && pending.get() != 0) {
+            return false;
+        }
+        int utilization = expected.capacity() > 0
+                ? (int) ((expected.current() / (double) expected.capacity()) * 100)
+                : 0;
+
+        if (block.getCapacity() == expected.capacity()
+                && block.getCurrent() == expected.current()
+                && block.getUtilization() == utilization) {
+            return false;
+        }
+
+        log.warn("Cell block '{}' drifted: stored {}/{} ({}%), cells say {}/{} ({}%)",
+                block.getName(), block.getCurrent(), block.getCapacity(), block.getUtilization(),
+                expected.current(), expected.capacity(), utilization);
+
+        // If a delta landed since we read the block, leave it for the next pass
+        boolean replaced = cellBlockRepository.replaceTotals(block.getId(), block.getCurrent(),
+                expected.capacity(), expected.current(), utilization);
+        if (replaced) {
+            lookupCache.evictCellBlocks();
+            dashboardSummaryService.onCellBlockTotalsChange(block.getCurrent(), block.getCapacity(),
+                    expected.current(), expected.capacity());
+        }
+        return replaced;
+    }
+
+    private Map<String, Totals> aggregateCellTotals(String blockName) {
+        Aggregation aggregation = blockName == null
+                ? newAggregation(
+                        group("block").sum("capacity").as("capacity").sum("currentOccupancy").as("current"))
+                : newAggregation(
+                        match(where("block").is(blockName)),
+                        group("block").sum("capacity").as("capacity").sum("currentOccupancy").as("current"));
+
+        Map<String, Totals> totals = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Cell.class, Document.class)) {
+            totals.put(row.getString("_id"),
+                    new Totals(row.get("capacity", Number.class).intValue(), row.get("current", Number.class).intValue()));
+        }
+        return totals;
+    }
+
+    private record Totals(int capacity, int current) {
+        static final Totals EMPTY = new Totals(0, 0);
+    }
+}
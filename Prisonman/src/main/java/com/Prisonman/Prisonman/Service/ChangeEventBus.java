@@ -0,0 +1,157 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ChangeEvent;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process feed of changes to the watched collections, read by the SSE endpoint and, when
+ * change streams are the source, by {@link ChangeEventProjections}.
+ *
+ * Events go into a fixed-size ring and are numbered; readers keep their own position and pull
+ * what came after it, so publishing never waits for a reader and a slow reader only holds its
+ * own position. A reader that falls more than the ring size behind is told so and must resync
+ * from the database.
+ *
+ * Where events come from depends on prisonman.events.source:
+ * <ul>
+ *   <li>local: this instance's own writes, reported through {@link #publishLocal} by the mapping
+ *       event listener and by the write paths that bypass it (atomic and bulk updates).</li>
+ *   <li>change-streams: a change stream on the database ({@link ChangeStreamWatcher}), which
+ *       also sees other instances and the shell. Local reports are ignored so nothing is
+ *       delivered twice, unless the stream cannot be opened and the bus falls back to them.</li>
+ * </ul>
+ */
+@Service
+public class ChangeEventBus {
+
+    public static final String CHANGE_STREAMS = "change-streams";
+
+    private final ChangeEvent[] ring;
+    private final Set<String> collections;
+    private final CollectionVersions collectionVersions;
+
+    // Event ids handed to clients carry it, so an id from an earlier run is recognised as stale
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private long latest;
+
+    private volatile boolean localWrites;
+
+    public ChangeEventBus(@Value("${prisonman.events.source:local}") String source,
+                          @Value("${prisonman.events.collections:inmates,cells,cell_blocks,visitors,staff,staff_status}") Set<String> collections,
+                          @Value("${prisonman.events.buffer-size:4096}") int bufferSize,
+                          CollectionVersions collectionVersions) {
+        this.ring = new ChangeEvent[bufferSize];
+        this.collections = Set.copyOf(collections);
+        this.collectionVersions = collectionVersions;
+        this.localWrites = !CHANGE_STREAMS.equals(source);
+    }
+
+    public boolean watches(String collection) {
+        return collections.contains(collection);
+    }
+
+    public Set<String> collections() {
+        return collections;
+    }
+
+    /**
+     * Reports a write made by this instance; dropped when change streams deliver it instead. The
+     * collection's version moves either way, so a read right after the write never gets a 304.
+     * Inside a transaction both wait for the commit: a client must not fetch the new state, or
+     * cache the old one under the new version, before it is visible.
+     */
+    public void publishLocal(String collection, Operation operation, String id, Object document) {
+        TransactionRunner.afterCommit(() -> {
+            collectionVersions.changed(collection);
+            if (localWrites && watches(collection)) {
+                publish(collection, operation, id, document);
+            }
+        });
+    }
+
+    public void publish(String collection, Operation operation, String id, Object document) {
+        collectionVersions.changed(collection);
+        lock.lock();
+        try {
+            long seq = ++latest;
+            ring[(int) (seq % ring.length)] = new ChangeEvent(seq, collection, operation, id, document, Instant.now());
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long latest() {
+        lock.lock();
+        try {
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The events after {@code seq}, waiting up to {@code wait} for one if there are none yet.
+     *
+     * @return the events in order, empty if none arrived in time, or null if some of them have
+     *         already been overwritten and the reader has to resync
+     */
+    public List<ChangeEvent> after(long seq, Duration wait) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = wait.toNanos();
+            while (latest <= seq && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (seq > latest || latest - seq > ring.length) {
+                return null;
+            }
+            List<ChangeEvent> events = new ArrayList<>((int) (latest - seq));
+            for (long next = seq + 1; next <= latest; next++) {
+                events.add(ring[(int) (next % ring.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The SSE id of an event. */
+    public String eventId(long seq) {
+        return bootId + "-" + seq;
+    }
+
+    /** The position a Last-Event-ID points at, or null if it was not issued by this run. */
+    public Long seqOf(String eventId) {
+        if (eventId == null || !eventId.startsWith(bootId + "-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(bootId.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean localWrites() {
+        return localWrites;
+    }
+
+    /** Used when the change stream cannot be opened: publish this instance's writes after all. */
+    public void fallBackToLocal() {
+        localWrites = true;
+    }
+}
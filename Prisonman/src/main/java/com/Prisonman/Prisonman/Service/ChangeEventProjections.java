@@ -0,0 +1,181 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.ChangeEvent;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.Staff;
+import com.Prisonman.Prisonman.Model.Visitor;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies changes seen on the change stream to the in-memory projections, off the request path:
+ * lookup cache entries, cell occupancy, the visit slot index, the duty roster and the dashboard
+ * totals. This is what carries writes made by other instances or in the shell into them within
+ * about prisonman.events.projection-delay, rather than at their next TTL or scheduled reload.
+ *
+ * The stream also echoes this instance's own writes; applying them again is harmless, as every
+ * step here is idempotent. Cell block totals are left to the guarded deltas and the periodic
+ * reconciliation: recomputing a block while an admission's delta is still in flight would count
+ * that admission twice.
+ */
+@Service
+@ConditionalOnProperty(name = "prisonman.events.source", havingValue = ChangeEventBus.CHANGE_STREAMS)
+public class ChangeEventProjections {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventProjections.class);
+
+    private static final Duration IDLE_WAIT = Duration.ofSeconds(30);
+
+    private final ChangeEventBus changeEvents;
+    private final LookupCache lookupCache;
+    private final VisitScheduleService visitScheduleService;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final OccupancyService occupancy;
+    private final StaffRosterService staffRosterService;
+    private final Duration delay;
+
+    private volatile boolean running;
+    private Thread reader;
+
+    public ChangeEventProjections(ChangeEventBus changeEvents, LookupCache lookupCache,
+                                  VisitScheduleService visitScheduleService,
+                                  DashboardSummaryService dashboardSummaryService,
+                                  OccupancyService occupancy, StaffRosterService staffRosterService,
+                                  @Value("${prisonman.events.projection-delay:PT1S}") Duration delay) {
+        this.changeEvents = changeEvents;
+        this.lookupCache = lookupCache;
+        this.visitScheduleService = visitScheduleService;
+        this.dashboardSummaryService = dashboardSummaryService;
+        this.occupancy = occupancy;
+        this.staffRosterService = staffRosterService;
+        this.delay = delay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        reader = Thread.ofVirtual().name("change-event-projections").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    private void run() {
+        long position = changeEvents.latest();
+        while (running) {
+            try {
+                List<ChangeEvent> events = changeEvents.after(position, IDLE_WAIT);
+                if (events != null && !events.isEmpty()) {
+                    // Let a burst settle so the dashboard is reloaded once for all of it
+                    Thread.sleep(delay);
+                    List<ChangeEvent> more = changeEvents.after(events.getLast().seq(), Duration.ZERO);
+                    if (more == null) {
+                        events = null;
+                    } else {
+                        events = new ArrayList<>(events);
+                        events.addAll(more);
+                    }
+                }
+
+                // After a fallback to local events there is nothing to catch up on: they are our own writes
+                boolean apply = !changeEvents.localWrites();
+                if (events == null) {
+                    position = changeEvents.latest();
+                    if (apply) {
+                        resync();
+                    }
+                } else if (!events.isEmpty()) {
+                    position = events.getLast().seq();
+                    if (apply) {
+                        apply(events);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not apply change events to the projections", e);
+            }
+        }
+    }
+
+    private void apply(List<ChangeEvent> events) {
+        boolean dashboard = false;
+        for (ChangeEvent event : events) {
+            switch (event.collection()) {
+                case "inmates" -> {
+                    if (event.document() instanceof Inmate inmate) {
+                        lookupCache.evictInmate(inmate.getInmateId());
+                    } else {
+                        lookupCache.evictInmates();
+                    }
+                }
+                case "cells" -> {
+                    if (event.document() instanceof Cell cell) {
+                        lookupCache.evictCell(cell);
+                        occupancy.refresh(cell);
+                    } else {
+                        lookupCache.evictCells();
+                        occupancy.invalidate();
+                    }
+                }
+                case "cell_blocks" -> {
+                    lookupCache.evictCellBlocks();
+                    dashboard = true;
+                }
+                case "staff" -> {
+                    if (event.document() instanceof Staff staff) {
+                        staffRosterService.put(staff);
+                    } else if (event.operation() == Operation.DELETED) {
+                        staffRosterService.remove(event.id());
+                    } else {
+                        staffRosterService.invalidate();
+                    }
+                    dashboard = true;
+                }
+                case "visitors" -> {
+                    if (event.document() instanceof Visitor visitor) {
+                        visitScheduleService.restore(visitor);
+                    } else if (event.operation() == Operation.DELETED) {
+                        visitScheduleService.release(event.id());
+                    } else {
+                        visitScheduleService.invalidate();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (dashboard) {
+            dashboardSummaryService.reload();
+        }
+    }
+
+    // Events were missed: start every projection over
+    private void resync() {
+        log.warn("Change event projections fell behind; reloading them");
+        lookupCache.evictInmates();
+        lookupCache.evictCells();
+        lookupCache.evictCellBlocks();
+        occupancy.invalidate();
+        visitScheduleService.invalidate();
+        staffRosterService.invalidate();
+        dashboardSummaryService.reload();
+    }
+}
@@ -0,0 +1,175 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes every change to the watched collections, whoever made it, from one change stream on
+ * the database. Documents are looked up after updates, so events carry the whole document, read
+ * into its entity class.
+ *
+ * Change streams need a replica set (a single-node one will do). If the stream cannot be opened
+ * at all, the bus falls back to this instance's own writes. Once it has been open, failures are
+ * retried from the last resume token, so no change is lost; if the server no longer has the
+ * history to resume from, every collection is announced as RELOADED.
+ */
+@Service
+@ConditionalOnProperty(name = "prisonman.events.source", havingValue = ChangeEventBus.CHANGE_STREAMS)
+public class ChangeStreamWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int HISTORY_LOST = 286;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventBus changeEvents;
+    private final Map<String, Class<?>> entityTypes = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread watcher;
+
+    public ChangeStreamWatcher(MongoTemplate mongoTemplate, ChangeEventBus changeEvents) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeEvents = changeEvents;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (MongoPersistentEntity<?> entity : mongoTemplate.getConverter().getMappingContext().getPersistentEntities()) {
+            if (changeEvents.watches(entity.getCollection())) {
+                entityTypes.put(entity.getCollection(), entity.getType());
+            }
+        }
+        running = true;
+        watcher = Thread.ofVirtual().name("change-stream-watcher").start(this::watch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private void watch() {
+        BsonDocument resumeToken = null;
+        boolean opened = false;
+        long backoffMs = 1000;
+
+        while (running) {
+            ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                    .watch(List.of(Aggregates.match(Filters.in("ns.coll", changeEvents.collections()))))
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                if (!opened) {
+                    log.info("Watching {} for change events", changeEvents.collections());
+                    opened = true;
+                }
+                backoffMs = 1000;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    // Resume tokens also advance while idle, so a resume does not rescan quiet history
+                    resumeToken = change != null ? change.getResumeToken() : cursor.getResumeToken();
+                    if (change != null && !publish(change)) {
+                        // The stream was invalidated (database dropped): start a fresh one
+                        resumeToken = null;
+                        break;
+                    }
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                if (!opened || (e instanceof MongoCommandException && e.getCode() == NOT_A_REPLICA_SET)) {
+                    log.warn("Change streams are not available ({}); publishing this instance's own writes instead",
+                            e.getMessage());
+                    changeEvents.fallBackToLocal();
+                    return;
+                }
+                if (e.getCode() == HISTORY_LOST) {
+                    log.warn("Change stream history is gone; announcing every collection as reloaded");
+                    resumeToken = null;
+                    changeEvents.collections().forEach(this::reloaded);
+                    continue;
+                }
+                log.warn("Change stream failed, resuming in {} ms: {}", backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /** @return false when the stream has been invalidated */
+    private boolean publish(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() == null ? null : change.getNamespace().getCollectionName();
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> changeEvents.publish(collection, Operation.CHANGED,
+                    idOf(change.getDocumentKey()), read(collection, change.getFullDocument()));
+            case DELETE -> changeEvents.publish(collection, Operation.DELETED, idOf(change.getDocumentKey()), null);
+            case DROP, RENAME -> reloaded(collection);
+            case DROP_DATABASE -> changeEvents.collections().forEach(this::reloaded);
+            case INVALIDATE -> {
+                return false;
+            }
+            default -> {
+            }
+        }
+        return true;
+    }
+
+    private void reloaded(String collection) {
+        changeEvents.publish(collection, Operation.RELOADED, null, null);
+    }
+
+    private Object read(String collection, Document document) {
+        Class<?> type = entityTypes.get(collection);
+        return document == null || type == null ? document : mongoTemplate.getConverter().read(type, document);
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        BsonValue id = documentKey == null ? null : documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.Prisonman.Prisonman.Service;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version number and last-modified time per collection, bumped by every write the change
+ * event bus hears about, so list endpoints can answer conditional GETs with 304 before touching
+ * the database.
+ *
+ * The bus only hears about writes this instance makes (or, with change streams, sees). So that
+ * writes made elsewhere in local mode are not hidden for good, every version is also bumped each
+ * prisonman.http.validator-max-age: clients then get at most one full response per interval for
+ * unchanged data.
+ *
+ * The conditional headers are matched here rather than by WebRequest.checkNotModified, so the
+ * same controllers answer 304s under WebFlux (the reactive profile) too: they take the query
+ * parameters as {@code @RequestParam MultiValueMap} and the headers as {@code @RequestHeader HttpHeaders}.
+ */
+@Service
+public class CollectionVersions {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final Instant bootTime = Instant.now();
+
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    private volatile Expiry expiry = new Expiry(0, bootTime);
+
+    public void changed(String collection) {
+        versions.put(collection, new Version(counter.incrementAndGet(), Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${prisonman.http.validator-max-age:PT1M}",
+            initialDelayString = "${prisonman.http.validator-max-age:PT1M}")
+    public void expire() {
+        expiry = new Expiry(expiry.generation() + 1, Instant.now());
+    }
+
+    /**
+     * A key that changes whenever the collection does (or validator-max-age has passed), for
+     * caching results derived from it.
+     */
+    public String stamp(String collection) {
+        return expiry.generation() + "-" + versions.getOrDefault(collection, new Version(0, bootTime)).counter();
+    }
+
+    /**
+     * The validators of a response built from {@code collection}. The ETag also covers the
+     * request's query {@code params} and any {@code variant} (e.g. the current day for views that
+     * roll over), so differently filtered responses never share one.
+     */
+    public Validators validators(String collection, MultiValueMap<String, String> params, Object... variant) {
+        // Read before the data, so a write landing during the query only costs a refetch
+        Version version = versions.getOrDefault(collection, new Version(0, bootTime));
+        Expiry expiry = this.expiry;
+
+        StringBuilder key = new StringBuilder();
+        new TreeMap<>(params).forEach((name, values) ->
+                key.append(name).append('=').append(String.join(",", values)).append('&'));
+        for (Object part : variant) {
+            key.append(part).append('&');
+        }
+
+        String etag = "W/\"" + bootId + "-" + expiry.generation() + "-" + version.counter() + "-"
+                + Integer.toHexString(key.toString().hashCode()) + "\"";
+        Instant modified = version.modified().isAfter(expiry.at()) ? version.modified() : expiry.at();
+        return new Validators(etag, modified.toEpochMilli());
+    }
+
+    /** Whether If-None-Match lists {@code etag}, compared weakly as GET requires. */
+    public static boolean matches(HttpHeaders request, String etag) {
+        String wanted = opaque(etag);
+        for (String tag : request.getIfNoneMatch()) {
+            if (tag.equals("*") || opaque(tag).equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private record Version(long counter, Instant modified) {
+    }
+
+    private record Expiry(long generation, Instant at) {
+    }
+
+    public record Validators(String etag, long lastModified) {
+
+        /**
+         * Whether the client's copy is current. If-None-Match decides when sent; If-Modified-Since
+         * is only looked at without it, to the second as HTTP dates go.
+         */
+        public boolean notModified(HttpHeaders request) {
+            List<String> ifNoneMatch = request.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                return matches(request, etag);
+            }
+            long ifModifiedSince = request.getIfModifiedSince();
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+
+        /** The 304 for a client whose copy is current, carrying the same validators. */
+        public <T> ResponseEntity<T> notModifiedResponse() {
+            return apply(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+
+        /**
+         * Adds the validators to a response. no-cache makes browsers revalidate every time
+         * instead of guessing a freshness lifetime from Last-Modified.
+         */
+        public <T> ResponseEntity<T> apply(ResponseEntity<T> response) {
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response.getBody());
+        }
+    }
+}
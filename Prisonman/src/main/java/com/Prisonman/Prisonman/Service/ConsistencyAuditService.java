@@ -0,0 +1,235 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.AuditIssue;
+import com.Prisonman.Prisonman.Model.AuditIssue.Kind;
+import com.Prisonman.Prisonman.Model.AuditReport;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Checks that the cells' slot lists and occupancy, the CellBlock totals and the inmates' block and
+ * cellNumber agree, and optionally repairs what does not.
+ *
+ * The facility is split by block. Each block is one task that streams the block's cells and
+ * inmates (both served by indexes on block) and cross-checks them in a {@link BlockAudit}; up to
+ * prisonman.audit.parallelism blocks run at once, so memory is bounded by the largest blocks
+ * rather than the facility. Once all blocks are in, slots for inmates no block claimed are looked
+ * up together: the inmate was moved to another block, or no longer exists.
+ *
+ * Repairs rewrite each wrong cell's slot list with a guarded update on its version, so a cell an
+ * admission or release touched during the audit is skipped rather than overwritten. The block
+ * totals are then recomputed from the cells, and the occupancy engine reloaded. Inmates whose
+ * cell does not exist are only reported; where they belong is for a person to decide.
+ */
+@Service
+public class ConsistencyAuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsistencyAuditService.class);
+
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final CellRepository cellRepository;
+    private final CellBlockStatsService cellBlockStatsService;
+    private final OccupancyService occupancy;
+    private final LookupCache lookupCache;
+    private final int parallelism;
+    private final int batchSize;
+    private final int maxReportedIssues;
+
+    public ConsistencyAuditService(MongoTemplate mongoTemplate, CellRepository cellRepository,
+                                   CellBlockStatsService cellBlockStatsService, OccupancyService occupancy,
+                                   LookupCache lookupCache,
+                                   @Value("${prisonman.audit.parallelism:8}") int parallelism,
+                                   @Value("${prisonman.audit.batch-size:5000}") int batchSize,
+                                   @Value("${prisonman.audit.max-reported-issues:1000}") int maxReportedIssues) {
+        this.mongoTemplate = mongoTemplate;
+        this.cellRepository = cellRepository;
+        this.cellBlockStatsService = cellBlockStatsService;
+        this.occupancy = occupancy;
+        this.lookupCache = lookupCache;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxReportedIssues = maxReportedIssues;
+    }
+
+    public AuditReport audit(boolean repair) {
+        long start = System.nanoTime();
+        // Deltas still waiting to be written would show up as drifted totals
+        cellBlockStatsService.flush();
+
+        Map<String, CellBlock> storedBlocks = new HashMap<>();
+        for (CellBlock block : mongoTemplate.findAll(CellBlock.class)) {
+            storedBlocks.put(block.getName(), block);
+        }
+        // A null partition picks up cells and inmates without a block
+        Set<String> blocks = new LinkedHashSet<>(storedBlocks.keySet());
+        blocks.addAll(mongoTemplate.findDistinct(new Query(), "block", Cell.class, String.class));
+        blocks.addAll(mongoTemplate.findDistinct(new Query(), "block", Inmate.class, String.class));
+        blocks.add(null);
+
+        List<BlockAudit.Result> results = auditBlocks(blocks, storedBlocks);
+
+        Map<Kind, Long> counts = new EnumMap<>(Kind.class);
+        List<AuditIssue> issues = new ArrayList<>();
+        List<BlockAudit.CellFix> fixes = new ArrayList<>();
+        List<BlockAudit.Stray> strays = new ArrayList<>();
+        int auditedBlocks = 0;
+        long cells = 0;
+        long inmates = 0;
+        for (BlockAudit.Result result : results) {
+            if (result.block() != null) {
+                auditedBlocks++;
+            }
+            cells += result.cells();
+            inmates += result.inmates();
+            result.issues().forEach(issue -> report(issue, counts, issues));
+            fixes.addAll(result.fixes());
+            strays.addAll(result.strays());
+        }
+        resolveStrays(strays).forEach(issue -> report(issue, counts, issues));
+
+        int cellsRepaired = 0;
+        int cellsSkipped = 0;
+        int blocksRepaired = 0;
+        if (repair) {
+            for (BlockAudit.CellFix fix : fixes) {
+                if (cellRepository.replaceSlots(fix.cellId(), fix.version(), fix.inmates())) {
+                    cellsRepaired++;
+                } else {
+                    cellsSkipped++;
+                }
+            }
+            if (cellsRepaired > 0) {
+                lookupCache.evictCells();
+                occupancy.invalidate();
+            }
+            blocksRepaired = cellBlockStatsService.reconcileAll();
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Audited {} cell(s) and {} inmate(s) in {} block(s) in {} ms: {} issue(s){}", cells, inmates,
+                auditedBlocks, elapsedMs, counts.values().stream().mapToLong(Long::longValue).sum(),
+                repair ? ", " + cellsRepaired + " cell(s) and " + blocksRepaired + " block(s) repaired" : "");
+        return new AuditReport(auditedBlocks, cells, inmates, counts, issues, cellsRepaired, cellsSkipped,
+                blocksRepaired, elapsedMs);
+    }
+
+    // One task per block, at most `parallelism` reading at once
+    private List<BlockAudit.Result> auditBlocks(Set<String> blocks, Map<String, CellBlock> storedBlocks) {
+        Semaphore running = new Semaphore(parallelism);
+        List<BlockAudit.Result> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<BlockAudit.Result>> pending = new ArrayList<>();
+            for (String block : blocks) {
+                pending.add(pool.submit(() -> {
+                    running.acquireUninterruptibly();
+                    try {
+                        return auditBlock(block, storedBlocks.get(block));
+                    } finally {
+                        running.release();
+                    }
+                }));
+            }
+            for (Future<BlockAudit.Result> result : pending) {
+                results.add(await(result));
+            }
+        }
+        return results;
+    }
+
+    private BlockAudit.Result auditBlock(String block, CellBlock stored) {
+        BlockAudit audit = new BlockAudit(block);
+
+        Query cells = query(where("block").is(block)).cursorBatchSize(batchSize);
+        cells.fields().include("block", "cellNumber", "capacity", "currentOccupancy", "inmates", "version");
+        try (Stream<Cell> stream = mongoTemplate.stream(cells, Cell.class)) {
+            stream.forEach(audit::addCell);
+        }
+
+        // Raw documents: mapping a million inmates onto the entity would cost more than reading them
+        Query inmates = query(where("block").is(block)).cursorBatchSize(batchSize);
+        inmates.fields().include("inmateId", "cellNumber").exclude("_id");
+        try (Stream<Document> stream = mongoTemplate.stream(inmates, Document.class, "inmates")) {
+            stream.forEach(inmate -> audit.addInmate(inmate.getString("inmateId"), inmate.getString("cellNumber")));
+        }
+
+        return audit.check(stored);
+    }
+
+    // Slots for inmates their block does not have: moved elsewhere, or gone
+    private List<AuditIssue> resolveStrays(List<BlockAudit.Stray> strays) {
+        List<AuditIssue> issues = new ArrayList<>();
+        for (int from = 0; from < strays.size(); from += LOOKUP_CHUNK) {
+            List<BlockAudit.Stray> chunk = strays.subList(from, Math.min(from + LOOKUP_CHUNK, strays.size()));
+            Set<String> inmateIds = new HashSet<>();
+            chunk.forEach(stray -> inmateIds.add(stray.inmateId()));
+
+            Query located = query(where("inmateId").in(inmateIds));
+            located.fields().include("inmateId", "block", "cellNumber").exclude("_id");
+            Map<String, Document> locations = new HashMap<>();
+            for (Document inmate : mongoTemplate.find(located, Document.class, "inmates")) {
+                locations.putIfAbsent(inmate.getString("inmateId"), inmate);
+            }
+
+            for (BlockAudit.Stray stray : chunk) {
+                Document location = locations.get(stray.inmateId());
+                issues.add(location == null
+                        ? new AuditIssue(Kind.ORPHAN_SLOT, stray.block(), stray.cellNumber(), stray.inmateId(),
+                                "No such inmate.")
+                        : new AuditIssue(Kind.STALE_SLOT, stray.block(), stray.cellNumber(), stray.inmateId(),
+                                "The inmate is recorded in block " + location.getString("block")
+                                        + ", cell " + location.getString("cellNumber") + "."));
+            }
+        }
+        return issues;
+    }
+
+    private void report(AuditIssue issue, Map<Kind, Long> counts, List<AuditIssue> issues) {
+        counts.merge(issue.kind(), 1L, Long::sum);
+        if (issues.size() < maxReportedIssues) {
+            issues.add(issue);
+        }
+    }
+
+    private static BlockAudit.Result await(Future<BlockAudit.Result> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Audit interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Audit failed", e.getCause());
+        }
+    }
+}
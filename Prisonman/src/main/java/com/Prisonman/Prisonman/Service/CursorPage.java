@@ -0,0 +1,30 @@
+package com.Prisonman.Prisonman.Service;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param items      the documents, or maps holding only the requested fields
+ * @param nextCursor pass as {@code after} to get the next page; null on the last page
+ * @param total      number of matches across all pages, only when requested
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, Long total) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /** The body stays a plain JSON array; paging metadata travels in headers. */
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        if (total != null) {
+            response.header(TOTAL_COUNT_HEADER, Long.toString(total));
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,244 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ActivityBucket;
+import com.Prisonman.Prisonman.Model.ActivityBucket.Granularity;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.ChangeEvent;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Model.DashboardSummary;
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.Staff;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps the dashboard totals in memory so /api/dashboard-summary never touches the database.
+ *
+ * The totals are loaded once, then moved by deltas from the write paths that affect them
+ * (admissions/releases, cell block edits, staff going on or off duty, visits booked for today).
+ * Active staff are the staff records whose status is On Duty. Daily visitors is today's day
+ * bucket from the activity store, so the snapshot is reloaded when the date changes. A scheduled
+ * reload from the database corrects anything the deltas missed, e.g. edits made outside the API.
+ * Every change produces a new immutable snapshot with its own ETag, which is also pushed to
+ * /api/events clients.
+ */
+@Service
+public class DashboardSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardSummaryService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventBus changeEvents;
+    private final ZoneId zone;
+
+    // Distinguishes ETags handed out by different runs of the service
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    // Guards the snapshot swap and the applied deltas. Here and in the other in-memory services a
+    // ReentrantLock stands in for synchronized, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    // Every delta applied since startup (guarded by lock), so a reload can add the ones that landed while it read
+    private Deltas applied = Deltas.NONE;
+
+    public DashboardSummaryService(MongoTemplate mongoTemplate, ChangeEventBus changeEvents,
+                                   @Value("${prisonman.activity.zone:UTC}") ZoneId zone) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeEvents = changeEvents;
+        this.zone = zone;
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || !current.day().equals(LocalDate.now(zone))) {
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /** Inmates admitted (positive) or released (negative) in existing cells. */
+    public void onOccupancyChange(int delta) {
+        apply(delta, 0, 0, -delta);
+    }
+
+    /** A cell block was created, edited or deleted; pass null for the missing side. */
+    public void onCellBlockChange(CellBlock before, CellBlock after) {
+        int current = currentOf(after) - currentOf(before);
+        int free = freeOf(after) - freeOf(before);
+        apply(current, 0, 0, free);
+    }
+
+    /** Block totals were recomputed from the cells. */
+    public void onCellBlockTotalsChange(int currentBefore, int capacityBefore, int currentAfter, int capacityAfter) {
+        apply(currentAfter - currentBefore, 0, 0,
+                (capacityAfter - currentAfter) - (capacityBefore - currentBefore));
+    }
+
+    /** A staff member was added, edited or deleted; pass null for the missing side. */
+    public void onStaffChange(Staff before, Staff after) {
+        apply(0, onDutyOf(after) - onDutyOf(before), 0, 0);
+    }
+
+    /** Visits were added to (positive) or removed from (negative) the given day. */
+    public void onVisitsChange(LocalDate day, int delta) {
+        Snapshot current = snapshot;
+        // Only today's: a reload rolling over to a new day would replay yesterday's otherwise
+        if (day.equals(LocalDate.now(zone)) && (current == null || current.day().equals(day))) {
+            apply(0, 0, delta, 0);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${prisonman.dashboard.reconcile-interval:PT1M}",
+            initialDelayString = "${prisonman.dashboard.reconcile-interval:PT1M}")
+    public void reconcile() {
+        Snapshot before = snapshot;
+        reload();
+        if (before != null && !before.sameTotals(snapshot)) {
+            log.info("Dashboard summary drifted from the database and was reloaded");
+        }
+    }
+
+    /**
+     * Recomputes the totals from the database, summed there rather than over every document here.
+     *
+     * The reads run outside the lock, so deltas keep flowing meanwhile. Those applied while the
+     * reads ran are added on top of what was read: the reads may have missed their writes. A write
+     * that was committed, but whose delta had not been applied when the reads began, is counted
+     * twice; the next reload, a reconcile-interval later, corrects it.
+     */
+    public void reload() {
+        Deltas before;
+        lock.lock();
+        try {
+            before = applied;
+        } finally {
+            lock.unlock();
+        }
+
+        Document blocks = total(CellBlock.class, newAggregation(
+                group().sum("current").as("current").sum("capacity").as("capacity")));
+        int totalInmates = intOf(blocks, "current");
+        int availableCells = intOf(blocks, "capacity") - totalInmates;
+
+        int activeStaff = (int) mongoTemplate.count(query(where("status").is(DutyStatus.ON_DUTY)), Staff.class);
+        LocalDate today = LocalDate.now(zone);
+        ActivityBucket bucket = mongoTemplate.findById(
+                Granularity.DAY.id(today.atStartOfDay(zone)), ActivityBucket.class);
+        int dailyVisitors = bucket == null ? 0 : (int) bucket.getVisits();
+
+        lock.lock();
+        try {
+            Deltas since = applied.minus(before);
+            publish(today, totalInmates + since.inmates(), activeStaff + since.staff(),
+                    dailyVisitors + since.visitors(), availableCells + since.available());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(int inmates, int staff, int visitors, int available) {
+        if (inmates == 0 && staff == 0 && visitors == 0 && available == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            applied = applied.plus(new Deltas(inmates, staff, visitors, available));
+            Snapshot current = snapshot;
+            if (current == null) {
+                // Not loaded yet: the load in progress replays it, a later one reads it
+                return;
+            }
+            DashboardSummary s = current.summary();
+            publish(current.day(), s.getTotalInmates() + inmates, s.getActiveStaff() + staff,
+                    s.getDailyVisitors() + visitors, s.getAvailableCells() + available);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(LocalDate day, int totalInmates, int activeStaff, int dailyVisitors, int availableCells) {
+        Snapshot current = snapshot;
+        if (current != null && current.day().equals(day) && current.hasTotals(totalInmates, activeStaff, dailyVisitors, availableCells)) {
+            return;
+        }
+        long version = current == null ? 1 : current.version() + 1;
+        Snapshot next = new Snapshot(
+                new DashboardSummary(totalInmates, activeStaff, dailyVisitors, availableCells),
+                day,
+                version,
+                "\"" + bootId + "-" + version + "\"");
+        snapshot = next;
+        changeEvents.publish(ChangeEvent.DASHBOARD, Operation.CHANGED, next.etag(), next.summary());
+    }
+
+    // The single row of an ungrouped total, or an empty one for an empty collection
+    private Document total(Class<?> type, Aggregation aggregation) {
+        Document row = mongoTemplate.aggregate(aggregation, type, Document.class).getUniqueMappedResult();
+        return row == null ? new Document() : row;
+    }
+
+    private static int intOf(Document row, String field) {
+        Number value = row.get(field, Number.class);
+        return value == null ? 0 : value.intValue();
+    }
+
+    private static int onDutyOf(Staff staff) {
+        return staff != null && staff.getStatus() == DutyStatus.ON_DUTY ? 1 : 0;
+    }
+
+    private static int currentOf(CellBlock block) {
+        return block == null ? 0 : block.getCurrent();
+    }
+
+    private static int freeOf(CellBlock block) {
+        return block == null ? 0 : block.getCapacity() - block.getCurrent();
+    }
+
+    private record Deltas(int inmates, int staff, int visitors, int available) {
+
+        static final Deltas NONE = new Deltas(0, 0, 0, 0);
+
+        Deltas plus(Deltas other) {
+            return new Deltas(inmates + other.inmates, staff + other.staff, visitors + other.visitors,
+                    available + other.available);
+        }
+
+        Deltas minus(Deltas other) {
+            return new Deltas(inmates - other.inmates, staff - other.staff, visitors - other.visitors,
+                    available - other.available);
+        }
+    }
+
+    public record Snapshot(DashboardSummary summary, LocalDate day, long version, String etag) {
+
+        boolean hasTotals(int totalInmates, int activeStaff, int dailyVisitors, int availableCells) {
+            return summary.getTotalInmates() == totalInmates
+                    && summary.getActiveStaff() == activeStaff
+                    && summary.getDailyVisitors() == dailyVisitors
+                    && summary.getAvailableCells() == availableCells;
+        }
+
+        boolean sameTotals(Snapshot other) {
+            DashboardSummary o = other.summary();
+            return hasTotals(o.getTotalInmates(), o.getActiveStaff(), o.getDailyVisitors(), o.getAvailableCells());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.DutyCount;
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.StaffShift;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory roster of the staff on duty, by department and shift.
+ *
+ * Only staff whose status is On Duty are held: each one's id sits in the set for its department
+ * and shift, so "who is on duty in department X" is one map lookup, and the count for a
+ * department and shift is that set's size. Staff are taken on as stored, whatever they were
+ * before: putting the same staff member twice, or removing one the roster does not have, changes
+ * nothing. That makes it safe to apply a write both from the request and from its change event.
+ */
+public class DutyRoster {
+
+    private record Entry(String department, StaffShift shift) {
+    }
+
+    private static final Comparator<DutyCount> ORDER = Comparator
+            .comparing(DutyCount::department, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(DutyCount::shift, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    // Guards both maps below, which a write updates together: onDuty and the department sets
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Entry> onDuty = new HashMap<>();
+    // HashMaps rather than EnumMaps: staff without a department or shift are on duty all the same
+    private final Map<String, Map<StaffShift, Set<String>>> byDepartment = new HashMap<>();
+
+    /**
+     * Takes on a staff member as stored.
+     *
+     * @return the change in the number of staff on duty: -1, 0 or 1
+     */
+    public int put(String staffId, String department, StaffShift shift, DutyStatus status) {
+        lock.lock();
+        try {
+            Entry before = onDuty.get(staffId);
+            Entry after = status == DutyStatus.ON_DUTY ? new Entry(department, shift) : null;
+            if (before != null && before.equals(after)) {
+                return 0;
+            }
+            if (before != null) {
+                unlink(staffId, before);
+            }
+            if (after != null) {
+                onDuty.put(staffId, after);
+                byDepartment.computeIfAbsent(department, k -> new HashMap<>())
+                        .computeIfAbsent(shift, k -> new TreeSet<>())
+                        .add(staffId);
+            }
+            return (after == null ? 0 : 1) - (before == null ? 0 : 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return -1 if the staff member was on duty, else 0 */
+    public int remove(String staffId) {
+        lock.lock();
+        try {
+            Entry before = onDuty.get(staffId);
+            if (before == null) {
+                return 0;
+            }
+            unlink(staffId, before);
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Staff on duty in the department and shift (any shift when null), by id. */
+    public List<String> onDuty(String department, StaffShift shift) {
+        lock.lock();
+        try {
+            Map<StaffShift, Set<String>> shifts = byDepartment.get(department);
+            if (shifts == null) {
+                return List.of();
+            }
+            if (shift != null) {
+                return List.copyOf(shifts.getOrDefault(shift, Set.of()));
+            }
+            List<String> ids = new ArrayList<>();
+            shifts.values().forEach(ids::addAll);
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int onDuty() {
+        lock.lock();
+        try {
+            return onDuty.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Staff on duty per department and shift, by department then shift; empty groups are left out. */
+    public List<DutyCount> counts() {
+        List<DutyCount> counts = new ArrayList<>();
+        lock.lock();
+        try {
+            byDepartment.forEach((department, shifts) -> shifts.forEach(
+                    (shift, ids) -> counts.add(new DutyCount(department, shift, ids.size()))));
+        } finally {
+            lock.unlock();
+        }
+        counts.sort(ORDER);
+        return counts;
+    }
+
+    private void unlink(String staffId, Entry entry) {
+        onDuty.remove(staffId);
+        Map<StaffShift, Set<String>> shifts = byDepartment.get(entry.department());
+        Set<String> ids = shifts.get(entry.shift());
+        ids.remove(staffId);
+        if (ids.isEmpty()) {
+            shifts.remove(entry.shift());
+            if (shifts.isEmpty()) {
+                byDepartment.remove(entry.department());
+            }
+        }
+    }
+}
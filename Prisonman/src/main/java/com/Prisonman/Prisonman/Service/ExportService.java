@@ -0,0 +1,205 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.Staff;
+import com.Prisonman.Prisonman.Model.Visitor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes whole collections out as NDJSON or CSV straight from a Mongo cursor.
+ *
+ * Only one cursor batch is held at a time and every row is written as soon as it is read; when
+ * the client reads slowly the blocking socket write stalls the loop, so the cursor is not drained
+ * any faster than the response can be delivered. The reactive profile streams the same rows off
+ * the reactive driver instead (ReactiveExportHandler), using {@link #csvLayout} and {@link #query}.
+ */
+@Service
+public class ExportService {
+
+    public static final MediaType NDJSON = MediaType.APPLICATION_NDJSON;
+    public static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private static final String FORMULA_START = "=+-@\t\r";
+
+    private static final Map<String, Class<?>> EXPORTABLE = Map.of(
+            "inmates", Inmate.class,
+            "staff", Staff.class,
+            "visitors", Visitor.class,
+            "cells", Cell.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int flushEvery;
+
+    public ExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                         @Value("${prisonman.export.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        // The servlet stream belongs to the container; don't let Jackson close it
+        this.objectMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.batchSize = batchSize;
+        this.flushEvery = batchSize;
+    }
+
+    /** The model type exported as {@code collection}; 404 for anything else. */
+    public Class<?> exportable(String collection) {
+        Class<?> type = EXPORTABLE.get(collection);
+        if (type == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown export: " + collection);
+        }
+        return type;
+    }
+
+    /** The content type of an export in {@code format}; 400 for anything but ndjson and csv. */
+    public static MediaType contentType(String format) {
+        return switch (format) {
+            case "ndjson" -> NDJSON;
+            case "csv" -> CSV;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        };
+    }
+
+    public void writeNdjson(Class<?> type, OutputStream out) throws IOException {
+        int written = 0;
+        try (Stream<?> rows = stream(type);
+             SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+                writer.write(it.next());
+                if (++written % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        if (written > 0) {
+            out.write('\n');
+        }
+    }
+
+    public void writeCsv(Class<?> type, OutputStream out) throws IOException {
+        CsvLayout layout = csvLayout(type);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(layout.header());
+
+        try (Stream<?> rows = stream(type)) {
+            int written = 0;
+            for (Iterator<?> it = rows.iterator(); it.hasNext(); ) {
+                writer.write(layout.row(it.next()));
+                if (++written % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /** The CSV columns of {@code type}: every mapped property but the version. */
+    public CsvLayout csvLayout(Class<?> type) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        List<MongoPersistentProperty> columns = new ArrayList<>();
+        entity.doWithProperties((MongoPersistentProperty property) -> {
+            if (!property.isVersionProperty()) {
+                columns.add(property);
+            }
+        });
+        return new CsvLayout(entity, columns);
+    }
+
+    /** All documents in _id order, fetched a cursor batch at a time. */
+    public Query query() {
+        return new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+    }
+
+    private Stream<?> stream(Class<?> type) {
+        return mongoTemplate.stream(query(), type);
+    }
+
+    // RFC 4180: quote values containing separators, quotes or line breaks; lists become a;b;c.
+    // Text a spreadsheet would run as a formula (=, +, -, @, or a leading tab or CR) gets a ' in front.
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text;
+        if (value instanceof Collection<?> collection) {
+            StringBuilder joined = new StringBuilder();
+            for (Object item : collection) {
+                if (!joined.isEmpty()) {
+                    joined.append(';');
+                }
+                joined.append(item);
+            }
+            text = joined.toString();
+        } else {
+            text = value.toString();
+        }
+        if (!(value instanceof Number) && !text.isEmpty() && FORMULA_START.indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /** Turns documents into CSV lines, each ending in CRLF. */
+    public static final class CsvLayout {
+
+        private final MongoPersistentEntity<?> entity;
+        private final List<MongoPersistentProperty> columns;
+
+        private CsvLayout(MongoPersistentEntity<?> entity, List<MongoPersistentProperty> columns) {
+            this.entity = entity;
+            this.columns = columns;
+        }
+
+        public String header() {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(csvValue(columns.get(i).getName()));
+            }
+            return line.append("\r\n").toString();
+        }
+
+        public String row(Object document) {
+            PersistentPropertyAccessor<?> accessor = entity.getPropertyAccessor(document);
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(csvValue(accessor.getProperty(columns.get(i))));
+            }
+            return line.append("\r\n").toString();
+        }
+    }
+}
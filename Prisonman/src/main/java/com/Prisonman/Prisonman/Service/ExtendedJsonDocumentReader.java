@@ -0,0 +1,106 @@
+package com.Prisonman.Prisonman.Service;
+
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads Extended JSON documents ({"$oid": ...}, {"$date": ...} and so on) one at a time, so an
+ * export of any size is never held in memory as a whole.
+ *
+ * Accepts both mongoexport layouts: a single JSON array (--jsonArray) and one document per line,
+ * which is also what GET /api/export/{collection}?format=ndjson produces.
+ */
+public class ExtendedJsonDocumentReader implements Iterator<Document>, Closeable {
+
+    private static final DocumentCodec CODEC = new DocumentCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final BufferedReader reader;
+    // Set in array mode; in line mode documents are parsed one line at a time
+    private final JsonReader arrayReader;
+    private Document next;
+    private boolean done;
+
+    public ExtendedJsonDocumentReader(Reader source) {
+        this.reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source, 1 << 16);
+        if (firstSignificantChar() == '[') {
+            arrayReader = new JsonReader(reader);
+            arrayReader.readStartArray();
+        } else {
+            arrayReader = null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = arrayReader != null ? readFromArray() : readLine();
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Document document = next;
+        next = null;
+        return document;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Document readFromArray() {
+        if (arrayReader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+            arrayReader.readEndArray();
+            return null;
+        }
+        return CODEC.decode(arrayReader, DECODER_CONTEXT);
+    }
+
+    private Document readLine() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    return Document.parse(line);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Peeks past whitespace and a byte order mark without consuming the first real character
+    private int firstSignificantChar() {
+        try {
+            while (true) {
+                reader.mark(1);
+                int c = reader.read();
+                if (c == -1 || (c != '\uFEFF' && !Character.isWhitespace(c))) {
+                    reader.reset();
+                    return c;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
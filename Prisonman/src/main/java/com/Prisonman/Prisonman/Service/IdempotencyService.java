@@ -0,0 +1,175 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.IdempotencyRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Idempotency-Key support for POSTs, so a client that retries after a timeout or a dropped
+ * connection gets the first attempt's response instead of admitting the inmate again.
+ *
+ * The first request with a key claims it (an insert on the key, so exactly one wins), runs, and
+ * stores its response under the key. A repeat gets that response back with Idempotent-Replayed;
+ * one arriving while the first is still running gets 409, and one reusing the key for a different
+ * request gets 422. A request that fails gives the key up again so it can be retried.
+ *
+ * With transactions the response is stored in the same transaction as the request's writes, so
+ * the key is finished exactly when they commit, and a claim left behind by a request that died is
+ * taken over once prisonman.idempotency.lease-timeout has passed: its writes were rolled back.
+ * Without them a request that died part way has an unknown outcome, so its key stays claimed
+ * rather than risk running it twice.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionRunner transactions;
+    private final Duration leaseTimeout;
+
+    public IdempotencyService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, TransactionRunner transactions,
+                              @Value("${prisonman.idempotency.lease-timeout:PT2M}") Duration leaseTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.transactions = transactions;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Runs {@code action} once per key. {@code scope} names the endpoint and {@code request} is
+     * the request body; a key is only ever replayed for the same pair. No key, no bookkeeping.
+     */
+    public ResponseEntity<?> execute(String key, String scope, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.status(400).body("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String fingerprint = fingerprint(request);
+        String lease = UUID.randomUUID().toString();
+        IdempotencyRecord previous = claim(key, scope, fingerprint, lease);
+        if (previous != null) {
+            return replay(previous, scope, fingerprint);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = transactions.inTransaction(() -> {
+                ResponseEntity<?> result = action.get();
+                if (transactions.enabled()) {
+                    complete(key, lease, result);
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            // Its writes were rolled back or undone, so the client may run it again
+            mongoTemplate.remove(query(where("_id").is(key).and("lease").is(lease).and("completed").is(false)),
+                    IdempotencyRecord.class);
+            throw e;
+        }
+        if (!transactions.enabled()) {
+            complete(key, lease, response);
+        }
+        return response;
+    }
+
+    // Null when this request now holds the key, else the record of whoever does
+    private IdempotencyRecord claim(String key, String scope, String fingerprint, String lease) {
+        for (int attempt = 0; ; attempt++) {
+            Instant now = Instant.now();
+            try {
+                mongoTemplate.insert(new IdempotencyRecord(key, scope, fingerprint, lease, now));
+                return null;
+            } catch (DuplicateKeyException e) {
+                if (transactions.enabled()) {
+                    IdempotencyRecord stale = mongoTemplate.findAndModify(
+                            query(where("_id").is(key).and("scope").is(scope).and("fingerprint").is(fingerprint)
+                                    .and("completed").is(false).and("leasedAt").lt(now.minus(leaseTimeout))),
+                            new Update().set("lease", lease).set("leasedAt", now),
+                            IdempotencyRecord.class);
+                    if (stale != null) {
+                        return null;
+                    }
+                }
+                IdempotencyRecord existing = mongoTemplate.findById(key, IdempotencyRecord.class);
+                // Gone again means the holder failed and gave it up: try to claim it once more
+                if (existing != null || attempt > 0) {
+                    return existing != null ? existing : new IdempotencyRecord(key, scope, fingerprint, null, now);
+                }
+            }
+        }
+    }
+
+    // Conditional on the lease, so an attempt that was taken over cannot finish the key as well
+    private void complete(String key, String lease, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        Update update = new Update()
+                .set("completed", true)
+                .set("status", response.getStatusCode().value())
+                .set("body", body instanceof String text ? text : body == null ? null : toJson(body))
+                .set("json", body != null && !(body instanceof String));
+        if (mongoTemplate.updateFirst(query(where("_id").is(key).and("lease").is(lease)), update,
+                IdempotencyRecord.class).getMatchedCount() == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "The request was taken over by a retry with the same Idempotency-Key.");
+        }
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord previous, String scope, String fingerprint) {
+        if (!scope.equals(previous.getScope()) || !fingerprint.equals(previous.getFingerprint())) {
+            return ResponseEntity.status(422).body("This Idempotency-Key was already used for a different request.");
+        }
+        if (!previous.isCompleted()) {
+            return ResponseEntity.status(409).body("A request with this Idempotency-Key is still being processed.");
+        }
+        ResponseEntity.BodyBuilder replayed = ResponseEntity.status(previous.getStatus()).header(REPLAYED_HEADER, "true");
+        if (previous.isJson()) {
+            replayed.contentType(MediaType.APPLICATION_JSON);
+        }
+        return replayed.body(previous.getBody());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint the request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store the response", e);
+        }
+    }
+}
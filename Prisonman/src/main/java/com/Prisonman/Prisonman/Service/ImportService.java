@@ -0,0 +1,255 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Config.MongoDataMigrations;
+import com.Prisonman.Prisonman.Model.ImportResult;
+import org.bson.json.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of Extended JSON exports (mongoexport output, or our own NDJSON exports) into the
+ * model collections.
+ *
+ * Files are streamed document by document and mapped onto the model class of the target
+ * collection, then written in unordered bulk inserts. Collections load in parallel, and within a
+ * collection several batches are in flight while the next one is being parsed. Unordered means a
+ * rejected document (duplicate _id or unique key) costs only itself, not the rest of its batch.
+ *
+ * Afterwards the derived data is brought up to date: migrations (searchName, version), cell
+ * block totals, the dashboard snapshot, the visit schedule, the duty roster and the lookup caches.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    private static final String FILE_PREFIX = "prisonDB.";
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoDataMigrations migrations;
+    private final CellBlockStatsService cellBlockStatsService;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final VisitScheduleService visitScheduleService;
+    private final OccupancyService occupancy;
+    private final StaffRosterService staffRosterService;
+    private final CacheManager cacheManager;
+    private final int batchSize;
+    private final int parallelism;
+
+    public ImportService(MongoTemplate mongoTemplate, MongoDataMigrations migrations,
+                         CellBlockStatsService cellBlockStatsService,
+                         DashboardSummaryService dashboardSummaryService,
+                         VisitScheduleService visitScheduleService, OccupancyService occupancy,
+                         StaffRosterService staffRosterService, CacheManager cacheManager,
+                         @Value("${prisonman.import.batch-size:1000}") int batchSize,
+                         @Value("${prisonman.import.parallelism:4}") int parallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.migrations = migrations;
+        this.cellBlockStatsService = cellBlockStatsService;
+        this.dashboardSummaryService = dashboardSummaryService;
+        this.visitScheduleService = visitScheduleService;
+        this.occupancy = occupancy;
+        this.staffRosterService = staffRosterService;
+        this.cacheManager = cacheManager;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imports every *.json file in the directory whose name is a model collection, optionally
+     * with the "prisonDB." prefix that mongoexport's default naming adds (prisonDB.inmates.json).
+     *
+     * @param replace empty each collection before loading it
+     */
+    public List<ImportResult> importDirectory(Path directory, boolean replace) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> entityFor(collectionOf(file)) != null).sorted().toList();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read directory " + directory);
+        }
+
+        long start = System.nanoTime();
+        List<ImportResult> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ImportResult>> pending = new ArrayList<>();
+            for (Path file : files) {
+                pending.add(pool.submit(() -> {
+                    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        return load(collectionOf(file), reader, replace);
+                    }
+                }));
+            }
+            for (Future<ImportResult> result : pending) {
+                results.add(await(result));
+            }
+        } finally {
+            afterImport();
+        }
+
+        long inserted = results.stream().mapToLong(ImportResult::inserted).sum();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Imported {} document(s) from {} in {} ms ({} docs/s)", inserted, directory, elapsedMs,
+                Math.round(inserted * 1000.0 / Math.max(1, elapsedMs)));
+        return results;
+    }
+
+    /** Imports one collection from a stream in either export layout. */
+    public ImportResult importCollection(String collection, InputStream in, boolean replace) {
+        if (entityFor(collection) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown collection: " + collection);
+        }
+        try {
+            return load(collection, new InputStreamReader(in, StandardCharsets.UTF_8), replace);
+        } finally {
+            afterImport();
+        }
+    }
+
+    private ImportResult load(String collection, Reader source, boolean replace) {
+        Class<?> type = entityFor(collection).getType();
+        MongoConverter converter = mongoTemplate.getConverter();
+        if (replace) {
+            mongoTemplate.remove(new Query(), type);
+        }
+
+        long start = System.nanoTime();
+        long read = 0;
+        AtomicLong inserted = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(parallelism);
+
+        try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+            ExtendedJsonDocumentReader documents = new ExtendedJsonDocumentReader(source);
+            List<Object> batch = new ArrayList<>(batchSize);
+            while (documents.hasNext()) {
+                batch.add(converter.read(type, documents.next()));
+                read++;
+                if (batch.size() == batchSize) {
+                    submit(writers, inFlight, type, batch, inserted, failure);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(writers, inFlight, type, batch, inserted, failure);
+            }
+        } catch (JsonParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Malformed JSON in " + collection + " after " + read + " document(s): " + e.getMessage());
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        ImportResult result = ImportResult.of(collection, read, inserted.get(), read - inserted.get(), elapsedMs);
+        log.info("Imported {}: {} read, {} inserted, {} rejected, {} docs/s", collection, result.read(),
+                result.inserted(), result.rejected(), Math.round(result.docsPerSecond()));
+        return result;
+    }
+
+    // Blocks while `parallelism` batches are already being written, so parsing cannot run ahead
+    // of the database and buffer the whole file
+    private void submit(ExecutorService writers, Semaphore inFlight, Class<?> type, List<Object> batch,
+                        AtomicLong inserted, AtomicReference<RuntimeException> failure) {
+        inFlight.acquireUninterruptibly();
+        writers.submit(() -> {
+            try {
+                inserted.addAndGet(insert(type, batch));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private int insert(Class<?> type, List<Object> batch) {
+        try {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(batch).execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            log.warn("{} of {} {} document(s) rejected, first error: {}", batch.size() - e.getResult().getInsertedCount(),
+                    batch.size(), mongoTemplate.getCollectionName(type), e.getErrors().get(0).getMessage());
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    private void afterImport() {
+        migrations.migrate();
+        cellBlockStatsService.reconcileAll();
+        dashboardSummaryService.reload();
+        visitScheduleService.invalidate();
+        occupancy.invalidate();
+        staffRosterService.invalidate();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private MongoPersistentEntity<?> entityFor(String collection) {
+        for (MongoPersistentEntity<?> entity : mongoTemplate.getConverter().getMappingContext().getPersistentEntities()) {
+            if (entity.isAnnotationPresent(Document.class)
+                    && entity.getCollection().equals(collection)) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    private static String collectionOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".json")) {
+            return "";
+        }
+        name = name.substring(0, name.length() - ".json".length());
+        return name.startsWith(FILE_PREFIX) ? name.substring(FILE_PREFIX.length()) : name;
+    }
+
+    private static ImportResult await(Future<ImportResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Import failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.BatchItemResult;
+import com.Prisonman.Prisonman.Model.BatchItemResult.Outcome;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.TransferRequest;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Admits or transfers a whole group of inmates in a handful of round trips, however large the
+ * group: one read of the target cells, capacity decided in memory, then one bulk write each for
+ * cells, inmates and block counters.
+ *
+ * Items are independent: one that cannot be placed is reported and does not stop the others.
+ * Beds are claimed with the same guarded updates as single admissions, so a batch racing other
+ * admissions can lose a cell but never overfill it. Transfers only use beds that are free before
+ * the batch starts; beds vacated by the batch itself are not reused (no swaps). With transactions
+ * on, a batch's cell, inmate and bed writes commit together (see TransactionRunner).
+ */
+@Service
+public class InmateBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(InmateBatchService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CellRepository cellRepository;
+    private final CellBlockStatsService cellBlockStatsService;
+    private final LookupCache lookupCache;
+    private final ActivityService activityService;
+    private final ChangeEventBus changeEvents;
+    private final OccupancyService occupancy;
+    private final PlacementService placementService;
+    private final TransactionRunner transactions;
+    private final int maxBatchSize;
+
+    public InmateBatchService(MongoTemplate mongoTemplate, CellRepository cellRepository,
+                              CellBlockStatsService cellBlockStatsService, LookupCache lookupCache,
+                              ActivityService activityService, ChangeEventBus changeEvents,
+                              OccupancyService occupancy, PlacementService placementService,
+                              TransactionRunner transactions,
+                              @Value("${prisonman.batch.max-size:1000}") int maxBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.cellRepository = cellRepository;
+        this.cellBlockStatsService = cellBlockStatsService;
+        this.lookupCache = lookupCache;
+        this.activityService = activityService;
+        this.changeEvents = changeEvents;
+        this.occupancy = occupancy;
+        this.placementService = placementService;
+        this.transactions = transactions;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /** Admits the inmates; those sent without a cellNumber are placed according to {@code options}. */
+    public List<BatchItemResult> admit(List<Inmate> inmates, PlacementOptions options) {
+        checkSize(inmates);
+        return transactions.inTransaction(() -> admitAll(inmates, options));
+    }
+
+    public List<BatchItemResult> transfer(List<TransferRequest> transfers) {
+        checkSize(transfers);
+        return transactions.inTransaction(() -> transferAll(transfers));
+    }
+
+    private List<BatchItemResult> admitAll(List<Inmate> inmates, PlacementOptions options) {
+        BatchItemResult[] results = new BatchItemResult[inmates.size()];
+
+        List<Integer> valid = new ArrayList<>();
+        List<Integer> unplaced = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < inmates.size(); i++) {
+            Inmate inmate = inmates.get(i);
+            if (inmate == null || isBlank(inmate.getInmateId()) || (isBlank(inmate.getBlock()) && !isBlank(inmate.getCellNumber()))) {
+                results[i] = result(i, inmate == null ? null : inmate.getInmateId(), Outcome.INVALID, "inmateId is required, and a cellNumber needs its block.");
+            } else if (!seen.add(inmate.getInmateId())) {
+                results[i] = result(i, inmate.getInmateId(), Outcome.DUPLICATE, "Inmate appears more than once in the batch.");
+            } else {
+                valid.add(i);
+                if (isBlank(inmate.getCellNumber())) {
+                    unplaced.add(i);
+                }
+            }
+        }
+
+        // Inmates without a cell get one planned across the allowed blocks, then go through the same claim as the rest
+        Set<Integer> noBed = placementService.plan(inmates, unplaced, options);
+        Map<CellKey, List<Integer>> requestsByCell = new LinkedHashMap<>();
+        for (int i : valid) {
+            Inmate inmate = inmates.get(i);
+            if (noBed.contains(i)) {
+                results[i] = result(i, inmate.getInmateId(), Outcome.CELL_FULL, "No free bed in the allowed blocks.");
+            } else {
+                requestsByCell.computeIfAbsent(new CellKey(inmate.getBlock(), inmate.getCellNumber()), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Placement placement = place(requestsByCell, i -> inmates.get(i).getInmateId(), results);
+
+        List<Inmate> admitted = new ArrayList<>();
+        placement.indexesByCellId().forEach((cellId, indexes) -> indexes.forEach(i -> admitted.add(inmates.get(i))));
+        if (!admitted.isEmpty()) {
+            try {
+                mongoTemplate.insertAll(admitted);
+            } catch (RuntimeException e) {
+                TransactionRunner.compensate(() -> cellRepository.releaseSlots(placement.inmateIdsByCellId()));
+                throw e;
+            }
+        }
+
+        Map<String, Integer> blockDeltas = new HashMap<>();
+        List<Cell> changedCells = new ArrayList<>();
+        placement.indexesByCellId().forEach((cellId, indexes) -> {
+            Cell cell = placement.cellsById().get(cellId);
+            blockDeltas.merge(cell.getBlock(), indexes.size(), Integer::sum);
+            changedCells.add(cell);
+            for (int i : indexes) {
+                results[i] = result(i, inmates.get(i).getInmateId(), Outcome.ADMITTED, null);
+            }
+        });
+        TransactionRunner.afterCommit(() -> {
+            placement.indexesByCellId().forEach((cellId, indexes) -> {
+                Cell cell = placement.cellsById().get(cellId);
+                occupancy.adjust(cell.getBlock(), cell.getCellNumber(), indexes.size());
+            });
+            changedCells.forEach(lookupCache::evictCell);
+            admitted.forEach(inmate -> lookupCache.evictInmate(inmate.getInmateId()));
+            blockDeltas.forEach(cellBlockStatsService::applyOccupancyChange);
+            activityService.record(ActivityKind.ADMISSION, admitted.size());
+        });
+
+        return Arrays.asList(results);
+    }
+
+    private List<BatchItemResult> transferAll(List<TransferRequest> transfers) {
+        BatchItemResult[] results = new BatchItemResult[transfers.size()];
+
+        Set<String> inmateIds = new HashSet<>();
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            if (transfer == null || isBlank(transfer.inmateId()) || isBlank(transfer.block()) || isBlank(transfer.cellNumber())) {
+                results[i] = result(i, transfer == null ? null : transfer.inmateId(), Outcome.INVALID, "inmateId, block and cellNumber are required.");
+            } else if (!inmateIds.add(transfer.inmateId())) {
+                results[i] = result(i, transfer.inmateId(), Outcome.DUPLICATE, "Inmate appears more than once in the batch.");
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // By _id where the caller gave one; otherwise by inmateId, which existing records reuse, so
+        // an inmateId matching more than one inmate is refused rather than one of them guessed
+        Set<String> documentIds = new HashSet<>();
+        Set<String> lookedUpIds = new HashSet<>();
+        for (int i : valid) {
+            TransferRequest transfer = transfers.get(i);
+            if (isBlank(transfer.id())) {
+                lookedUpIds.add(transfer.inmateId());
+            } else {
+                documentIds.add(transfer.id());
+            }
+        }
+        Map<String, List<Inmate>> byDocumentId = new HashMap<>();
+        Map<String, List<Inmate>> byInmateId = new HashMap<>();
+        if (!documentIds.isEmpty()) {
+            for (Inmate inmate : mongoTemplate.find(query(where("_id").in(documentIds)), Inmate.class)) {
+                byDocumentId.put(inmate.getId(), List.of(inmate));
+            }
+        }
+        if (!lookedUpIds.isEmpty()) {
+            for (Inmate inmate : mongoTemplate.find(query(where("inmateId").in(lookedUpIds)), Inmate.class)) {
+                byInmateId.computeIfAbsent(inmate.getInmateId(), k -> new ArrayList<>()).add(inmate);
+            }
+        }
+
+        Inmate[] inmates = new Inmate[transfers.size()];
+        Map<CellKey, List<Integer>> requestsByCell = new LinkedHashMap<>();
+        for (int i : valid) {
+            TransferRequest transfer = transfers.get(i);
+            List<Inmate> found = isBlank(transfer.id())
+                    ? byInmateId.getOrDefault(transfer.inmateId(), List.of())
+                    : byDocumentId.getOrDefault(transfer.id(), List.of());
+            if (found.isEmpty()) {
+                results[i] = result(i, transfer.inmateId(), Outcome.INMATE_NOT_FOUND, "No inmate with that id.");
+            } else if (found.size() > 1) {
+                results[i] = result(i, transfer.inmateId(), Outcome.AMBIGUOUS_INMATE, "More than one inmate has that id.");
+            } else if (transfer.block().equals(found.get(0).getBlock()) && transfer.cellNumber().equals(found.get(0).getCellNumber())) {
+                results[i] = result(i, transfer.inmateId(), Outcome.UNCHANGED, "Already in that cell.");
+            } else {
+                inmates[i] = found.get(0);
+                requestsByCell.computeIfAbsent(new CellKey(transfer.block(), transfer.cellNumber()), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Placement placement = place(requestsByCell, i -> transfers.get(i).inmateId(), results);
+
+        // Give back the beds the moved inmates held, and point the inmates at their new cells
+        List<Integer> moved = new ArrayList<>();
+        placement.indexesByCellId().values().forEach(moved::addAll);
+        Map<CellKey, Cell> sourceCells = loadCells(moved.stream()
+                .map(i -> inmates[i])
+                .map(inmate -> new CellKey(inmate.getBlock(), inmate.getCellNumber()))
+                .toList());
+
+        Map<String, List<String>> releases = new HashMap<>();
+        Map<String, Integer> blockDeltas = new HashMap<>();
+        List<Inmate> movedInmates = new ArrayList<>();
+        List<Cell> changedCells = new ArrayList<>();
+        Map<CellKey, Integer> cellDeltas = new HashMap<>();
+        Map<String, CellKey> origins = new HashMap<>();
+        BulkOperations inmateUpdates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Inmate.class);
+        placement.indexesByCellId().forEach((cellId, indexes) -> {
+            Cell target = placement.cellsById().get(cellId);
+            for (int i : indexes) {
+                Inmate inmate = inmates[i];
+                String inmateId = transfers.get(i).inmateId();
+                Cell source = sourceCells.get(new CellKey(inmate.getBlock(), inmate.getCellNumber()));
+                if (source != null && source.getInmates() != null && source.getInmates().contains(inmateId)) {
+                    releases.computeIfAbsent(source.getId(), k -> new ArrayList<>()).add(inmateId);
+                    blockDeltas.merge(source.getBlock(), -1, Integer::sum);
+                    cellDeltas.merge(new CellKey(source.getBlock(), source.getCellNumber()), -1, Integer::sum);
+                    changedCells.add(source);
+                }
+                blockDeltas.merge(target.getBlock(), 1, Integer::sum);
+                cellDeltas.merge(new CellKey(target.getBlock(), target.getCellNumber()), 1, Integer::sum);
+                inmateUpdates.updateOne(query(where("_id").is(inmate.getId())),
+                        new Update().set("block", target.getBlock()).set("cellNumber", target.getCellNumber()));
+                results[i] = result(i, inmateId, Outcome.TRANSFERRED, null);
+                origins.put(inmate.getId(), new CellKey(inmate.getBlock(), inmate.getCellNumber()));
+                inmate.setBlock(target.getBlock());
+                inmate.setCellNumber(target.getCellNumber());
+                movedInmates.add(inmate);
+            }
+            changedCells.add(target);
+        });
+
+        if (!moved.isEmpty()) {
+            try {
+                inmateUpdates.execute();
+                cellRepository.releaseSlots(releases);
+            } catch (RuntimeException e) {
+                TransactionRunner.compensate(() -> undoTransfers(placement.inmateIdsByCellId(), releases, origins));
+                throw e;
+            }
+            // Bulk updates raise no mapping events, so the moves are reported here
+            movedInmates.forEach(inmate ->
+                    changeEvents.publishLocal("inmates", Operation.CHANGED, inmate.getId(), inmate));
+            TransactionRunner.afterCommit(() -> {
+                cellDeltas.forEach((key, delta) -> occupancy.adjust(key.block(), key.cellNumber(), delta));
+                changedCells.forEach(lookupCache::evictCell);
+                movedInmates.forEach(inmate -> lookupCache.evictInmate(inmate.getInmateId()));
+                blockDeltas.forEach((block, delta) -> {
+                    if (delta != 0) {
+                        cellBlockStatsService.applyOccupancyChange(block, delta);
+                    }
+                });
+            });
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Puts a transfer batch back after it failed part way without a transaction: gives up the
+     * target beds, takes the source beds back and points the inmates at their old cells again.
+     * Steps that never ran are no-ops: a source cell still listing its inmates is left alone.
+     */
+    private void undoTransfers(Map<String, List<String>> claimed, Map<String, List<String>> released,
+                               Map<String, CellKey> origins) {
+        cellRepository.releaseSlots(claimed);
+        Set<String> restored = cellRepository.reserveSlots(released);
+        released.forEach((cellId, inmateIds) -> {
+            if (!restored.contains(cellId)) {
+                // Its bed went to someone else meanwhile; reconciliation and the audit report it
+                log.warn("Could not give inmates {} their beds in cell {} back after a failed transfer", inmateIds, cellId);
+            }
+        });
+        BulkOperations restores = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Inmate.class);
+        origins.forEach((id, origin) -> restores.updateOne(query(where("_id").is(id)),
+                new Update().set("block", origin.block()).set("cellNumber", origin.cellNumber())));
+        restores.execute();
+    }
+
+    /**
+     * Reads the requested cells in one query, hands out their free beds in request order and
+     * claims them with one bulk write. Requests that get no bed are recorded in {@code results}.
+     */
+    private Placement place(Map<CellKey, List<Integer>> requestsByCell, IntFunction<String> inmateIdOf,
+                            BatchItemResult[] results) {
+        Map<CellKey, Cell> cells = loadCells(requestsByCell.keySet());
+
+        Map<String, List<String>> claims = new LinkedHashMap<>();
+        Map<String, List<Integer>> claimIndexes = new LinkedHashMap<>();
+        Map<String, Cell> cellsById = new HashMap<>();
+
+        requestsByCell.forEach((key, indexes) -> {
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                indexes.forEach(i -> results[i] = result(i, inmateIdOf.apply(i), Outcome.CELL_NOT_FOUND, "Specified cell not found."));
+                return;
+            }
+            int free = Math.max(cell.getCapacity() - cell.getCurrentOccupancy(), 0);
+            boolean closed = Cell.isClosed(cell.getStatus());
+            for (int i : indexes) {
+                String inmateId = inmateIdOf.apply(i);
+                if (cell.getInmates() != null && cell.getInmates().contains(inmateId)) {
+                    results[i] = result(i, inmateId, Outcome.DUPLICATE, "Inmate is already listed in that cell.");
+                } else if (closed) {
+                    results[i] = result(i, inmateId, Outcome.CELL_CLOSED, "Cell is closed to new inmates.");
+                } else if (free > 0) {
+                    free--;
+                    claims.computeIfAbsent(cell.getId(), k -> new ArrayList<>()).add(inmateId);
+                    claimIndexes.computeIfAbsent(cell.getId(), k -> new ArrayList<>()).add(i);
+                    cellsById.put(cell.getId(), cell);
+                } else {
+                    results[i] = result(i, inmateId, Outcome.CELL_FULL, "Cell is already full.");
+                }
+            }
+        });
+
+        Set<String> reserved = cellRepository.reserveSlots(claims);
+        for (String cellId : List.copyOf(claimIndexes.keySet())) {
+            if (!reserved.contains(cellId)) {
+                claimIndexes.remove(cellId).forEach(i -> results[i] = result(i, inmateIdOf.apply(i), Outcome.CELL_FULL,
+                        "Cell filled up while the batch was being processed."));
+                claims.remove(cellId);
+            }
+        }
+
+        return new Placement(claims, claimIndexes, cellsById);
+    }
+
+    private Map<CellKey, Cell> loadCells(Collection<CellKey> keys) {
+        Map<CellKey, Cell> cells = new HashMap<>();
+        if (keys.isEmpty()) {
+            return cells;
+        }
+        Criteria[] anyOf = new HashSet<>(keys).stream()
+                .map(key -> where("block").is(key.block()).and("cellNumber").is(key.cellNumber()))
+                .toArray(Criteria[]::new);
+        for (Cell cell : mongoTemplate.find(query(new Criteria().orOperator(anyOf)), Cell.class)) {
+            cells.put(new CellKey(cell.getBlock(), cell.getCellNumber()), cell);
+        }
+        return cells;
+    }
+
+    private void checkSize(List<?> items) {
+        if (items.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "A batch may hold at most " + maxBatchSize + " items.");
+        }
+    }
+
+    private static BatchItemResult result(int index, String inmateId, Outcome outcome, String message) {
+        return new BatchItemResult(index, inmateId, outcome, message);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record CellKey(String block, String cellNumber) {
+    }
+
+    private record Placement(Map<String, List<String>> inmateIdsByCellId,
+                             Map<String, List<Integer>> indexesByCellId,
+                             Map<String, Cell> cellsById) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Inmate search filters, bound from the query string of GET /api/inmates. All are optional and
+ * combine with AND.
+ *
+ * @param inmateId     exact inmate id
+ * @param name         case-insensitive name prefix (typeahead)
+ * @param status       exact status label ("Active"), any case
+ * @param block        exact block name
+ * @param charges      exact charge
+ * @param admittedFrom earliest admission date, inclusive (yyyy-MM-dd)
+ * @param admittedTo   latest admission date, inclusive (yyyy-MM-dd)
+ */
+public record InmateSearch(String inmateId, String name, String status, String block, String charges,
+                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate admittedFrom,
+                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate admittedTo) {
+
+    public Criteria toCriteria() {
+        Criteria criteria = new Criteria();
+        if (hasText(inmateId)) {
+            criteria.and("inmateId").is(inmateId);
+        }
+        if (hasText(name)) {
+            // Anchored, case-sensitive regex on the lower-cased copy is an index range scan
+            criteria.and("searchName").regex("^" + escapeRegex(name.trim().toLowerCase(Locale.ROOT)));
+        }
+        if (hasText(status)) {
+            criteria.and("status").is(statusValue());
+        }
+        if (hasText(block)) {
+            criteria.and("block").is(block);
+        }
+        if (hasText(charges)) {
+            criteria.and("charges").is(charges);
+        }
+        if (admittedFrom != null || admittedTo != null) {
+            Criteria admission = where("admissionDate");
+            if (admittedFrom != null) {
+                admission.gte(admittedFrom);
+            }
+            if (admittedTo != null) {
+                admission.lte(admittedTo);
+            }
+            criteria.andOperator(admission);
+        }
+        return criteria;
+    }
+
+    /**
+     * The key to page by. Exact-id lookups and plain equality filters page by _id; a name prefix
+     * or an admission range pages along that index instead of sorting every match.
+     */
+    public String sortField() {
+        if (hasText(inmateId)) {
+            return null;
+        }
+        if (hasText(name)) {
+            return "searchName";
+        }
+        if (admittedFrom != null || admittedTo != null) {
+            return "admissionDate";
+        }
+        return null;
+    }
+
+    private InmateStatus statusValue() {
+        try {
+            return InmateStatus.of(status);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Backslash-escaping (rather than \Q...\E) keeps the pattern a "simple prefix" that Mongo turns into tight index bounds
+    private static String escapeRegex(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (char c : literal.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,204 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (cursor) pagination for the list and search endpoints.
+ *
+ * Pages are read in _id order (or (key, _id) order for searches) starting strictly after the
+ * cursor, so every page is an index range scan and costs the same no matter how deep into the
+ * collection it is, unlike skip/offset.
+ */
+@Service
+public class KeysetPager {
+
+    private static final int BSON_OBJECT_ID = 7;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public KeysetPager(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                       @Value("${prisonman.paging.default-limit:1000}") int defaultLimit,
+                       @Value("${prisonman.paging.max-limit:5000}") int maxLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public CursorPage<Object> page(Class<?> type, PageQuery page) {
+        return page(type, new Criteria(), null, page);
+    }
+
+    /**
+     * @param filter    restricts the listing; the cursor condition is added on top of it
+     * @param sortField property to order by before _id, or null for plain _id order. Use one that
+     *                  leads an index together with _id so a page never needs an in-memory sort.
+     */
+    public <T> CursorPage<Object> page(Class<T> type, Criteria filter, String sortField, PageQuery page) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        int limit = resolveLimit(page.limit());
+        Set<String> fields = resolveFields(entity, page.fields());
+
+        List<Criteria> conditions = new ArrayList<>();
+        if (!filter.getCriteriaObject().isEmpty()) {
+            conditions.add(filter);
+        }
+        if (page.after() != null && !page.after().isBlank()) {
+            conditions.add(sortField == null ? afterId(page.after()) : afterKey(sortField, page.after()));
+        }
+
+        Query query = new Query(and(conditions));
+        query.with(sortField == null
+                ? Sort.by(Sort.Direction.ASC, "_id")
+                : Sort.by(Sort.Direction.ASC, sortField, "_id")).limit(limit + 1);
+        if (!fields.isEmpty()) {
+            fields.forEach(query.fields()::include);
+            if (sortField != null) {
+                query.fields().include(sortField);
+            }
+        }
+
+        List<T> found = mongoTemplate.find(query, type);
+
+        String nextCursor = null;
+        if (found.size() > limit) {
+            found = found.subList(0, limit);
+            nextCursor = cursorFor(entity, found.get(limit - 1), sortField);
+        }
+
+        Long total = page.countRequested() ? mongoTemplate.count(new Query(filter), type) : null;
+
+        List<Object> items = fields.isEmpty()
+                ? Collections.unmodifiableList(found)
+                : Collections.unmodifiableList(project(found, fields));
+        return new CursorPage<>(items, nextCursor, total);
+    }
+
+    private static Criteria and(List<Criteria> conditions) {
+        if (conditions.isEmpty()) {
+            return new Criteria();
+        }
+        if (conditions.size() == 1) {
+            return conditions.get(0);
+        }
+        return new Criteria().andOperator(conditions);
+    }
+
+    private String cursorFor(MongoPersistentEntity<?> entity, Object last, String sortField) {
+        Object id = entity.getIdentifierAccessor(last).getIdentifier();
+        if (id == null) {
+            return null;
+        }
+        if (sortField == null) {
+            return id.toString();
+        }
+        // Keep the key's BSON type (string, date, ...) by round-tripping it through extended JSON
+        Object key = mongoTemplate.getConverter().convertToMongoType(
+                entity.getPropertyAccessor(last).getProperty(entity.getRequiredPersistentProperty(sortField)));
+        String json = new Document("k", key).append("id", id.toString()).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Rows strictly after (key, id) in (sortField, _id) order
+    private static Criteria afterKey(String sortField, String cursor) {
+        Document decoded;
+        try {
+            decoded = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+        }
+        Object key = decoded.get("k");
+        String id = decoded.getString("id");
+        if (id == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+        }
+
+        Criteria greaterKey = key == null ? where(sortField).ne(null) : where(sortField).gt(key);
+        return new Criteria().orOperator(greaterKey, new Criteria().andOperator(where(sortField).is(key), afterId(id)));
+    }
+
+    // _id values are mostly ObjectIds, but older imports used plain strings. Strings sort before
+    // ObjectIds, and $gt only compares within one BSON type, so a string cursor also has to let
+    // every ObjectId through.
+    public static Criteria afterId(String cursor) {
+        if (ObjectId.isValid(cursor)) {
+            return where("_id").gt(new ObjectId(cursor));
+        }
+        return new Criteria().orOperator(where("_id").gt(cursor), where("_id").type(BSON_OBJECT_ID));
+    }
+
+    public int resolveLimit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    private static Set<String> resolveFields(MongoPersistentEntity<?> entity, String requested) {
+        Set<String> fields = new LinkedHashSet<>();
+        if (requested == null || requested.isBlank()) {
+            return fields;
+        }
+        for (String name : requested.split(",")) {
+            String field = name.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (entity.getPersistentProperty(field) == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+            }
+            fields.add(field);
+        }
+        MongoPersistentProperty idProperty = entity.getIdProperty();
+        if (idProperty != null) {
+            fields.add(idProperty.getName());
+        }
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> project(List<?> documents, Set<String> fields) {
+        List<Map<String, Object>> projected = new ArrayList<>(documents.size());
+        for (Object document : documents) {
+            Map<String, Object> all = objectMapper.convertValue(document, LinkedHashMap.class);
+            Map<String, Object> selected = new LinkedHashMap<>();
+            for (String field : fields) {
+                if (all.containsKey(field)) {
+                    selected.put(field, all.get(field));
+                }
+            }
+            projected.add(selected);
+        }
+        return projected;
+    }
+}
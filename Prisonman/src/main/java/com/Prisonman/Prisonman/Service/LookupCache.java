@@ -0,0 +1,94 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Repository.CellBlockRepository;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import com.Prisonman.Prisonman.Repository.InmateRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Read-through cache for the hot single-document lookups. Misses are not cached, and the write
+ * paths evict what they change, so a cached entry is at most one TTL stale for writes made
+ * outside the API.
+ *
+ * Cached entities are shared between requests: callers must treat them as read-only and go to
+ * the repository when they intend to modify and save.
+ */
+@Service
+public class LookupCache {
+
+    public static final String INMATES_BY_INMATE_ID = "inmatesByInmateId";
+    public static final String CELLS_BY_ID = "cellsById";
+    public static final String CELLS_BY_LOCATION = "cellsByLocation";
+    public static final String CELL_BLOCKS_BY_ID = "cellBlocksById";
+
+    private final InmateRepository inmateRepository;
+    private final CellRepository cellRepository;
+    private final CellBlockRepository cellBlockRepository;
+
+    public LookupCache(InmateRepository inmateRepository, CellRepository cellRepository,
+                       CellBlockRepository cellBlockRepository) {
+        this.inmateRepository = inmateRepository;
+        this.cellRepository = cellRepository;
+        this.cellBlockRepository = cellBlockRepository;
+    }
+
+    @Cacheable(cacheNames = INMATES_BY_INMATE_ID, unless = "#result == null")
+    public Optional<Inmate> findInmate(String inmateId) {
+        return inmateRepository.findByInmateId(inmateId);
+    }
+
+    @Cacheable(cacheNames = CELLS_BY_ID, unless = "#result == null")
+    public Optional<Cell> findCell(String id) {
+        return cellRepository.findById(id);
+    }
+
+    @Cacheable(cacheNames = CELLS_BY_LOCATION, key = "#block + '|' + #cellNumber", unless = "#result == null")
+    public Optional<Cell> findCell(String block, String cellNumber) {
+        return cellRepository.findByBlockAndCellNumber(block, cellNumber);
+    }
+
+    @Cacheable(cacheNames = CELL_BLOCKS_BY_ID, unless = "#result == null")
+    public Optional<CellBlock> findCellBlock(String id) {
+        return cellBlockRepository.findById(id);
+    }
+
+    @CacheEvict(cacheNames = INMATES_BY_INMATE_ID)
+    public void evictInmate(String inmateId) {
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CELLS_BY_ID, key = "#cell.id", condition = "#cell.id != null"),
+            @CacheEvict(cacheNames = CELLS_BY_LOCATION, key = "#cell.block + '|' + #cell.cellNumber")
+    })
+    public void evictCell(Cell cell) {
+    }
+
+    @CacheEvict(cacheNames = CELLS_BY_LOCATION, key = "#block + '|' + #cellNumber")
+    public void evictCellLocation(String block, String cellNumber) {
+    }
+
+    // For changes that say which collection changed but not which documents
+    @CacheEvict(cacheNames = INMATES_BY_INMATE_ID, allEntries = true)
+    public void evictInmates() {
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CELLS_BY_ID, allEntries = true),
+            @CacheEvict(cacheNames = CELLS_BY_LOCATION, allEntries = true)
+    })
+    public void evictCells() {
+    }
+
+    // Blocks are few and usually changed by name, so drop them all
+    @CacheEvict(cacheNames = CELL_BLOCKS_BY_ID, allEntries = true)
+    public void evictCellBlocks() {
+    }
+}
@@ -0,0 +1,317 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Beds per cell for the whole facility in primitive arrays indexed by a cell ordinal, so capacity
+ * decisions are made in memory, without a database round trip and without allocating.
+ *
+ * Cells are numbered block by block in cell number order, each block starting on a multiple of
+ * 64. A bitmap with one bit per cell that has a free bed then answers "first free cell in block
+ * B" from the block's own words (one long per 64 cells). A cell's capacity and occupancy are
+ * packed into one long and changed by compare-and-set: two admissions can never both take a
+ * cell's last bed, and admissions to different cells never wait for each other. Block totals are
+ * kept next to them, so block utilization is two reads.
+ *
+ * A closed cell (status Maintenance or Closed) keeps its beds in the block totals but never shows
+ * a free one, so placement passes it over.
+ *
+ * Beds taken with {@link #tryTake} count as pending until confirmed, so the occupancy read back
+ * from the database ({@link #observe}) can be combined with admissions still being written. The
+ * layout is fixed when the index is built: added or removed cells need a new index.
+ */
+public class OccupancyIndex {
+
+    public static final int UNKNOWN = -1;
+
+    private static final Comparator<Cell> CELL_ORDER = Comparator.comparing(Cell::getCellNumber);
+
+    private final String[] blockNames;
+    private final Map<String, Integer> blockOrdinals = new HashMap<>();
+    private final int[] blockStart;
+    private final int[] blockEnd;
+    private final List<Map<String, Integer>> cellsByBlock = new ArrayList<>();
+    private final Map<String, Integer> cellsById = new HashMap<>();
+
+    private final String[] cellIds;
+    private final String[] cellNumbers;
+    private final int[] blockOf;
+
+    // capacity in the high int, occupied beds in the low int
+    private final AtomicLongArray beds;
+    private final AtomicIntegerArray pending;
+    private final AtomicIntegerArray closed;
+    private final AtomicLongArray free;
+    private final AtomicIntegerArray blockCapacity;
+    private final AtomicIntegerArray blockOccupied;
+
+    public OccupancyIndex(List<Cell> cells) {
+        Map<String, List<Cell>> byBlock = new LinkedHashMap<>();
+        for (Cell cell : cells) {
+            if (cell.getBlock() != null && cell.getCellNumber() != null) {
+                byBlock.computeIfAbsent(cell.getBlock(), k -> new ArrayList<>()).add(cell);
+            }
+        }
+
+        int blocks = byBlock.size();
+        blockNames = new String[blocks];
+        blockStart = new int[blocks];
+        blockEnd = new int[blocks];
+        int size = 0;
+        int b = 0;
+        for (Map.Entry<String, List<Cell>> block : byBlock.entrySet()) {
+            blockNames[b] = block.getKey();
+            blockOrdinals.put(block.getKey(), b);
+            blockStart[b] = size;
+            blockEnd[b] = size + block.getValue().size();
+            size = (blockEnd[b] + 63) & ~63;
+            b++;
+        }
+
+        cellIds = new String[size];
+        cellNumbers = new String[size];
+        blockOf = new int[size];
+        beds = new AtomicLongArray(size);
+        pending = new AtomicIntegerArray(size);
+        closed = new AtomicIntegerArray(size);
+        free = new AtomicLongArray(size / 64);
+        blockCapacity = new AtomicIntegerArray(blocks);
+        blockOccupied = new AtomicIntegerArray(blocks);
+
+        b = 0;
+        for (List<Cell> blockCells : byBlock.values()) {
+            blockCells.sort(CELL_ORDER);
+            Map<String, Integer> ordinals = new HashMap<>();
+            int cell = blockStart[b];
+            for (Cell source : blockCells) {
+                if (ordinals.putIfAbsent(source.getCellNumber(), cell) != null) {
+                    continue;
+                }
+                cellIds[cell] = source.getId();
+                cellNumbers[cell] = source.getCellNumber();
+                blockOf[cell] = b;
+                if (source.getId() != null) {
+                    cellsById.put(source.getId(), cell);
+                }
+                int capacity = Math.max(source.getCapacity(), 0);
+                int occupied = Math.max(source.getCurrentOccupancy(), 0);
+                beds.set(cell, pack(capacity, occupied));
+                closed.set(cell, Cell.isClosed(source.getStatus()) ? 1 : 0);
+                blockCapacity.addAndGet(b, capacity);
+                blockOccupied.addAndGet(b, occupied);
+                syncFree(cell);
+                cell++;
+            }
+            // Duplicate cell numbers (refused by the unique index) leave unused padding at the end
+            blockEnd[b] = cell;
+            cellsByBlock.add(ordinals);
+            b++;
+        }
+    }
+
+    /** The ordinal of a block, or {@link #UNKNOWN}. */
+    public int block(String name) {
+        Integer block = name == null ? null : blockOrdinals.get(name);
+        return block == null ? UNKNOWN : block;
+    }
+
+    /** The ordinal of a cell, or {@link #UNKNOWN}. */
+    public int cell(String block, String cellNumber) {
+        int b = block(block);
+        if (b == UNKNOWN || cellNumber == null) {
+            return UNKNOWN;
+        }
+        Integer cell = cellsByBlock.get(b).get(cellNumber);
+        return cell == null ? UNKNOWN : cell;
+    }
+
+    public int cellById(String cellId) {
+        Integer cell = cellId == null ? null : cellsById.get(cellId);
+        return cell == null ? UNKNOWN : cell;
+    }
+
+    /**
+     * Takes a bed if the cell has one free. The bed stays pending until {@link #confirm} (its
+     * admission was written) or {@link #giveBack} (it was not).
+     */
+    public boolean tryTake(int cell) {
+        while (true) {
+            long current = beds.get(cell);
+            int capacity = capacityOf(current);
+            int occupied = occupiedOf(current);
+            if (occupied >= capacity || closed.get(cell) != 0) {
+                return false;
+            }
+            if (beds.compareAndSet(cell, current, pack(capacity, occupied + 1))) {
+                pending.incrementAndGet(cell);
+                blockOccupied.incrementAndGet(blockOf[cell]);
+                syncFree(cell);
+                return true;
+            }
+        }
+    }
+
+    public void confirm(int cell) {
+        pending.decrementAndGet(cell);
+    }
+
+    public void giveBack(int cell) {
+        pending.decrementAndGet(cell);
+        add(cell, -1);
+    }
+
+    /**
+     * Applies a change already made in the database (an inmate released, a batch placed),
+     * bypassing the capacity check. Occupancy never goes below zero.
+     */
+    public void add(int cell, int delta) {
+        while (true) {
+            long current = beds.get(cell);
+            int occupied = occupiedOf(current);
+            int updated = Math.max(occupied + delta, 0);
+            if (beds.compareAndSet(cell, current, pack(capacityOf(current), updated))) {
+                blockOccupied.addAndGet(blockOf[cell], updated - occupied);
+                syncFree(cell);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes on a cell's capacity and occupancy as read from the database, plus the beds taken
+     * here whose admissions are not written yet.
+     */
+    public void observe(int cell, int capacity, int occupied) {
+        capacity = Math.max(capacity, 0);
+        while (true) {
+            long current = beds.get(cell);
+            int updated = Math.max(occupied, 0) + Math.max(pending.get(cell), 0);
+            if (beds.compareAndSet(cell, current, pack(capacity, updated))) {
+                blockCapacity.addAndGet(blockOf[cell], capacity - capacityOf(current));
+                blockOccupied.addAndGet(blockOf[cell], updated - occupiedOf(current));
+                syncFree(cell);
+                return;
+            }
+        }
+    }
+
+    /** Takes on a cell's status as read from the database: closed cells take no admissions. */
+    public void observeStatus(int cell, String status) {
+        closed.set(cell, Cell.isClosed(status) ? 1 : 0);
+        syncFree(cell);
+    }
+
+    /** The lowest-numbered cell of the block with a free bed, or {@link #UNKNOWN}. */
+    public int firstFree(int block) {
+        int lastWord = (blockEnd[block] - 1) >>> 6;
+        for (int word = blockStart[block] >>> 6; word <= lastWord; word++) {
+            long bits = free.get(word);
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /** The next cell after {@code cell} in the same block with a free bed, or {@link #UNKNOWN}. */
+    public int nextFree(int cell) {
+        int block = blockOf[cell];
+        int next = cell + 1;
+        while (next < blockEnd[block]) {
+            long bits = free.get(next >>> 6) & (-1L << next);
+            if (bits != 0) {
+                int found = ((next >>> 6) << 6) + Long.numberOfTrailingZeros(bits);
+                return found < blockEnd[block] ? found : UNKNOWN;
+            }
+            next = ((next >>> 6) + 1) << 6;
+        }
+        return UNKNOWN;
+    }
+
+    public int capacity(int cell) {
+        return capacityOf(beds.get(cell));
+    }
+
+    public int occupied(int cell) {
+        return occupiedOf(beds.get(cell));
+    }
+
+    /** Beds that can be taken: none in a closed cell. */
+    public int freeBeds(int cell) {
+        if (closed.get(cell) != 0) {
+            return 0;
+        }
+        long current = beds.get(cell);
+        return Math.max(capacityOf(current) - occupiedOf(current), 0);
+    }
+
+    public int blockCapacity(int block) {
+        return blockCapacity.get(block);
+    }
+
+    public int blockOccupied(int block) {
+        return blockOccupied.get(block);
+    }
+
+    /** Occupied beds as a whole percentage of capacity, rounded down like CellBlock.utilization. */
+    public int utilization(int block) {
+        int capacity = blockCapacity.get(block);
+        return capacity > 0 ? (int) (blockOccupied.get(block) * 100L / capacity) : 0;
+    }
+
+    public int blockCount() {
+        return blockNames.length;
+    }
+
+    public String blockName(int block) {
+        return blockNames[block];
+    }
+
+    public int blockOf(int cell) {
+        return blockOf[cell];
+    }
+
+    public String cellId(int cell) {
+        return cellIds[cell];
+    }
+
+    public String cellNumber(int cell) {
+        return cellNumbers[cell];
+    }
+
+    // Sets or clears the cell's free bit to match its beds. A concurrent change can flip the
+    // answer between reading the beds and writing the bit, so check again after writing.
+    private void syncFree(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        while (true) {
+            boolean hasFree = freeBeds(cell) > 0;
+            long bits = free.get(word);
+            long updated = hasFree ? bits | bit : bits & ~bit;
+            if ((updated == bits || free.compareAndSet(word, bits, updated)) && hasFree == freeBeds(cell) > 0) {
+                return;
+            }
+        }
+    }
+
+    private static long pack(int capacity, int occupied) {
+        return ((long) capacity << 32) | (occupied & 0xFFFFFFFFL);
+    }
+
+    private static int capacityOf(long beds) {
+        return (int) (beds >>> 32);
+    }
+
+    private static int occupiedOf(long beds) {
+        return (int) beds;
+    }
+}
@@ -0,0 +1,192 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The facility's beds in memory ({@link OccupancyIndex}), so admissions turn away full cells and
+ * placement finds free beds without going to the database.
+ *
+ * An admission first takes a bed here with {@link #hold}, then claims it in the cells collection
+ * with the guarded update, which stays the final word: the index can lag behind writes made
+ * elsewhere, and then the database turns the admission away instead. A hold is confirmed once the
+ * admission is committed and given back if it is not. Releases, batches and transfers are applied
+ * after their commit.
+ *
+ * The index is loaded at startup (or on first use) and rebuilt every
+ * prisonman.occupancy.reload-interval, and when cells are added, moved or removed. With change
+ * streams, cells changed by other instances are taken on as the events arrive.
+ */
+@Service
+public class OccupancyService {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean loadOnStartup;
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile OccupancyIndex index;
+
+    public OccupancyService(MongoTemplate mongoTemplate,
+                            @Value("${prisonman.occupancy.load-on-startup:true}") boolean loadOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (loadOnStartup) {
+            try {
+                index();
+            } catch (RuntimeException e) {
+                log.warn("Could not load cell occupancy at startup; it is loaded on first use", e);
+            }
+        }
+    }
+
+    /**
+     * Takes a bed in the cell for an admission about to be written. The hold must be confirmed
+     * once the admission is committed, or released if it is not; inside a transaction a rollback
+     * releases it by itself.
+     */
+    public Hold hold(String block, String cellNumber) {
+        OccupancyIndex current = index();
+        int cell = current.cell(block, cellNumber);
+        if (cell == OccupancyIndex.UNKNOWN) {
+            return Hold.UNTRACKED;
+        }
+        return take(current, cell);
+    }
+
+    /** Takes a bed in a cell of the given index, for callers that picked the cell themselves. */
+    Hold take(OccupancyIndex index, int cell) {
+        if (!index.tryTake(cell)) {
+            return Hold.FULL;
+        }
+        Hold hold = new Hold(index, cell);
+        TransactionRunner.afterRollback(hold::release);
+        return hold;
+    }
+
+    /** Applies committed changes to a cell's occupancy (releases, batches, transfers). */
+    public void adjust(String block, String cellNumber, int delta) {
+        OccupancyIndex current = index;
+        if (current != null) {
+            int cell = current.cell(block, cellNumber);
+            if (cell != OccupancyIndex.UNKNOWN) {
+                current.add(cell, delta);
+            }
+        }
+    }
+
+    /**
+     * Takes on a cell as stored in the database. A cell the index does not have, or has under
+     * another block or number, needs a rebuild.
+     */
+    public void refresh(Cell cell) {
+        OccupancyIndex current = index;
+        if (current == null) {
+            return;
+        }
+        int ordinal = current.cellById(cell.getId());
+        if (ordinal == OccupancyIndex.UNKNOWN || ordinal != current.cell(cell.getBlock(), cell.getCellNumber())) {
+            invalidate();
+        } else {
+            current.observe(ordinal, cell.getCapacity(), cell.getCurrentOccupancy());
+            current.observeStatus(ordinal, cell.getStatus());
+        }
+    }
+
+    /** The index as it stands, loading it first if needed. */
+    public OccupancyIndex index() {
+        OccupancyIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            if (index == null) {
+                index = load();
+            }
+            return index;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /** Drops the index, e.g. after cells were added or removed; the next use loads it again. */
+    public void invalidate() {
+        index = null;
+    }
+
+    @Scheduled(fixedDelayString = "${prisonman.occupancy.reload-interval:PT5M}",
+            initialDelayString = "${prisonman.occupancy.reload-interval:PT5M}")
+    public void reload() {
+        if (index != null) {
+            index = load();
+        }
+    }
+
+    private OccupancyIndex load() {
+        long start = System.nanoTime();
+        Query query = new Query();
+        query.fields().include("block", "cellNumber", "capacity", "currentOccupancy", "status");
+        List<Cell> cells = mongoTemplate.find(query, Cell.class);
+        OccupancyIndex loaded = new OccupancyIndex(cells);
+        log.debug("Loaded occupancy of {} cell(s) in {} block(s) in {} ms", cells.size(), loaded.blockCount(),
+                (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+
+    /**
+     * A bed taken in memory for one admission. Confirming or releasing it twice, or both, has no
+     * further effect.
+     */
+    public static final class Hold {
+
+        /** The index has no such cell (e.g. one just created): leave the decision to the database. */
+        public static final Hold UNTRACKED = new Hold(null, OccupancyIndex.UNKNOWN);
+
+        /** The cell has no free bed. */
+        public static final Hold FULL = new Hold(null, OccupancyIndex.UNKNOWN);
+
+        private final OccupancyIndex index;
+        private final int cell;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        private Hold(OccupancyIndex index, int cell) {
+            this.index = index;
+            this.cell = cell;
+        }
+
+        public boolean full() {
+            return this == FULL;
+        }
+
+        public void confirm() {
+            if (index != null && open.compareAndSet(true, false)) {
+                index.confirm(cell);
+            }
+        }
+
+        public void release() {
+            if (index != null && open.compareAndSet(true, false)) {
+                index.giveBack(cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.Prisonman.Prisonman.Service;
+
+/**
+ * Paging parameters accepted by the list endpoints, bound from the query string:
+ * {@code ?limit=200&after=<cursor>&fields=inmateId,name,status&count=true}.
+ *
+ * @param limit  page size; falls back to prisonman.paging.default-limit, capped at prisonman.paging.max-limit
+ * @param after  cursor returned in X-Next-Cursor by the previous page
+ * @param fields comma-separated properties to return (the id is always included)
+ * @param count  also return the total number of matches in X-Total-Count
+ */
+public record PageQuery(Integer limit, String after, String fields, Boolean count) {
+
+    public boolean countRequested() {
+        return Boolean.TRUE.equals(count);
+    }
+}
@@ -0,0 +1,19 @@
+package com.Prisonman.Prisonman.Service;
+
+import java.util.List;
+
+/**
+ * Constraints for automatic cell placement, bound from the query string of POST /api/inmates and
+ * /api/inmates/batch. They apply to inmates sent without a cellNumber; all are optional.
+ *
+ * @param blocks       blocks the inmate may be placed in; otherwise the inmate's own block if it
+ *                     has one, else any block
+ * @param separateFrom inmate ids (co-defendants, rivals) whose cells are not to be shared
+ * @param separate     batches only: no two inmates of the batch share a cell
+ */
+public record PlacementOptions(List<String> blocks, List<String> separateFrom, Boolean separate) {
+
+    public boolean separateBatch() {
+        return Boolean.TRUE.equals(separate);
+    }
+}
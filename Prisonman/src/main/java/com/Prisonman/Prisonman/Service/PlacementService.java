@@ -0,0 +1,227 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Inmate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Picks cells for inmates admitted without one, from the free beds in {@link OccupancyIndex}.
+ *
+ * Inmates go to the allowed block with the lowest utilization, so intake evens out
+ * CellBlock.utilization across the facility; within a block they fill the lowest-numbered cell
+ * with a free bed, which the index finds from its free-bed bitmap. A batch is planned as a whole:
+ * blocks sit in a priority queue ordered by utilization including the beds already planned, and
+ * each block keeps a cursor on its next candidate cell, so planning costs about one queue
+ * operation per inmate however many beds the facility has.
+ */
+@Service
+public class PlacementService {
+
+    private final OccupancyService occupancy;
+    private final MongoTemplate mongoTemplate;
+
+    public PlacementService(OccupancyService occupancy, MongoTemplate mongoTemplate) {
+        this.occupancy = occupancy;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Picks a cell for one inmate, holds a bed in it and sets the inmate's block and cell number.
+     *
+     * @param refusedCellIds cells the database already turned this admission away from
+     * @return the hold, or {@link OccupancyService.Hold#FULL} when no allowed cell has a free bed
+     */
+    public OccupancyService.Hold place(Inmate inmate, PlacementOptions options, Set<String> refusedCellIds) {
+        OccupancyIndex index = occupancy.index();
+        Set<Integer> avoid = avoidedCells(index, options);
+        refusedCellIds.forEach(cellId -> avoid.add(index.cellById(cellId)));
+
+        List<Integer> blocks = allowedBlocks(index, options, inmate.getBlock());
+        blocks.sort(Comparator.<Integer>comparingDouble(block -> load(index, block, 0)).thenComparingInt(block -> block));
+        for (int block : blocks) {
+            for (int cell = index.firstFree(block); cell != OccupancyIndex.UNKNOWN; cell = index.nextFree(cell)) {
+                if (avoid.contains(cell)) {
+                    continue;
+                }
+                OccupancyService.Hold hold = occupancy.take(index, cell);
+                if (!hold.full()) {
+                    inmate.setBlock(index.blockName(block));
+                    inmate.setCellNumber(index.cellNumber(cell));
+                    return hold;
+                }
+            }
+        }
+        return OccupancyService.Hold.FULL;
+    }
+
+    /**
+     * Plans cells for the inmates at {@code indexes} and sets their block and cell number. No
+     * beds are held: the batch claims them in the database itself.
+     *
+     * @return the indexes that could not be placed
+     */
+    public Set<Integer> plan(List<Inmate> inmates, Collection<Integer> indexes, PlacementOptions options) {
+        Set<Integer> unplaced = new HashSet<>();
+        if (indexes.isEmpty()) {
+            return unplaced;
+        }
+        OccupancyIndex index = occupancy.index();
+        Batch batch = new Batch(index, avoidedCells(index, options), options.separateBatch());
+
+        for (int i : indexes) {
+            Inmate inmate = inmates.get(i);
+            int cell = batch.next(allowedBlocks(index, options, inmate.getBlock()));
+            if (cell == OccupancyIndex.UNKNOWN) {
+                unplaced.add(i);
+            } else {
+                inmate.setBlock(index.blockName(index.blockOf(cell)));
+                inmate.setCellNumber(index.cellNumber(cell));
+            }
+        }
+        return unplaced;
+    }
+
+    private static List<Integer> allowedBlocks(OccupancyIndex index, PlacementOptions options, String inmateBlock) {
+        List<Integer> blocks = new ArrayList<>();
+        if (options.blocks() != null && !options.blocks().isEmpty()) {
+            options.blocks().forEach(name -> addBlock(index, blocks, name));
+        } else if (inmateBlock != null && !inmateBlock.isBlank()) {
+            addBlock(index, blocks, inmateBlock);
+        } else {
+            for (int block = 0; block < index.blockCount(); block++) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    private static void addBlock(OccupancyIndex index, List<Integer> blocks, String name) {
+        int block = index.block(name);
+        if (block != OccupancyIndex.UNKNOWN && !blocks.contains(block)) {
+            blocks.add(block);
+        }
+    }
+
+    // The cells of the inmates to keep apart from
+    private Set<Integer> avoidedCells(OccupancyIndex index, PlacementOptions options) {
+        Set<Integer> cells = new HashSet<>();
+        if (options.separateFrom() == null || options.separateFrom().isEmpty()) {
+            return cells;
+        }
+        Query others = query(where("inmateId").in(options.separateFrom()));
+        others.fields().include("block", "cellNumber");
+        for (Inmate other : mongoTemplate.find(others, Inmate.class)) {
+            int cell = index.cell(other.getBlock(), other.getCellNumber());
+            if (cell != OccupancyIndex.UNKNOWN) {
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    // Share of the block's beds taken, counting the ones planned for the batch; full blocks last
+    private static double load(OccupancyIndex index, int block, int planned) {
+        int capacity = index.blockCapacity(block);
+        return capacity > 0 ? (index.blockOccupied(block) + planned) / (double) capacity : Double.MAX_VALUE;
+    }
+
+    /** The beds a batch has planned so far, on top of what the index says is taken. */
+    private static final class Batch {
+
+        private final OccupancyIndex index;
+        private final Set<Integer> avoid;
+        private final boolean separate;
+        private final Map<Integer, Integer> plannedByCell = new HashMap<>();
+        private final int[] plannedByBlock;
+        private final int[] cursor;
+        private final PriorityQueue<Integer> emptiest;
+
+        Batch(OccupancyIndex index, Set<Integer> avoid, boolean separate) {
+            this.index = index;
+            this.avoid = avoid;
+            this.separate = separate;
+            this.plannedByBlock = new int[index.blockCount()];
+            this.cursor = new int[index.blockCount()];
+            this.emptiest = new PriorityQueue<>(Math.max(index.blockCount(), 1), byLoad());
+            for (int block = 0; block < index.blockCount(); block++) {
+                cursor[block] = index.firstFree(block);
+                if (cursor[block] != OccupancyIndex.UNKNOWN) {
+                    emptiest.add(block);
+                }
+            }
+        }
+
+        /** Plans a bed in the emptiest of the allowed blocks and returns its cell, or UNKNOWN. */
+        int next(List<Integer> allowed) {
+            if (allowed.size() == index.blockCount()) {
+                // Any block will do: take the emptiest, dropping blocks that turn out to have no bed left
+                while (!emptiest.isEmpty()) {
+                    int block = emptiest.poll();
+                    int cell = take(block);
+                    if (cell != OccupancyIndex.UNKNOWN) {
+                        emptiest.add(block);
+                        return cell;
+                    }
+                }
+                return OccupancyIndex.UNKNOWN;
+            }
+
+            allowed.sort(byLoad());
+            for (int block : allowed) {
+                // Keep the shared queue's order right for the blocks whose load changes
+                boolean queued = emptiest.remove(block);
+                int cell = take(block);
+                if (cell != OccupancyIndex.UNKNOWN) {
+                    emptiest.add(block);
+                    return cell;
+                }
+                if (queued && cursor[block] != OccupancyIndex.UNKNOWN) {
+                    emptiest.add(block);
+                }
+            }
+            return OccupancyIndex.UNKNOWN;
+        }
+
+        // Ties go to the block listed first, so a batch is planned the same way every time
+        private Comparator<Integer> byLoad() {
+            return Comparator.<Integer>comparingDouble(block -> load(index, block, plannedByBlock[block]))
+                    .thenComparingInt(block -> block);
+        }
+
+        // Cells only fill up while planning, so the cursor never has to move back
+        private int take(int block) {
+            int cell = cursor[block];
+            while (cell != OccupancyIndex.UNKNOWN && !available(cell)) {
+                cell = index.nextFree(cell);
+            }
+            cursor[block] = cell;
+            if (cell == OccupancyIndex.UNKNOWN) {
+                return cell;
+            }
+            plannedByCell.merge(cell, 1, Integer::sum);
+            plannedByBlock[block]++;
+            return cell;
+        }
+
+        private boolean available(int cell) {
+            int planned = plannedByCell.getOrDefault(cell, 0);
+            return !avoid.contains(cell)
+                    && index.freeBeds(cell) > planned
+                    && (!separate || planned == 0);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.BlockOccupancy;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.ReportRow;
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Report figures computed by the database: each report is one aggregation pipeline whose groups
+ * come back as a handful of rows, instead of the client downloading whole collections to count
+ * them.
+ *
+ * Results are cached per report and parameters under the source collection's
+ * {@link CollectionVersions#stamp}, so a cached report is served until that collection is written
+ * to (or, for writes this instance does not see, until validator-max-age has passed).
+ */
+@Service
+public class ReportService {
+
+    public static final String CACHE = "reports";
+
+    private final MongoTemplate mongoTemplate;
+    private final CollectionVersions collectionVersions;
+    private final Cache cache;
+    private final int maxRows;
+
+    public ReportService(MongoTemplate mongoTemplate, CollectionVersions collectionVersions,
+                         CacheManager cacheManager, @Value("${prisonman.reports.max-rows:500}") int maxRows) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionVersions = collectionVersions;
+        Cache reports = cacheManager.getCache(CACHE);
+        this.cache = reports == null ? new NoOpCache(CACHE) : reports;
+        this.maxRows = maxRows;
+    }
+
+    /** Inmates counted by status, block or charge; charges come most frequent first. */
+    public List<ReportRow> inmatesBy(String by) {
+        String field = switch (by.toLowerCase(Locale.ROOT)) {
+            case "status" -> "status";
+            case "block" -> "block";
+            case "charge", "charges" -> "charges";
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Inmates can be reported by status, block or charge.");
+        };
+        Sort order = field.equals("charges")
+                ? Sort.by(Sort.Direction.DESC, "count").and(Sort.by("_id"))
+                : Sort.by("_id");
+        return cached("inmates", "inmates-by-" + field, () -> counts(Inmate.class, null, field, order));
+    }
+
+    /** Visits counted by day or status, optionally within a date range (inclusive). */
+    public List<ReportRow> visitsBy(String by, LocalDate from, LocalDate to) {
+        String field = switch (by.toLowerCase(Locale.ROOT)) {
+            case "day" -> "visitDate";
+            case "status" -> "status";
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Visits can be reported by day or status.");
+        };
+        Criteria range = null;
+        if (from != null || to != null) {
+            range = where("visitDate");
+            if (from != null) {
+                range.gte(from);
+            }
+            if (to != null) {
+                range.lte(to);
+            }
+        }
+        Criteria filter = range;
+        return cached("visitors", "visits-by-" + field + "|" + from + "|" + to,
+                () -> counts(Visitor.class, filter, field, Sort.by("_id")));
+    }
+
+    /** Cells, free cells, beds and occupied beds per block, from the cells themselves. */
+    public List<BlockOccupancy> occupancyByBlock() {
+        return cached("cells", "occupancy-by-block", () -> {
+            Aggregation aggregation = newAggregation(
+                    group("block").count().as("cells")
+                            .sum(ConditionalOperators.when(ComparisonOperators.valueOf("currentOccupancy").lessThan("capacity"))
+                                    .then(1).otherwise(0)).as("availableCells")
+                            .sum("capacity").as("capacity")
+                            .sum("currentOccupancy").as("occupied"),
+                    sort(Sort.by("_id")),
+                    limit(maxRows));
+
+            List<BlockOccupancy> rows = new ArrayList<>();
+            for (Document row : mongoTemplate.aggregate(aggregation, Cell.class, Document.class)) {
+                int capacity = intOf(row, "capacity");
+                int occupied = intOf(row, "occupied");
+                rows.add(new BlockOccupancy(row.getString("_id"), intOf(row, "cells"), intOf(row, "availableCells"),
+                        capacity, occupied, capacity > 0 ? (int) (occupied * 100L / capacity) : 0));
+            }
+            return rows;
+        });
+    }
+
+    private List<ReportRow> counts(Class<?> type, Criteria filter, String field, Sort order) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (filter != null) {
+            stages.add(match(filter));
+        }
+        stages.add(group(field).count().as("count"));
+        stages.add(sort(order));
+        stages.add(limit(maxRows));
+
+        List<ReportRow> rows = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(newAggregation(stages), type, Document.class)) {
+            rows.add(new ReportRow(keyOf(row.get("_id")), row.get("count", Number.class).longValue()));
+        }
+        return rows;
+    }
+
+    private <T> List<T> cached(String collection, String report, Supplier<List<T>> compute) {
+        return cache.get(report + "@" + collectionVersions.stamp(collection), compute::get);
+    }
+
+    // Days are stored as midnight UTC; dates not yet migrated are still strings
+    private static String keyOf(Object key) {
+        if (key instanceof Date date) {
+            return LocalDate.ofInstant(date.toInstant(), ZoneOffset.UTC).toString();
+        }
+        return key == null ? null : key.toString();
+    }
+
+    private static int intOf(Document row, String field) {
+        Number value = row.get(field, Number.class);
+        return value == null ? 0 : value.intValue();
+    }
+}
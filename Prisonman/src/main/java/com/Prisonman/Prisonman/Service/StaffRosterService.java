@@ -0,0 +1,208 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.DutyCount;
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.Staff;
+import com.Prisonman.Prisonman.Model.StaffShift;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Who is on duty, by department and shift ({@link DutyRoster}), kept from the staff records
+ * themselves rather than hand-entered figures.
+ *
+ * The roster is loaded on first use from the staff on duty (served by the status index), then
+ * moved by each staff write through the API and, with change streams, by writes made elsewhere.
+ * It is rebuilt every prisonman.staff.roster-reload-interval to pick up anything those missed.
+ * Writes made while it is not loaded are left for the load to read. Writes made while a load is
+ * reading are journaled and applied on top of what it read, since the read may have passed those
+ * staff already; the loaded roster only replaces the old one once they are in.
+ */
+@Service
+public class StaffRosterService {
+
+    private static final Logger log = LoggerFactory.getLogger(StaffRosterService.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    // One load at a time; lock guards the installed roster and the journal, and is held only briefly
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile DutyRoster roster;
+    // Staff written while a load is reading, by id; null once removed. Null when no load is running
+    private Map<String, Staff> journal;
+    private long invalidations;
+
+    public StaffRosterService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Takes on a staff member as stored. */
+    public void put(Staff staff) {
+        if (staff.getId() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.put(staff.getId(), staff);
+            }
+            DutyRoster current = roster;
+            if (current != null) {
+                apply(current, staff);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String staffId) {
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.put(staffId, null);
+            }
+            DutyRoster current = roster;
+            if (current != null) {
+                current.remove(staffId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Ids of the staff on duty in the department, in one shift (by label, e.g. "Night") or any. */
+    public List<String> onDuty(String department, String shift) {
+        StaffShift wanted;
+        try {
+            wanted = StaffShift.of(shift);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown shift: " + shift + ".");
+        }
+        return roster().onDuty(department, wanted);
+    }
+
+    public List<DutyCount> counts() {
+        return roster().counts();
+    }
+
+    /** Drops the roster, e.g. after a bulk import; the next use loads it again. */
+    public void invalidate() {
+        lock.lock();
+        try {
+            roster = null;
+            // A load reading now may have missed the import: it must not be installed
+            invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${prisonman.staff.roster-reload-interval:PT5M}",
+            initialDelayString = "${prisonman.staff.roster-reload-interval:PT5M}")
+    public void reload() {
+        if (roster == null) {
+            return;
+        }
+        loadLock.lock();
+        try {
+            if (roster != null) {
+                load();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private DutyRoster roster() {
+        DutyRoster current = roster;
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = roster;
+            while (current == null) {
+                current = load();
+            }
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the staff on duty and installs them with the writes journaled meanwhile applied on
+     * top. Returns null, installing nothing, if the roster was invalidated during the read.
+     */
+    private DutyRoster load() {
+        long start = System.nanoTime();
+        long invalidationsAtStart;
+        lock.lock();
+        try {
+            journal = new HashMap<>();
+            invalidationsAtStart = invalidations;
+        } finally {
+            lock.unlock();
+        }
+
+        DutyRoster loaded = new DutyRoster();
+        try {
+            Query onDuty = query(where("status").is(DutyStatus.ON_DUTY));
+            onDuty.fields().include("department", "shift", "status");
+            try (Stream<Staff> staff = mongoTemplate.stream(onDuty, Staff.class)) {
+                staff.forEach(member -> apply(loaded, member));
+            }
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                journal = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        // Taking the journal and installing happen under one lock, so no write falls in between
+        lock.lock();
+        try {
+            Map<String, Staff> changes = journal;
+            journal = null;
+            if (invalidations != invalidationsAtStart) {
+                return null;
+            }
+            changes.forEach((staffId, staff) -> {
+                if (staff == null) {
+                    loaded.remove(staffId);
+                } else {
+                    apply(loaded, staff);
+                }
+            });
+            roster = loaded;
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Loaded {} staff on duty in {} ms", loaded.onDuty(), (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+
+    private static void apply(DutyRoster roster, Staff staff) {
+        roster.put(staff.getId(), staff.getDepartment(), staff.getShift(), staff.getStatus());
+    }
+}
@@ -0,0 +1,135 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.mongodb.MongoException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs the writes that must land together (an inmate and its bed, a release and the deletion, a
+ * batch of transfers) in one Mongo transaction when prisonman.mongo.transactions is on, and
+ * simply runs them otherwise.
+ *
+ * A transaction that fails with a transient error (typically a write conflict with a concurrent
+ * admission to the same cell) is rolled back and run again from the start, up to
+ * prisonman.mongo.transaction-attempts times, so the work must not have effects outside the
+ * database. Those go through {@link #afterCommit}: cache evictions, change events, activity
+ * counts and the block totals. Keeping the block totals out of the transaction is deliberate;
+ * every admission to a block updates the same counter document, and inside the transaction that
+ * would make admissions to different cells conflict with each other. Only admissions competing
+ * for the same cell are ever retried.
+ */
+@Service
+public class TransactionRunner {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    public TransactionRunner(ObjectProvider<MongoTransactionManager> transactionManager,
+                             @Value("${prisonman.mongo.transaction-attempts:5}") int maxAttempts,
+                             @Value("${prisonman.mongo.transaction-backoff:PT0.01S}") Duration backoff) {
+        MongoTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager == null ? null : new TransactionTemplate(manager);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    public boolean enabled() {
+        return transactionTemplate != null;
+    }
+
+    /**
+     * Runs {@code work} in a transaction, retrying it on transient errors. Joins the transaction
+     * already in progress, if any; that one's owner does the retrying.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        if (transactionTemplate == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed, and never if it rolls back
+     * (or is retried). Runs it straight away when there is no transaction.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        // afterCompletion, not afterCommit: by then the synchronization is cleared, so writes the
+        // action makes run outside the finished transaction and can register nothing further
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} if the current transaction rolls back, for state outside the database
+     * taken during it. Does nothing without a transaction: the caller undoes that state itself.
+     */
+    public static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /** Undoes a step by hand when no transaction will roll it back. */
+    public static void compensate(Runnable undo) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            undo.run();
+        }
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo
+                    && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Jittered, so two transactions that conflicted do not collide again on the retry
+    private void pause(int attempt) {
+        long nanos = backoff.toNanos() << Math.min(attempt - 1, 6);
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(nanos / 2, nanos + 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a transaction", e);
+        }
+    }
+}
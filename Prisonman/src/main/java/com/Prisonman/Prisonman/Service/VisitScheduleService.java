@@ -0,0 +1,210 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Visitor;
+import com.Prisonman.Prisonman.Model.VisitSlot;
+import com.Prisonman.Prisonman.Model.VisitStatus;
+import com.Prisonman.Prisonman.Service.VisitSlotIndex.Booking;
+import com.Prisonman.Prisonman.Service.VisitSlotIndex.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Admission control for visits: every booking, reschedule or cancellation goes through the
+ * {@link VisitSlotIndex}, which enforces visiting hours, room capacity per slot and the
+ * per-inmate limits, and answers free-slot queries from memory.
+ *
+ * The index is loaded from the visitors collection on first use and rebuilt periodically, so
+ * edits made outside the API are picked up. Only visits from the start of the current week on
+ * are loaded; earlier ones can no longer affect a booking. It is per instance: with several instances the
+ * limits hold per instance, and the periodic rebuild is what brings them back in step.
+ */
+@Service
+public class VisitScheduleService {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitScheduleService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int slotMinutes;
+    private final LocalTime opens;
+    private final LocalTime closes;
+    private final int roomCapacity;
+    private final int maxPerInmatePerDay;
+    private final int maxPerInmatePerWeek;
+    private final ZoneId zone;
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile VisitSlotIndex index;
+
+    public VisitScheduleService(MongoTemplate mongoTemplate,
+                                @Value("${prisonman.visits.slot-minutes:30}") int slotMinutes,
+                                @Value("${prisonman.visits.opens:08:00}") LocalTime opens,
+                                @Value("${prisonman.visits.closes:20:00}") LocalTime closes,
+                                @Value("${prisonman.visits.room-capacity:20}") int roomCapacity,
+                                @Value("${prisonman.visits.max-per-inmate-per-day:2}") int maxPerInmatePerDay,
+                                @Value("${prisonman.visits.max-per-inmate-per-week:4}") int maxPerInmatePerWeek,
+                                @Value("${prisonman.activity.zone:UTC}") ZoneId zone) {
+        this.mongoTemplate = mongoTemplate;
+        this.slotMinutes = slotMinutes;
+        this.opens = opens;
+        this.closes = closes;
+        this.roomCapacity = roomCapacity;
+        this.maxPerInmatePerDay = maxPerInmatePerDay;
+        this.maxPerInmatePerWeek = maxPerInmatePerWeek;
+        this.zone = zone;
+    }
+
+    /**
+     * Claims the visitor's slot before the visit is saved, or frees it if the visit no longer
+     * takes one (cancelled). The visitor must already have its _id; {@code before} is the visit as
+     * stored, or null for a new one.
+     */
+    public Result reserve(Visitor before, Visitor visitor) {
+        if (!holdsSlot(visitor)) {
+            index().remove(visitor.get_id());
+            return Result.ACCEPTED;
+        }
+        LocalDateTime time = scheduledTime(visitor);
+        if (time == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "visitDate and visitTime are required.");
+        }
+        LocalDateTime storedTime = holdsSlot(before) ? scheduledTime(before) : null;
+        Booking stored = storedTime == null ? null : bookingOf(before, storedTime);
+        return index().tryBook(bookingOf(visitor, time), stored, LocalDateTime.now(zone));
+    }
+
+    /** Puts a visit's slot back as it was, e.g. after a save that failed. */
+    public void restore(Visitor visitor) {
+        LocalDateTime time = holdsSlot(visitor) ? scheduledTime(visitor) : null;
+        if (time == null) {
+            index().remove(visitor.get_id());
+        } else {
+            index().put(bookingOf(visitor, time));
+        }
+    }
+
+    public void release(String visitId) {
+        index().remove(visitId);
+    }
+
+    /**
+     * Bookable slots for the inmate on {@code days} days from {@code from} (today when null),
+     * leaving out slots already past.
+     */
+    public List<VisitSlot> freeSlots(String inmateId, LocalDate from, int days) {
+        LocalDateTime now = LocalDateTime.now(zone);
+        LocalDate first = from != null ? from : now.toLocalDate();
+        return index().freeSlots(inmateId, first, first.plusDays(days), now);
+    }
+
+    /** Drops the index, e.g. after a bulk import; the next use loads it again. */
+    public void invalidate() {
+        index = null;
+    }
+
+    @Scheduled(fixedDelayString = "${prisonman.visits.reload-interval:PT5M}",
+            initialDelayString = "${prisonman.visits.reload-interval:PT5M}")
+    public void reload() {
+        VisitSlotIndex current = index;
+        if (current != null) {
+            load(current);
+        }
+    }
+
+    /** The visit's date and time, or null when either is missing. */
+    public static LocalDateTime scheduledTime(Visitor visitor) {
+        if (visitor.getVisitDate() == null || visitor.getVisitTime() == null) {
+            return null;
+        }
+        return visitor.getVisitDate().atTime(visitor.getVisitTime());
+    }
+
+    /** Cancelled visits give up their slot; scheduled and completed ones keep it. */
+    public static boolean holdsSlot(Visitor visitor) {
+        return visitor != null && visitor.getStatus() != VisitStatus.CANCELLED;
+    }
+
+    private VisitSlotIndex index() {
+        VisitSlotIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            if (index == null) {
+                VisitSlotIndex loaded = new VisitSlotIndex(slotMinutes, opens, closes, roomCapacity,
+                        maxPerInmatePerDay, maxPerInmatePerWeek);
+                load(loaded);
+                index = loaded;
+            }
+            return index;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void load(VisitSlotIndex target) {
+        long start = System.nanoTime();
+        target.beginReload();
+
+        // From the Monday of the current week on (served by the visitDate index): the per-inmate
+        // limits count within a week and slots already started cannot be booked, so older visits
+        // decide nothing, and a growing history does not make every reload read more
+        Query query = query(where("visitDate").gte(weekStart(LocalDate.now(zone))));
+        query.fields().include("visitDate", "visitTime", "status", "idNumber", "visitingInmate");
+        List<Booking> bookings = new ArrayList<>();
+        int unreadable = 0;
+        try (Stream<Visitor> visitors = mongoTemplate.stream(query, Visitor.class)) {
+            for (Visitor visitor : (Iterable<Visitor>) visitors::iterator) {
+                if (!holdsSlot(visitor)) {
+                    continue;
+                }
+                LocalDateTime time = scheduledTime(visitor);
+                if (time == null) {
+                    unreadable++;
+                } else {
+                    bookings.add(bookingOf(visitor, time));
+                }
+            }
+        }
+        target.finishReload(bookings);
+
+        if (unreadable > 0) {
+            log.warn("{} visit(s) have an unreadable date or time and hold no slot", unreadable);
+        }
+        log.debug("Loaded {} visit booking(s) in {} ms", bookings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static Booking bookingOf(Visitor visitor, LocalDateTime time) {
+        String idNumber = visitor.getIdNumber();
+        String visitorKey = idNumber == null || idNumber.isBlank() ? null : idNumber.trim().toUpperCase(Locale.ROOT);
+        return new Booking(visitor.get_id(), visitor.getVisitingInmate(), visitorKey, time);
+    }
+}
@@ -0,0 +1,362 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.VisitSlot;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of booked visits, by slot, inmate and visitor.
+ *
+ * The day is divided into fixed slots, numbered from the epoch (epochDay * slotsPerDay + slot of
+ * the day), and a visit occupies the slot its start time falls in. Each visitor takes one seat in
+ * the visiting room; all visitors of one inmate in the same slot make up one visit session, and
+ * the per-inmate limits count sessions. Seat counts are an int[] per day and each inmate's
+ * sessions a sorted map by slot, so a booking check is a few hash lookups plus two range counts,
+ * and free slots for a week touch only that week's arrays.
+ *
+ * Checks and updates run under one lock, so two bookings can never both take the last seat.
+ * Bookings already in the database are loaded with {@link #put} without checks, since they are
+ * facts even when they break today's rules.
+ */
+public class VisitSlotIndex {
+
+    public enum Result {
+        ACCEPTED("Visit booked."),
+        OUTSIDE_VISITING_HOURS("The visit is outside visiting hours."),
+        SLOT_STARTED("The visit's slot has already started."),
+        SLOT_FULL("The visiting room is fully booked for that slot."),
+        VISITOR_DOUBLE_BOOKED("The visitor already has a visit booked in that slot."),
+        INMATE_DAILY_LIMIT("The inmate has reached the number of visits allowed per day."),
+        INMATE_WEEKLY_LIMIT("The inmate has reached the number of visits allowed per week.");
+
+        private final String message;
+
+        Result(String message) {
+            this.message = message;
+        }
+
+        public String message() {
+            return message;
+        }
+    }
+
+    /** A visit as the index sees it; visitorKey identifies the visitor (e.g. ID number) and may be null. */
+    public record Booking(String visitId, String inmateId, String visitorKey, LocalDateTime time) {
+    }
+
+    private record Entry(String inmateId, String visitorKey, long slot) {
+    }
+
+    private static final NavigableMap<Long, Integer> EMPTY = Collections.emptyNavigableMap();
+
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final int firstSlot;
+    private final int endSlot;
+    private final int roomCapacity;
+    private final int maxPerInmatePerDay;
+    private final int maxPerInmatePerWeek;
+
+    // Guards the entries, the seat and session counts derived from them, and the reload journal
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, int[]> seatsByDay = new HashMap<>();
+    private final Map<String, TreeMap<Long, Integer>> sessionsByInmate = new HashMap<>();
+    private final Map<String, Integer> visitorSlots = new HashMap<>();
+
+    // Changes made while a reload is reading the database, replayed on top of what it read
+    private Map<String, Entry> journal;
+
+    public VisitSlotIndex(int slotMinutes, LocalTime opens, LocalTime closes, int roomCapacity,
+                          int maxPerInmatePerDay, int maxPerInmatePerWeek) {
+        if (slotMinutes <= 0 || 24 * 60 % slotMinutes != 0) {
+            throw new IllegalArgumentException("Slot length must divide the day evenly: " + slotMinutes + " minutes");
+        }
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = 24 * 60 / slotMinutes;
+        this.firstSlot = (opens.toSecondOfDay() / 60 + slotMinutes - 1) / slotMinutes;
+        this.endSlot = closes.equals(LocalTime.MIDNIGHT) ? slotsPerDay : closes.toSecondOfDay() / 60 / slotMinutes;
+        this.roomCapacity = roomCapacity;
+        this.maxPerInmatePerDay = maxPerInmatePerDay;
+        this.maxPerInmatePerWeek = maxPerInmatePerWeek;
+    }
+
+    /**
+     * Books the visit if the rules allow it. Booking an id that is already booked moves it; the
+     * old booking does not count against the new one, and an unchanged booking is always accepted.
+     * No visit can be moved into a slot that started before {@code notBefore}. A visit that
+     * stays in its slot can still be edited afterwards (another inmate, a corrected name) and is
+     * then taken as it is, since the rules are about slots still to come. {@code stored} is the
+     * visit as saved, for visits from before the loaded weeks, which the index does not hold;
+     * null for a new visit.
+     */
+    public Result tryBook(Booking booking, Booking stored, LocalDateTime notBefore) {
+        Entry entry = entryOf(booking);
+        lock.lock();
+        try {
+            Entry existing = entries.get(booking.visitId());
+            if (entry.equals(existing)) {
+                return Result.ACCEPTED;
+            }
+            if (startOf(entry.slot()).isBefore(notBefore)) {
+                Long storedSlot = existing != null ? Long.valueOf(existing.slot())
+                        : stored != null ? Long.valueOf(slotOf(stored.time())) : null;
+                if (storedSlot == null || storedSlot != entry.slot()) {
+                    return Result.SLOT_STARTED;
+                }
+                put(booking);
+                return Result.ACCEPTED;
+            }
+            int slotOfDay = (int) Math.floorMod(entry.slot(), (long) slotsPerDay);
+            if (slotOfDay < firstSlot || slotOfDay >= endSlot) {
+                return Result.OUTSIDE_VISITING_HOURS;
+            }
+
+            if (existing != null) {
+                unindex(existing);
+            }
+            Result result = check(entry);
+            if (result == Result.ACCEPTED) {
+                index(entry);
+                entries.put(booking.visitId(), entry);
+                record(booking.visitId(), entry);
+            } else if (existing != null) {
+                index(existing);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Adds or moves a booking without checking any rules. */
+    public void put(Booking booking) {
+        Entry entry = entryOf(booking);
+        lock.lock();
+        try {
+            Entry existing = entries.put(booking.visitId(), entry);
+            if (existing != null) {
+                unindex(existing);
+            }
+            index(entry);
+            record(booking.visitId(), entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String visitId) {
+        lock.lock();
+        try {
+            Entry existing = entries.remove(visitId);
+            if (existing != null) {
+                unindex(existing);
+            }
+            record(visitId, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a reload: bookings and removals from here on are remembered, so that
+     * {@link #finishReload} can apply them on top of a database read that may have missed them.
+     */
+    public void beginReload() {
+        lock.lock();
+        try {
+            journal = new HashMap<>();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Replaces the contents with the bookings read from the database since {@link #beginReload}. */
+    public void finishReload(List<Booking> bookings) {
+        lock.lock();
+        try {
+            Map<String, Entry> changes = journal == null ? Map.of() : journal;
+            journal = null;
+            entries.clear();
+            seatsByDay.clear();
+            sessionsByInmate.clear();
+            visitorSlots.clear();
+            for (Booking booking : bookings) {
+                Entry entry = entryOf(booking);
+                entries.put(booking.visitId(), entry);
+                index(entry);
+            }
+            changes.forEach((visitId, entry) -> {
+                Entry existing = entry == null ? entries.remove(visitId) : entries.put(visitId, entry);
+                if (existing != null) {
+                    unindex(existing);
+                }
+                if (entry != null) {
+                    index(entry);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Slots in visiting hours from {@code from} up to, not including, {@code to} that start at or
+     * after {@code notBefore}, still have a seat, and in which the inmate could be visited without
+     * going over a limit (slots where the inmate already has a session can always take another
+     * visitor).
+     */
+    public List<VisitSlot> freeSlots(String inmateId, LocalDate from, LocalDate to, LocalDateTime notBefore) {
+        List<VisitSlot> free = new ArrayList<>();
+        lock.lock();
+        try {
+            NavigableMap<Long, Integer> sessions = sessionsByInmate.get(inmateId);
+            if (sessions == null) {
+                sessions = EMPTY;
+            }
+            for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+                long dayStart = date.toEpochDay() * slotsPerDay;
+                LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                long weekStart = monday.toEpochDay() * slotsPerDay;
+                boolean newSession = sessions.subMap(dayStart, dayStart + slotsPerDay).size() < maxPerInmatePerDay
+                        && sessions.subMap(weekStart, weekStart + 7L * slotsPerDay).size() < maxPerInmatePerWeek;
+
+                int[] seats = seatsByDay.get(date.toEpochDay());
+                for (int s = firstSlot; s < endSlot; s++) {
+                    LocalTime time = LocalTime.ofSecondOfDay(s * slotMinutes * 60L);
+                    int remaining = roomCapacity - (seats == null ? 0 : seats[s]);
+                    if (remaining > 0 && !date.atTime(time).isBefore(notBefore)
+                            && (newSession || sessions.containsKey(dayStart + s))) {
+                        free.add(new VisitSlot(date, time, remaining));
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return free;
+    }
+
+    /** Visitors booked in the slot containing the given time. */
+    public int booked(LocalDateTime time) {
+        long slot = slotOf(time);
+        lock.lock();
+        try {
+            int[] seats = seatsByDay.get(Math.floorDiv(slot, (long) slotsPerDay));
+            return seats == null ? 0 : seats[(int) Math.floorMod(slot, (long) slotsPerDay)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Result check(Entry entry) {
+        long slot = entry.slot();
+        int[] seats = seatsByDay.get(Math.floorDiv(slot, (long) slotsPerDay));
+        if (seats != null && seats[(int) Math.floorMod(slot, (long) slotsPerDay)] >= roomCapacity) {
+            return Result.SLOT_FULL;
+        }
+        if (entry.visitorKey() != null && visitorSlots.containsKey(visitorSlotKey(entry))) {
+            return Result.VISITOR_DOUBLE_BOOKED;
+        }
+
+        TreeMap<Long, Integer> sessions = sessionsByInmate.get(entry.inmateId());
+        if (sessions == null || sessions.containsKey(slot)) {
+            return Result.ACCEPTED;
+        }
+        long dayStart = Math.floorDiv(slot, (long) slotsPerDay) * slotsPerDay;
+        if (sessions.subMap(dayStart, dayStart + slotsPerDay).size() >= maxPerInmatePerDay) {
+            return Result.INMATE_DAILY_LIMIT;
+        }
+        LocalDate monday = LocalDate.ofEpochDay(Math.floorDiv(slot, (long) slotsPerDay))
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long weekStart = monday.toEpochDay() * slotsPerDay;
+        if (sessions.subMap(weekStart, weekStart + 7L * slotsPerDay).size() >= maxPerInmatePerWeek) {
+            return Result.INMATE_WEEKLY_LIMIT;
+        }
+        return Result.ACCEPTED;
+    }
+
+    private void index(Entry entry) {
+        long slot = entry.slot();
+        seatsByDay.computeIfAbsent(Math.floorDiv(slot, (long) slotsPerDay), day -> new int[slotsPerDay])
+                [(int) Math.floorMod(slot, (long) slotsPerDay)]++;
+        sessionsByInmate.computeIfAbsent(entry.inmateId(), inmate -> new TreeMap<>()).merge(slot, 1, Integer::sum);
+        if (entry.visitorKey() != null) {
+            visitorSlots.merge(visitorSlotKey(entry), 1, Integer::sum);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        long slot = entry.slot();
+        long day = Math.floorDiv(slot, (long) slotsPerDay);
+        int[] seats = seatsByDay.get(day);
+        if (seats != null && --seats[(int) Math.floorMod(slot, (long) slotsPerDay)] == 0 && isEmpty(seats)) {
+            seatsByDay.remove(day);
+        }
+        TreeMap<Long, Integer> sessions = sessionsByInmate.get(entry.inmateId());
+        if (sessions != null) {
+            sessions.computeIfPresent(slot, (s, visitors) -> visitors == 1 ? null : visitors - 1);
+            if (sessions.isEmpty()) {
+                sessionsByInmate.remove(entry.inmateId());
+            }
+        }
+        if (entry.visitorKey() != null) {
+            visitorSlots.computeIfPresent(visitorSlotKey(entry), (key, visits) -> visits == 1 ? null : visits - 1);
+        }
+    }
+
+    private void record(String visitId, Entry entry) {
+        if (journal != null) {
+            journal.put(visitId, entry);
+        }
+    }
+
+    private Entry entryOf(Booking booking) {
+        return new Entry(booking.inmateId(), booking.visitorKey(), slotOf(booking.time()));
+    }
+
+    private long slotOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * slotsPerDay + time.toLocalTime().toSecondOfDay() / 60 / slotMinutes;
+    }
+
+    private LocalDateTime startOf(long slot) {
+        return LocalDate.ofEpochDay(Math.floorDiv(slot, (long) slotsPerDay))
+                .atStartOfDay()
+                .plusMinutes(Math.floorMod(slot, (long) slotsPerDay) * (long) slotMinutes);
+    }
+
+    private static String visitorSlotKey(Entry entry) {
+        return entry.slot() + "/" + entry.visitorKey();
+    }
+
+    private static boolean isEmpty(int[] seats) {
+        for (int seat : seats) {
+            if (seat != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
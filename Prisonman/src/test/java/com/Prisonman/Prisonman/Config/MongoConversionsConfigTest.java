@@ -0,0 +1,43 @@
+package com.Prisonman.Prisonman.Config;
+
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.TypeDescriptor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MongoConversionsConfigTest {
+
+    private final MongoConversionsConfig.StringToLocalDate toDate = new MongoConversionsConfig.StringToLocalDate();
+    private final MongoConversionsConfig.StringToLocalTime toTime = new MongoConversionsConfig.StringToLocalTime();
+    private final MongoConversionsConfig.StringToLabeledEnum toEnum = new MongoConversionsConfig.StringToLabeledEnum();
+
+    @Test
+    void legacyStringsAreRead() {
+        assertThat(toDate.convert(" 2025-1-20 ")).isEqualTo(LocalDate.of(2025, 1, 20));
+        assertThat(toTime.convert("9:05")).isEqualTo(LocalTime.of(9, 5));
+        assertThat(toEnum.convert("on duty", TypeDescriptor.valueOf(String.class), TypeDescriptor.valueOf(DutyStatus.class)))
+                .isEqualTo(DutyStatus.ON_DUTY);
+        assertThat(toDate.convert("")).isNull();
+    }
+
+    @Test
+    void unreadableValuesFailTheReadInsteadOfReadingAsNull() {
+        assertThatThrownBy(() -> toDate.convert("20/01/2025"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'20/01/2025'")
+                .hasMessageContaining("LocalDate");
+        assertThatThrownBy(() -> toTime.convert("half past nine"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'half past nine'");
+        assertThatThrownBy(() -> toEnum.convert("Napping",
+                TypeDescriptor.valueOf(String.class), TypeDescriptor.valueOf(DutyStatus.class)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'Napping'")
+                .hasMessageContaining("DutyStatus");
+    }
+}
@@ -0,0 +1,280 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.IdempotencyRecord;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import com.Prisonman.Prisonman.Repository.InmateRepository;
+import com.Prisonman.Prisonman.Service.ActivityService;
+import com.Prisonman.Prisonman.Service.CellBlockStatsService;
+import com.Prisonman.Prisonman.Service.IdempotencyService;
+import com.Prisonman.Prisonman.Service.LookupCache;
+import com.Prisonman.Prisonman.Service.OccupancyService;
+import com.Prisonman.Prisonman.Service.PlacementOptions;
+import com.Prisonman.Prisonman.Service.TransactionRunner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kills admissions part way (the inmate save fails after the bed was claimed) and retries them
+ * the way a client would, with the same Idempotency-Key. The bed must be given back, no totals may
+ * move for the failed attempt (in memory or in the database), and however often the client retries
+ * the inmate is admitted once. Edits that the cell cannot follow are refused before anything is
+ * saved.
+ *
+ * Runs without transactions, on the hand-written compensation; the idempotency keys live in an
+ * in-memory stand-in for the idempotency_keys collection.
+ */
+class AdmissionFaultInjectionTest {
+
+    private final InmateRepository inmateRepository = mock(InmateRepository.class);
+    private final CellRepository cellRepository = mock(CellRepository.class);
+    private final CellBlockStatsService cellBlockStatsService = mock(CellBlockStatsService.class);
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final Map<String, IdempotencyRecord> keys = new ConcurrentHashMap<>();
+
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    private final InmateController controller = new InmateController();
+    private final OccupancyService occupancy = new OccupancyService(mongoTemplate, false);
+    private final Cell cell = new Cell();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void wireController() {
+        TransactionRunner transactions = new TransactionRunner(mock(ObjectProvider.class), 5, Duration.ZERO);
+        IdempotencyService idempotency = new IdempotencyService(mongoTemplate,
+                new ObjectMapper().findAndRegisterModules(), transactions, Duration.ofMinutes(2));
+
+        ReflectionTestUtils.setField(controller, "inmateRepository", inmateRepository);
+        ReflectionTestUtils.setField(controller, "cellRepository", cellRepository);
+        ReflectionTestUtils.setField(controller, "cellBlockStatsService", cellBlockStatsService);
+        ReflectionTestUtils.setField(controller, "activityService", activityService);
+        ReflectionTestUtils.setField(controller, "lookupCache", mock(LookupCache.class));
+        ReflectionTestUtils.setField(controller, "occupancy", occupancy);
+        ReflectionTestUtils.setField(controller, "transactions", transactions);
+        ReflectionTestUtils.setField(controller, "idempotencyService", idempotency);
+
+        cell.setId("cell-1");
+        cell.setBlock("A");
+        cell.setCellNumber("A-101");
+        cell.setCapacity(2);
+        when(mongoTemplate.find(any(Query.class), eq(Cell.class))).thenReturn(List.of(cell));
+        when(cellRepository.reserveSlot("A", "A-101", "INM001")).thenReturn(Optional.of(cell));
+        when(cellRepository.releaseSlot("A", "A-101", "INM001")).thenReturn(Optional.of(cell));
+
+        storeIdempotencyKeysInMemory();
+    }
+
+    @Test
+    void killedAdmissionGivesTheBedBackAndIsAdmittedOnceOnRetry() {
+        when(inmateRepository.save(any(Inmate.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection reset"))
+                .thenAnswer(invocation -> {
+                    Inmate saved = invocation.getArgument(0);
+                    saved.setId("inmate-1");
+                    return saved;
+                });
+
+        assertThatThrownBy(() -> controller.addInmate(inmate(), NO_OPTIONS, "key-1"))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        verify(cellRepository).releaseSlot("A", "A-101", "INM001");
+        verify(cellBlockStatsService, never()).applyOccupancyChange(anyString(), anyInt());
+        verify(activityService, never()).record(any(ActivityKind.class), anyInt());
+        assertThat(keys).isEmpty();
+        assertThat(bedsTaken()).isZero();
+
+        ResponseEntity<?> retried = controller.addInmate(inmate(), NO_OPTIONS, "key-1");
+        ResponseEntity<?> replayed = controller.addInmate(inmate(), NO_OPTIONS, "key-1");
+
+        assertThat(retried.getStatusCode().value()).isEqualTo(200);
+        assertThat(replayed.getStatusCode().value()).isEqualTo(200);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat((String) replayed.getBody()).contains("\"id\":\"inmate-1\"");
+
+        verify(cellRepository, times(2)).reserveSlot("A", "A-101", "INM001");
+        verify(inmateRepository, times(2)).save(any(Inmate.class));
+        verify(cellBlockStatsService, times(1)).applyOccupancyChange("A", 1);
+        verify(activityService, times(1)).record(ActivityKind.ADMISSION, 1);
+        assertThat(bedsTaken()).isEqualTo(1);
+    }
+
+    @Test
+    void deletingAnInmateCountsOneReleaseUnlessAlreadyReleased() {
+        Inmate held = inmate();
+        held.setId("inmate-1");
+        when(inmateRepository.findByInmateId("INM001")).thenReturn(Optional.of(held));
+
+        assertThat(controller.deleteInmate("INM001").getStatusCode().value()).isEqualTo(204);
+        verify(activityService, times(1)).record(ActivityKind.RELEASE, 1);
+
+        held.setStatus(InmateStatus.RELEASED);
+        assertThat(controller.deleteInmate("INM001").getStatusCode().value()).isEqualTo(204);
+        verify(activityService, times(1)).record(ActivityKind.RELEASE, 1);
+    }
+
+    @Test
+    void keyIsRefusedWhileInUseOrForADifferentRequest() {
+        when(inmateRepository.save(any(Inmate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        keys.put("key-2", new IdempotencyRecord("key-2", "POST /api/inmates", "other-body", "lease", Instant.now()));
+
+        assertThat(controller.addInmate(inmate(), NO_OPTIONS, "key-2").getStatusCode().value()).isEqualTo(422);
+
+        ResponseEntity<?> running = controller.addInmate(inmate(), NO_OPTIONS, "key-3");
+        keys.get("key-3").setCompleted(false);
+        assertThat(running.getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.addInmate(inmate(), NO_OPTIONS, "key-3").getStatusCode().value()).isEqualTo(409);
+
+        verify(cellRepository, times(1)).reserveSlot("A", "A-101", "INM001");
+    }
+
+    @Test
+    void cellFullOnlyInMemoryCatchesUpAndAdmits() {
+        when(inmateRepository.save(any(Inmate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // Loaded full; both beds have since been freed by another instance
+        cell.setCurrentOccupancy(2);
+        occupancy.index();
+        when(cellRepository.findByBlockAndCellNumber("A", "A-101")).thenReturn(Optional.of(stored(0)));
+        when(cellRepository.reserveSlot("A", "A-101", "INM001")).thenReturn(Optional.of(stored(1)));
+
+        assertThat(controller.addInmate(inmate(), NO_OPTIONS, null).getStatusCode().value()).isEqualTo(200);
+        assertThat(bedsTaken()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyTheDatabaseTurnsAnAdmissionAway() {
+        when(inmateRepository.save(any(Inmate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        cell.setCurrentOccupancy(2);
+        occupancy.index();
+        // The fresh read still says full, but a bed is freed before the guarded update runs
+        when(cellRepository.findByBlockAndCellNumber("A", "A-101")).thenReturn(Optional.of(stored(2)));
+        when(cellRepository.reserveSlot("A", "A-101", "INM001")).thenReturn(Optional.of(stored(2)));
+
+        assertThat(controller.addInmate(inmate(), NO_OPTIONS, null).getStatusCode().value()).isEqualTo(200);
+        verify(cellRepository).reserveSlot("A", "A-101", "INM001");
+        assertThat(bedsTaken()).isEqualTo(2);
+
+        when(cellRepository.reserveSlot("A", "A-101", "INM001")).thenReturn(Optional.empty());
+        assertThat(controller.addInmate(inmate(), NO_OPTIONS, null).getStatusCode().value()).isEqualTo(409);
+    }
+
+    @Test
+    void renameThatTheCellCannotFollowIsRefusedBeforeAnythingIsSaved() {
+        Inmate stored = inmate();
+        stored.setId("inmate-1");
+        when(inmateRepository.findById("inmate-1")).thenReturn(Optional.of(stored));
+        Inmate renamed = inmate();
+        renamed.setInmateId("INM002");
+
+        // The cell does not list INM001, or already lists INM002
+        when(cellRepository.renameSlot("A", "A-101", "INM001", "INM002")).thenReturn(Optional.empty());
+        assertThat(controller.updateInmate("inmate-1", renamed).getStatusCode().value()).isEqualTo(409);
+
+        when(inmateRepository.existsByInmateIdAndIdNot("INM002", "inmate-1")).thenReturn(true);
+        assertThat(controller.updateInmate("inmate-1", renamed).getStatusCode().value()).isEqualTo(409);
+        verify(cellRepository, times(1)).renameSlot("A", "A-101", "INM001", "INM002");
+        verify(inmateRepository, never()).save(any(Inmate.class));
+
+        when(inmateRepository.existsByInmateIdAndIdNot("INM002", "inmate-1")).thenReturn(false);
+        when(cellRepository.renameSlot("A", "A-101", "INM001", "INM002")).thenReturn(Optional.of(cell));
+        when(inmateRepository.save(any(Inmate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        assertThat(controller.updateInmate("inmate-1", renamed).getStatusCode().value()).isEqualTo(200);
+        assertThat(stored.getInmateId()).isEqualTo("INM002");
+    }
+
+    private Cell stored(int occupancy) {
+        Cell stored = new Cell();
+        stored.setId(cell.getId());
+        stored.setBlock(cell.getBlock());
+        stored.setCellNumber(cell.getCellNumber());
+        stored.setCapacity(cell.getCapacity());
+        stored.setCurrentOccupancy(occupancy);
+        return stored;
+    }
+
+    private int bedsTaken() {
+        return occupancy.index().occupied(occupancy.index().cell("A", "A-101"));
+    }
+
+    private static Inmate inmate() {
+        Inmate inmate = new Inmate();
+        inmate.setInmateId("INM001");
+        inmate.setName("John Doe");
+        inmate.setBlock("A");
+        inmate.setCellNumber("A-101");
+        return inmate;
+    }
+
+    // insert, findById, updateFirst and remove on idempotency_keys, with Mongo's semantics for them
+    private void storeIdempotencyKeysInMemory() {
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            if (keys.putIfAbsent(record.getKey(), record) != null) {
+                throw new DuplicateKeyException("E11000 duplicate key: " + record.getKey());
+            }
+            return record;
+        });
+        when(mongoTemplate.findById(anyString(), eq(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> keys.get((String) invocation.getArgument(0)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> {
+                    IdempotencyRecord record = matching(invocation.getArgument(0));
+                    if (record == null) {
+                        return UpdateResult.acknowledged(0, 0L, null);
+                    }
+                    Document set = (Document) ((UpdateDefinition) invocation.getArgument(1)).getUpdateObject().get("$set");
+                    record.setCompleted(set.getBoolean("completed"));
+                    record.setStatus(set.getInteger("status"));
+                    record.setBody(set.getString("body"));
+                    record.setJson(set.getBoolean("json"));
+                    return UpdateResult.acknowledged(1, 1L, null);
+                });
+        when(mongoTemplate.remove(any(Query.class), eq(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = matching(invocation.getArgument(0));
+            if (record != null && !record.isCompleted()) {
+                keys.remove(record.getKey());
+            }
+            return null;
+        });
+    }
+
+    private IdempotencyRecord matching(Query query) {
+        Document filter = query.getQueryObject();
+        IdempotencyRecord record = keys.get(filter.getString("_id"));
+        return record != null && record.getLease().equals(filter.getString("lease")) ? record : null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Repository.InmateRepository;
+import com.Prisonman.Prisonman.Service.PlacementOptions;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Fails an admission and a release after the cell has been written but before the inmate has,
+ * with transactions on, and checks that the cells, cell_blocks and inmates documents are exactly
+ * as they were. Needs a real MongoDB replica set (transactions are refused by a standalone
+ * server): point PRISONMAN_TEST_MONGO_URI at a scratch database on one.
+ */
+@SpringBootTest(properties = "prisonman.mongo.transactions=true")
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "PRISONMAN_TEST_MONGO_URI", matches = ".+")
+class AdmissionTransactionTest {
+
+    private static final String BLOCK = "Transaction Block";
+    private static final String CELL = "T-1";
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> System.getenv("PRISONMAN_TEST_MONGO_URI"));
+    }
+
+    @Autowired
+    private InmateController controller;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockitoSpyBean
+    private InmateRepository inmateRepository;
+
+    @BeforeEach
+    void seed() {
+        assumeTrue(mongoTemplate.executeCommand(new Document("hello", 1)).containsKey("setName"),
+                "transactions need a replica set");
+        cleanUp();
+
+        mongoTemplate.insert(new CellBlock(null, BLOCK, 2, 1, 50));
+
+        Cell cell = new Cell();
+        cell.setBlock(BLOCK);
+        cell.setCellNumber(CELL);
+        cell.setCapacity(2);
+        cell.setCurrentOccupancy(1);
+        cell.setStatus("Available");
+        cell.setInmates(new ArrayList<>(List.of("TX-1")));
+        mongoTemplate.insert(cell);
+
+        mongoTemplate.insert(inmate("TX-1"));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        mongoTemplate.remove(query(where("name").is(BLOCK)), CellBlock.class);
+        mongoTemplate.remove(query(where("block").is(BLOCK)), Cell.class);
+        mongoTemplate.remove(query(where("block").is(BLOCK)), Inmate.class);
+    }
+
+    @Test
+    void admissionThatFailsAfterTakingTheBedLeavesNothingBehind() {
+        List<Document> before = stored();
+        AtomicReference<Document> seenInTransaction = new AtomicReference<>();
+        doAnswer(invocation -> {
+            seenInTransaction.set(cellDocument());
+            throw new DataAccessResourceFailureException("connection reset");
+        }).when(inmateRepository).save(any(Inmate.class));
+
+        assertThatThrownBy(() -> controller.addInmate(inmate("TX-2"), NO_OPTIONS, null))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // The bed was taken inside the transaction before the failure, and rolled back with it
+        assertThat(seenInTransaction.get().getList("inmates", String.class)).containsExactly("TX-1", "TX-2");
+        assertThat(stored()).isEqualTo(before);
+    }
+
+    @Test
+    void releaseThatFailsAfterFreeingTheBedLeavesNothingBehind() {
+        List<Document> before = stored();
+        AtomicReference<Document> seenInTransaction = new AtomicReference<>();
+        doAnswer(invocation -> {
+            seenInTransaction.set(cellDocument());
+            throw new DataAccessResourceFailureException("connection reset");
+        }).when(inmateRepository).deleteById(anyString());
+
+        assertThatThrownBy(() -> controller.deleteInmate("TX-1"))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertThat(seenInTransaction.get().getList("inmates", String.class)).isEmpty();
+        assertThat(stored()).isEqualTo(before);
+    }
+
+    // The test's documents in cells, cell_blocks and inmates, as stored
+    private List<Document> stored() {
+        List<Document> documents = new ArrayList<>();
+        documents.addAll(mongoTemplate.find(query(where("block").is(BLOCK)), Document.class, "cells"));
+        documents.addAll(mongoTemplate.find(query(where("name").is(BLOCK)), Document.class, "cell_blocks"));
+        documents.addAll(mongoTemplate.find(query(where("block").is(BLOCK)), Document.class, "inmates"));
+        return documents;
+    }
+
+    private Document cellDocument() {
+        return mongoTemplate.findOne(query(where("block").is(BLOCK).and("cellNumber").is(CELL)),
+                Document.class, "cells");
+    }
+
+    private static Inmate inmate(String inmateId) {
+        Inmate inmate = new Inmate();
+        inmate.setInmateId(inmateId);
+        inmate.setName("Test Inmate");
+        inmate.setBlock(BLOCK);
+        inmate.setCellNumber(CELL);
+        return inmate;
+    }
+}
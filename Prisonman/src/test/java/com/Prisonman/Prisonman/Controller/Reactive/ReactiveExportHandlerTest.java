@@ -0,0 +1,75 @@
+package com.Prisonman.Prisonman.Controller.Reactive;
+
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+/** The exports under the reactive profile, where ExportController is not registered. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+class ReactiveExportHandlerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockitoSpyBean
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Test
+    void csvExportStreamsTheRows() {
+        doReturn(Flux.just(visitor("=cmd"))).when(mongoTemplate).find(any(Query.class), eq(Visitor.class));
+
+        String body = client.get().uri("/api/export/visitors?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectHeader().valueMatches(HttpHeaders.CONTENT_DISPOSITION, ".*visitors\\.csv.*")
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(body).startsWith("_id,id,name,");
+        assertThat(body).contains("\r\nv1,,'=cmd,");
+    }
+
+    @Test
+    void ndjsonExportHasOneDocumentPerLine() {
+        doReturn(Flux.just(visitor("Ann"), visitor("Bob"))).when(mongoTemplate).find(any(Query.class), eq(Visitor.class));
+
+        String body = client.get().uri("/api/export/visitors")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("application/x-ndjson")
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(body.lines()).hasSize(2).allMatch(line -> line.startsWith("{"));
+    }
+
+    @Test
+    void unknownCollectionAndFormatAreRejected() {
+        client.get().uri("/api/export/passwords").exchange().expectStatus().isNotFound();
+        client.get().uri("/api/export/visitors?format=xlsx").exchange().expectStatus().isBadRequest();
+    }
+
+    private static Visitor visitor(String name) {
+        Visitor visitor = new Visitor();
+        visitor.set_id("v1");
+        visitor.setName(name);
+        return visitor;
+    }
+}
@@ -0,0 +1,100 @@
+package com.Prisonman.Prisonman.Controller;
+
+import com.Prisonman.Prisonman.Model.ReportRow;
+import com.Prisonman.Prisonman.Model.StaffStatus;
+import com.Prisonman.Prisonman.Repository.StaffStatusRepository;
+import com.Prisonman.Prisonman.Service.ReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The conditional GETs under the reactive profile, where the annotated controllers run on
+ * WebFlux and WebRequest cannot be resolved: the 304 has to come from the headers alone.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+class ReactiveConditionalGetTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockitoBean
+    private StaffStatusRepository staffStatusRepository;
+
+    @MockitoBean
+    private ReportService reportService;
+
+    @Test
+    void unchangedListIsAnsweredWith304() {
+        when(staffStatusRepository.findAll()).thenReturn(List.of(new StaffStatus()));
+
+        String etag = client.get().uri("/api/staff-status?day=mon")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertThat(etag).startsWith("W/\"");
+
+        client.get().uri("/api/staff-status?day=mon")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+
+        // Other query parameters are another response, with another ETag
+        client.get().uri("/api/staff-status?day=tue")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(staffStatusRepository, times(2)).findAll();
+    }
+
+    @Test
+    void ifModifiedSinceIsHonouredWithoutAnETag() {
+        when(staffStatusRepository.findAll()).thenReturn(List.of());
+
+        String lastModified = client.get().uri("/api/staff-status")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+
+        client.get().uri("/api/staff-status")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void unchangedReportIsAnsweredWith304() {
+        when(reportService.inmatesBy("block")).thenReturn(List.of(new ReportRow("A", 3)));
+
+        String etag = client.get().uri("/api/reports/inmates?by=block")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].key").isEqualTo("A")
+                .returnResult()
+                .getResponseHeaders().getETag();
+
+        client.get().uri("/api/reports/inmates?by=block")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        verify(reportService, times(1)).inmatesBy("block");
+    }
+}
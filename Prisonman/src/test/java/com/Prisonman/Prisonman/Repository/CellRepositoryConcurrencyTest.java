@@ -0,0 +1,132 @@
+package com.Prisonman.Prisonman.Repository;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Fires thousands of parallel admissions at a few cells and checks that no cell is overbooked and
+ * no inmate id is lost. Needs a real MongoDB: point PRISONMAN_TEST_MONGO_URI at a scratch database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "PRISONMAN_TEST_MONGO_URI", matches = ".+")
+class CellRepositoryConcurrencyTest {
+
+    private static final String BLOCK = "Stress Block";
+    private static final int CELLS = 5;
+    private static final int CAPACITY = 4;
+    private static final int ADMISSIONS = 4000;
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> System.getenv("PRISONMAN_TEST_MONGO_URI"));
+    }
+
+    @Autowired
+    private CellRepository cellRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void createCells() {
+        cleanUp();
+        for (int i = 0; i < CELLS; i++) {
+            Cell cell = new Cell();
+            cell.setBlock(BLOCK);
+            cell.setCellNumber("S-" + i);
+            cell.setCapacity(CAPACITY);
+            cell.setCurrentOccupancy(0);
+            cell.setStatus("Available");
+            cell.setInmates(new ArrayList<>());
+            cellRepository.save(cell);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        mongoTemplate.remove(query(where("block").is(BLOCK)), Cell.class);
+    }
+
+    @Test
+    void parallelReservationsNeverOverbookOrLoseInmates() throws InterruptedException {
+        ConcurrentLinkedQueue<String> admitted = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(64)) {
+            for (int i = 0; i < ADMISSIONS; i++) {
+                String inmateId = "STRESS" + i;
+                String cellNumber = "S-" + (i % CELLS);
+                pool.submit(() -> {
+                    start.await();
+                    cellRepository.reserveSlot(BLOCK, cellNumber, inmateId).ifPresent(cell -> admitted.add(inmateId));
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        }
+
+        assertThat(admitted).hasSize(CELLS * CAPACITY);
+
+        Set<String> stored = new HashSet<>();
+        List<Cell> cells = mongoTemplate.find(query(where("block").is(BLOCK)), Cell.class);
+        for (Cell cell : cells) {
+            assertThat(cell.getCurrentOccupancy()).isEqualTo(CAPACITY);
+            assertThat(cell.getInmates()).hasSize(CAPACITY);
+            assertThat(cell.getStatus()).isEqualTo("Occupied");
+            stored.addAll(cell.getInmates());
+        }
+        assertThat(stored).containsExactlyInAnyOrderElementsOf(admitted);
+    }
+
+    @Test
+    void releaseFreesExactlyOneBed() {
+        cellRepository.reserveSlot(BLOCK, "S-0", "A");
+        cellRepository.reserveSlot(BLOCK, "S-0", "B");
+
+        assertThat(cellRepository.releaseSlot(BLOCK, "S-0", "A")).hasValueSatisfying(cell -> {
+            assertThat(cell.getCurrentOccupancy()).isEqualTo(1);
+            assertThat(cell.getInmates()).containsExactly("B");
+        });
+        assertThat(cellRepository.releaseSlot(BLOCK, "S-0", "A")).isEmpty();
+    }
+
+    @Test
+    void renameHandsTheBedOverInPlace() {
+        cellRepository.reserveSlot(BLOCK, "S-0", "A");
+        cellRepository.reserveSlot(BLOCK, "S-0", "B");
+
+        assertThat(cellRepository.renameSlot(BLOCK, "S-0", "A", "A2")).hasValueSatisfying(cell -> {
+            assertThat(cell.getCurrentOccupancy()).isEqualTo(2);
+            assertThat(cell.getInmates()).containsExactly("A2", "B");
+        });
+        // The old id is gone, and the new one must not be listed twice
+        assertThat(cellRepository.renameSlot(BLOCK, "S-0", "A", "A3")).isEmpty();
+        assertThat(cellRepository.renameSlot(BLOCK, "S-0", "B", "A2")).isEmpty();
+    }
+}
@@ -0,0 +1,110 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ActivityBucket;
+import com.Prisonman.Prisonman.Model.ActivityBucket.Granularity;
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityServiceTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityService service = new ActivityService(mongoTemplate, mock(DashboardSummaryService.class),
+            new CollectionVersions(), NEW_YORK, 2000);
+
+    @Test
+    void anEventRollsUpIntoItsHourDayWeekAndMonth() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucket.class)).thenReturn(bulk);
+
+        // Thursday 2025-01-30, 23:30 in New York: already Friday in UTC
+        service.record(ActivityKind.ADMISSION, Instant.parse("2025-01-31T04:30:00Z"), 2);
+
+        ArgumentCaptor<Query> ids = ArgumentCaptor.forClass(Query.class);
+        verify(bulk, times(4)).upsert(ids.capture(), any(Update.class));
+        assertThat(ids.getAllValues()).extracting(query -> query.getQueryObject().getString("_id")).containsExactly(
+                "hour:2025-01-30T23-05:00", "day:2025-01-30", "week:2025-01-27", "month:2025-01");
+    }
+
+    @Test
+    void theHourRepeatedWhenClocksGoBackIsABucketOfItsOwn() {
+        // 2025-11-02 01:30 New York happens twice: first at -04:00, then at -05:00
+        Instant first = Instant.parse("2025-11-02T05:30:00Z");
+        Instant second = Instant.parse("2025-11-02T06:30:00Z");
+
+        String firstId = Granularity.HOUR.id(Granularity.HOUR.start(first.atZone(NEW_YORK)));
+        String secondId = Granularity.HOUR.id(Granularity.HOUR.start(second.atZone(NEW_YORK)));
+
+        assertThat(firstId).isEqualTo("hour:2025-11-02T01-04:00");
+        assertThat(secondId).isEqualTo("hour:2025-11-02T01-05:00");
+    }
+
+    @Test
+    void seriesHasEveryBucketOfTheRangeAndFindsStoredOnesByStart() {
+        ActivityBucket stored = new ActivityBucket(Granularity.HOUR,
+                Granularity.HOUR.start(Instant.parse("2025-11-02T06:00:00Z").atZone(NEW_YORK)));
+        stored.setAdmissions(3);
+        // Written before hour ids had an offset; the same hour
+        ActivityBucket legacy = new ActivityBucket();
+        legacy.setId("hour:2025-11-02T01");
+        legacy.setStart(Instant.parse("2025-11-02T06:00:00Z"));
+        legacy.setAdmissions(1);
+        when(mongoTemplate.find(any(Query.class), eq(ActivityBucket.class))).thenReturn(List.of(stored, legacy));
+
+        // The fall-back day is 25 hours long
+        List<ActivityBucket> series = service.buckets(Granularity.HOUR,
+                Instant.parse("2025-11-02T04:00:00Z"), Instant.parse("2025-11-03T05:00:00Z"));
+
+        assertThat(series).hasSize(25);
+        assertThat(series).extracting(ActivityBucket::getId).doesNotHaveDuplicates();
+        assertThat(series.get(2).getStart()).isEqualTo(Instant.parse("2025-11-02T06:00:00Z"));
+        assertThat(series.get(2).getAdmissions()).isEqualTo(4);
+        assertThat(series).extracting(ActivityBucket::getAdmissions).containsOnly(0L, 4L);
+    }
+
+    @Test
+    void visitsWithoutAReadableTimeAreNotCounted() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityBucket.class)).thenReturn(bulk);
+
+        Visitor undated = new Visitor();
+        undated.setVisitTime(LocalTime.of(10, 0));
+        service.onVisitChange(null, undated);
+        service.onVisitChange(undated, null);
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(ActivityBucket.class));
+
+        // Given a date later, the visit is counted once, in its own hour
+        Visitor dated = new Visitor();
+        dated.setVisitDate(LocalDate.of(2025, 1, 30));
+        dated.setVisitTime(LocalTime.of(10, 0));
+        service.onVisitChange(undated, dated);
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(4)).upsert(any(Query.class), updates.capture());
+        assertThat(updates.getAllValues()).allSatisfy(update ->
+                assertThat(update.getUpdateObject().get("$inc", Document.class).get("visits")).isEqualTo(1));
+    }
+}
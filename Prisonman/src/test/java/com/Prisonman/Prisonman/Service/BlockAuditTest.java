@@ -0,0 +1,79 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.AuditIssue;
+import com.Prisonman.Prisonman.Model.AuditIssue.Kind;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BlockAuditTest {
+
+    @Test
+    void consistentBlockHasNothingToReport() {
+        BlockAudit audit = new BlockAudit("A");
+        audit.addCell(cell("A-1", 2, 2, "INM1", "INM2"));
+        audit.addCell(cell("A-2", 2, 0));
+        audit.addInmate("INM1", "A-1");
+        audit.addInmate("INM2", "A-1");
+        audit.addInmate("INM3", null);
+
+        BlockAudit.Result result = audit.check(new CellBlock("b", "A", 4, 2, 50));
+
+        assertThat(result.issues()).isEmpty();
+        assertThat(result.fixes()).isEmpty();
+        assertThat(result.strays()).isEmpty();
+        assertThat(result.inmates()).isEqualTo(3);
+    }
+
+    @Test
+    void findsDivergedSlotsAndFixesTheCells() {
+        BlockAudit audit = new BlockAudit("A");
+        // INM1 moved to A-2 without its slot; INM9 is not in this block; INM2 is listed twice
+        audit.addCell(cell("A-1", 2, 2, "INM1", "INM9"));
+        audit.addCell(cell("A-2", 3, 2, "INM2", "INM2"));
+        audit.addInmate("INM1", "A-2");
+        audit.addInmate("INM2", "A-2");
+        audit.addInmate("INM4", "A-7");
+
+        BlockAudit.Result result = audit.check(new CellBlock("b", "A", 5, 3, 60));
+
+        assertThat(result.issues()).extracting(AuditIssue::kind).containsExactlyInAnyOrder(
+                Kind.MISSING_SLOT, Kind.STALE_SLOT, Kind.DUPLICATE_SLOT, Kind.UNKNOWN_CELL, Kind.BLOCK_TOTALS);
+        assertThat(result.strays()).containsExactly(new BlockAudit.Stray("A", "A-1", "INM9"));
+        assertThat(result.fixes()).extracting(BlockAudit.CellFix::cellNumber, BlockAudit.CellFix::inmates)
+                .containsExactlyInAnyOrder(
+                        tuple("A-1", List.of()),
+                        tuple("A-2", List.of("INM2", "INM1")));
+    }
+
+    @Test
+    void reportsOccupancyThatDisagreesWithTheSlotsAndAMissingCellBlock() {
+        BlockAudit audit = new BlockAudit("B");
+        audit.addCell(cell("B-1", 1, 3, "INM1"));
+        audit.addInmate("INM1", "B-1");
+
+        BlockAudit.Result result = audit.check(null);
+
+        assertThat(result.issues()).extracting(AuditIssue::kind)
+                .containsExactlyInAnyOrder(Kind.OCCUPANCY_MISMATCH, Kind.MISSING_BLOCK);
+        assertThat(result.fixes()).singleElement()
+                .satisfies(fix -> assertThat(fix.inmates()).containsExactly("INM1"));
+    }
+
+    private static Cell cell(String cellNumber, int capacity, int occupied, String... inmates) {
+        Cell cell = new Cell();
+        cell.setId("id-" + cellNumber);
+        cell.setBlock(cellNumber.substring(0, 1));
+        cell.setCellNumber(cellNumber);
+        cell.setCapacity(capacity);
+        cell.setCurrentOccupancy(occupied);
+        cell.setInmates(List.of(inmates));
+        cell.setVersion(1L);
+        return cell;
+    }
+}
@@ -0,0 +1,173 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Repository.CellBlockRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CellBlockStatsServiceTest {
+
+    private final CellBlockRepository cellBlockRepository = mock(CellBlockRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final DashboardSummaryService dashboardSummaryService = mock(DashboardSummaryService.class);
+    private final LookupCache lookupCache = mock(LookupCache.class);
+
+    @BeforeEach
+    void blocksExist() {
+        when(cellBlockRepository.applyOccupancyDelta(anyString(), anyInt())).thenReturn(true);
+        when(cellBlockRepository.replaceTotals(anyString(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(true);
+        cellTotals();
+    }
+
+    @Test
+    void writeBehindAddsChangesUpAndWritesOncePerBlockOnFlush() {
+        CellBlockStatsService service = service(true);
+
+        service.applyOccupancyChange("A", 1);
+        service.applyOccupancyChange("A", 1);
+        service.applyOccupancyChange("A", -1);
+        service.applyOccupancyChange("B", 1);
+        service.applyOccupancyChange("B", -1);
+        verify(cellBlockRepository, never()).applyOccupancyDelta(anyString(), anyInt());
+
+        service.flush();
+        service.flush();
+
+        verify(cellBlockRepository, times(1)).applyOccupancyDelta("A", 1);
+        verify(cellBlockRepository, never()).applyOccupancyDelta(eq("B"), anyInt());
+        verify(dashboardSummaryService).onOccupancyChange(1);
+        verify(lookupCache).evictCellBlocks();
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltaForTheNextOne() {
+        CellBlockStatsService service = service(true);
+        when(cellBlockRepository.applyOccupancyDelta("A", 2))
+                .thenThrow(new DataAccessResourceFailureException("connection reset"))
+                .thenReturn(true);
+
+        service.applyOccupancyChange("A", 2);
+        service.flush();
+        service.applyOccupancyChange("A", 1);
+        service.flush();
+
+        verify(cellBlockRepository).applyOccupancyDelta("A", 3);
+    }
+
+    @Test
+    void withoutTheSchedulerChangesAreWrittenStraightAway() {
+        CellBlockStatsService service = service(false);
+
+        service.applyOccupancyChange("A", 1);
+
+        verify(cellBlockRepository).applyOccupancyDelta("A", 1);
+        verify(dashboardSummaryService).onOccupancyChange(1);
+    }
+
+    @Test
+    void changeToAMissingBlockIsDropped() {
+        CellBlockStatsService service = service(false);
+        when(cellBlockRepository.applyOccupancyDelta("Gone", 1)).thenReturn(false);
+
+        service.applyOccupancyChange("Gone", 1);
+
+        verify(dashboardSummaryService, never()).onOccupancyChange(anyInt());
+        verify(lookupCache, never()).evictCellBlocks();
+    }
+
+    @Test
+    void reconcileAllRepairsDriftedBlocksAndZeroesBlocksWithoutCells() {
+        when(cellBlockRepository.findAll()).thenReturn(List.of(
+                new CellBlock("id-A", "A", 10, 4, 40),
+                new CellBlock("id-B", "B", 8, 5, 62),
+                new CellBlock("id-C", "C", 6, 2, 33)));
+        cellTotals(totals("A", 10, 4), totals("B", 8, 6));
+
+        assertThat(service(false).reconcileAll()).isEqualTo(2);
+
+        verify(cellBlockRepository, never()).replaceTotals(eq("id-A"), anyInt(), anyInt(), anyInt(), anyInt());
+        verify(cellBlockRepository).replaceTotals("id-B", 5, 8, 6, 75);
+        verify(cellBlockRepository).replaceTotals("id-C", 2, 0, 0, 0);
+        verify(dashboardSummaryService).onCellBlockTotalsChange(2, 6, 0, 0);
+    }
+
+    @Test
+    void reconcileSkipsABlockWhoseStoredCurrentMovedMeanwhile() {
+        when(cellBlockRepository.findAll()).thenReturn(List.of(new CellBlock("id-A", "A", 10, 3, 30)));
+        when(cellBlockRepository.replaceTotals("id-A", 3, 10, 4, 40)).thenReturn(false);
+        cellTotals(totals("A", 10, 4));
+
+        assertThat(service(false).reconcileAll()).isZero();
+        verify(dashboardSummaryService, never()).onCellBlockTotalsChange(anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void reconcileLeavesBlocksWithUnflushedChangesAlone() {
+        CellBlockStatsService service = service(true);
+        when(cellBlockRepository.applyOccupancyDelta("A", 1)).thenThrow(new DataAccessResourceFailureException("connection reset"));
+        when(cellBlockRepository.findAll()).thenReturn(List.of(new CellBlock("id-A", "A", 10, 3, 30)));
+        cellTotals(totals("A", 10, 4));
+
+        service.applyOccupancyChange("A", 1);
+
+        assertThat(service.reconcileAll()).isZero();
+        verify(cellBlockRepository, never()).replaceTotals(anyString(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void reconcileBlockFlushesThenRepairsThatBlock() {
+        CellBlockStatsService service = service(true);
+        when(cellBlockRepository.findByName("A")).thenReturn(Optional.of(new CellBlock("id-A", "A", 10, 4, 40)));
+        cellTotals(totals("A", 12, 5));
+
+        service.applyOccupancyChange("A", 1);
+        service.reconcileBlock("A");
+
+        verify(cellBlockRepository).applyOccupancyDelta("A", 1);
+        verify(cellBlockRepository).replaceTotals("id-A", 4, 12, 5, 41);
+    }
+
+    @Test
+    void reconcileBlockZeroesABlockWhoseCellsAreGone() {
+        when(cellBlockRepository.findByName("A")).thenReturn(Optional.of(new CellBlock("id-A", "A", 10, 4, 40)));
+
+        service(false).reconcileBlock("A");
+
+        verify(cellBlockRepository).replaceTotals("id-A", 4, 0, 0, 0);
+    }
+
+    private CellBlockStatsService service(boolean scheduling) {
+        return new CellBlockStatsService(cellBlockRepository, mongoTemplate, dashboardSummaryService, lookupCache,
+                scheduling, Duration.ofSeconds(1));
+    }
+
+    private void cellTotals(Document... rows) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Cell.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(rows), new Document()));
+    }
+
+    private static Document totals(String block, int capacity, int current) {
+        return new Document("_id", block).append("capacity", capacity).append("current", current);
+    }
+}
@@ -0,0 +1,69 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ChangeEvent;
+import com.Prisonman.Prisonman.Model.ChangeEvent.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangeEventBusTest {
+
+    private final ChangeEventBus bus = new ChangeEventBus("local", Set.of("cells", "inmates"), 4, new CollectionVersions());
+
+    @Test
+    void readersGetWhatCameAfterTheirPosition() throws InterruptedException {
+        bus.publishLocal("cells", Operation.CHANGED, "c1", null);
+        bus.publishLocal("inmates", Operation.DELETED, "i1", null);
+        // Not a watched collection
+        bus.publishLocal("activity_buckets", Operation.CHANGED, "day:2025-01-20", null);
+
+        assertThat(bus.after(0, Duration.ZERO)).extracting(ChangeEvent::seq, ChangeEvent::id)
+                .containsExactly(tuple(1L, "c1"), tuple(2L, "i1"));
+        assertThat(bus.after(2, Duration.ofMillis(10))).isEmpty();
+    }
+
+    @Test
+    void readerTooFarBehindMustResync() throws InterruptedException {
+        for (int i = 1; i <= 6; i++) {
+            bus.publish("cells", Operation.CHANGED, "c" + i, null);
+        }
+
+        assertThat(bus.after(1, Duration.ZERO)).isNull();
+        List<ChangeEvent> kept = bus.after(2, Duration.ZERO);
+        assertThat(kept).extracting(ChangeEvent::id).containsExactly("c3", "c4", "c5", "c6");
+        // An id from an earlier run, or one never issued
+        assertThat(bus.seqOf("0-2")).isNull();
+        assertThat(bus.after(7, Duration.ZERO)).isNull();
+        assertThat(bus.seqOf(bus.eventId(5))).isEqualTo(5);
+    }
+
+    @Test
+    void localWritesAreDroppedWhileChangeStreamsDeliverThem() throws InterruptedException {
+        ChangeEventBus watched = new ChangeEventBus(ChangeEventBus.CHANGE_STREAMS, Set.of("cells"), 4, new CollectionVersions());
+        watched.publishLocal("cells", Operation.CHANGED, "c1", null);
+        assertThat(watched.latest()).isZero();
+
+        watched.fallBackToLocal();
+        watched.publishLocal("cells", Operation.CHANGED, "c1", null);
+        assertThat(watched.after(0, Duration.ZERO)).hasSize(1);
+    }
+
+    @Test
+    void waitingReaderWakesOnPublish() throws InterruptedException {
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            bus.publish("cells", Operation.CHANGED, "c1", null);
+        });
+
+        assertThat(bus.after(0, Duration.ofSeconds(5))).extracting(ChangeEvent::id).containsExactly("c1");
+    }
+}
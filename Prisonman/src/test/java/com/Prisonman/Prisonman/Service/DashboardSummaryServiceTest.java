@@ -0,0 +1,60 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.CellBlock;
+import com.Prisonman.Prisonman.Model.Staff;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardSummaryServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final DashboardSummaryService service = new DashboardSummaryService(mongoTemplate,
+            new ChangeEventBus("local", Set.of(), 16, new CollectionVersions()), ZoneOffset.UTC);
+
+    @Test
+    void deltasAppliedWhileReloadingAreKept() {
+        blocks(5, 10, null);
+        assertThat(service.current().summary().getTotalInmates()).isEqualTo(5);
+
+        // The read misses an admission whose delta lands before the new totals are published
+        blocks(5, 10, () -> service.onOccupancyChange(1));
+        service.reload();
+
+        assertThat(service.current().summary().getTotalInmates()).isEqualTo(6);
+        assertThat(service.current().summary().getAvailableCells()).isEqualTo(4);
+    }
+
+    @Test
+    void deltasBeforeTheFirstLoadAreNotCountedAgain() {
+        service.onOccupancyChange(1);
+        blocks(6, 10, null);
+
+        assertThat(service.current().summary().getTotalInmates()).isEqualTo(6);
+    }
+
+    private void blocks(int current, int capacity, Runnable duringRead) {
+        when(mongoTemplate.count(any(Query.class), eq(Staff.class))).thenReturn(0L);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(CellBlock.class), eq(Document.class)))
+                .thenAnswer(invocation -> {
+                    if (duringRead != null) {
+                        duringRead.run();
+                    }
+                    return new AggregationResults<>(
+                            List.of(new Document("current", current).append("capacity", capacity)), new Document());
+                });
+    }
+}
@@ -0,0 +1,56 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.DutyCount;
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.StaffShift;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DutyRosterTest {
+
+    @Test
+    void countsStaffOnDutyPerDepartmentAndShift() {
+        DutyRoster roster = new DutyRoster();
+        assertThat(roster.put("s1", "Security", StaffShift.DAY, DutyStatus.ON_DUTY)).isEqualTo(1);
+        assertThat(roster.put("s2", "Security", StaffShift.NIGHT, DutyStatus.ON_DUTY)).isEqualTo(1);
+        assertThat(roster.put("s3", "Security", StaffShift.DAY, DutyStatus.ON_DUTY)).isEqualTo(1);
+        assertThat(roster.put("s4", "Medical", StaffShift.DAY, DutyStatus.ON_LEAVE)).isZero();
+        assertThat(roster.put("s5", null, null, DutyStatus.ON_DUTY)).isEqualTo(1);
+
+        assertThat(roster.onDuty()).isEqualTo(4);
+        assertThat(roster.onDuty("Security", StaffShift.DAY)).containsExactly("s1", "s3");
+        assertThat(roster.onDuty("Security", null)).containsExactlyInAnyOrder("s1", "s2", "s3");
+        assertThat(roster.onDuty("Medical", null)).isEmpty();
+        assertThat(roster.counts()).containsExactly(
+                new DutyCount("Security", StaffShift.DAY, 2),
+                new DutyCount("Security", StaffShift.NIGHT, 1),
+                new DutyCount(null, null, 1));
+    }
+
+    @Test
+    void movesStaffBetweenGroupsAndOffDuty() {
+        DutyRoster roster = new DutyRoster();
+        roster.put("s1", "Security", StaffShift.DAY, DutyStatus.ON_DUTY);
+
+        assertThat(roster.put("s1", "Medical", StaffShift.NIGHT, DutyStatus.ON_DUTY)).isZero();
+        assertThat(roster.onDuty("Security", null)).isEmpty();
+        assertThat(roster.onDuty("Medical", StaffShift.NIGHT)).containsExactly("s1");
+
+        assertThat(roster.put("s1", "Medical", StaffShift.NIGHT, DutyStatus.OFF_DUTY)).isEqualTo(-1);
+        assertThat(roster.onDuty()).isZero();
+        assertThat(roster.counts()).isEmpty();
+    }
+
+    @Test
+    void applyingTheSameWriteTwiceChangesNothing() {
+        DutyRoster roster = new DutyRoster();
+        roster.put("s1", "Security", StaffShift.DAY, DutyStatus.ON_DUTY);
+
+        assertThat(roster.put("s1", "Security", StaffShift.DAY, DutyStatus.ON_DUTY)).isZero();
+        assertThat(roster.remove("s1")).isEqualTo(-1);
+        assertThat(roster.remove("s1")).isZero();
+        assertThat(roster.remove("unknown")).isZero();
+        assertThat(roster.onDuty()).isZero();
+    }
+}
@@ -0,0 +1,32 @@
+package com.Prisonman.Prisonman.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportServiceTest {
+
+    @Test
+    void quotesSeparatorsQuotesAndLineBreaks() {
+        assertThat(ExportService.csvValue(null)).isEmpty();
+        assertThat(ExportService.csvValue("John Doe")).isEqualTo("John Doe");
+        assertThat(ExportService.csvValue("Doe, John")).isEqualTo("\"Doe, John\"");
+        assertThat(ExportService.csvValue("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(ExportService.csvValue(List.of("Theft", "Fraud"))).isEqualTo("Theft;Fraud");
+    }
+
+    @Test
+    void defusesTextASpreadsheetWouldRunAsAFormula() {
+        assertThat(ExportService.csvValue("=HYPERLINK(\"http://x\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\"");
+        assertThat(ExportService.csvValue("+1+1")).isEqualTo("'+1+1");
+        assertThat(ExportService.csvValue("-2+3")).isEqualTo("'-2+3");
+        assertThat(ExportService.csvValue("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(ExportService.csvValue("\tcmd")).isEqualTo("'\tcmd");
+        assertThat(ExportService.csvValue(List.of("=1+1", "Theft"))).isEqualTo("'=1+1;Theft");
+        // Numbers are data, not formulas
+        assertThat(ExportService.csvValue(-5)).isEqualTo("-5");
+        assertThat(ExportService.csvValue("a=b")).isEqualTo("a=b");
+    }
+}
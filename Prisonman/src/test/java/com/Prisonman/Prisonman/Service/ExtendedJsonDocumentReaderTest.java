@@ -0,0 +1,58 @@
+package com.Prisonman.Prisonman.Service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtendedJsonDocumentReaderTest {
+
+    @Test
+    void readsMongoexportJsonArray() {
+        String json = """
+                [{
+                  "_id": {"$oid": "6835858c660b0406c8060d8d"},
+                  "inmateId": "INM001",
+                  "age": 25
+                },
+                {
+                  "_id": "657",
+                  "inmateId": "INM057"
+                }]
+                """;
+
+        List<Document> documents = readAll(json);
+
+        assertThat(documents).hasSize(2);
+        assertThat(documents.get(0).get("_id")).isEqualTo(new ObjectId("6835858c660b0406c8060d8d"));
+        assertThat(documents.get(0).getInteger("age")).isEqualTo(25);
+        assertThat(documents.get(1).get("_id")).isEqualTo("657");
+    }
+
+    @Test
+    void readsOneDocumentPerLine() {
+        String ndjson = "\uFEFF{\"_id\": {\"$oid\": \"6835858c660b0406c8060d8d\"}, \"name\": \"Block A\"}\n"
+                + "\n"
+                + "{\"_id\": {\"$oid\": \"6835858c660b0406c8060d8e\"}, \"name\": \"Block B\"}\n";
+
+        List<Document> documents = readAll(ndjson);
+
+        assertThat(documents).extracting(document -> document.getString("name")).containsExactly("Block A", "Block B");
+    }
+
+    @Test
+    void emptyArrayHasNoDocuments() {
+        assertThat(readAll("  [ ]  ")).isEmpty();
+    }
+
+    private static List<Document> readAll(String json) {
+        List<Document> documents = new ArrayList<>();
+        new ExtendedJsonDocumentReader(new StringReader(json)).forEachRemaining(documents::add);
+        return documents;
+    }
+}
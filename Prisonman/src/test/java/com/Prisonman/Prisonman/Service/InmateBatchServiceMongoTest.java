@@ -0,0 +1,172 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.BatchItemResult;
+import com.Prisonman.Prisonman.Model.BatchItemResult.Outcome;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.TransferRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Runs batch admissions and transfers against a real MongoDB and checks the cells and inmates
+ * documents they leave behind, including batches racing for the same beds. Needs a real MongoDB:
+ * point PRISONMAN_TEST_MONGO_URI at a scratch database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "PRISONMAN_TEST_MONGO_URI", matches = ".+")
+class InmateBatchServiceMongoTest {
+
+    private static final String BLOCK = "Batch Block";
+    private static final int CELLS = 3;
+    private static final int CAPACITY = 4;
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> System.getenv("PRISONMAN_TEST_MONGO_URI"));
+    }
+
+    @Autowired
+    private InmateBatchService batchService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void createCells() {
+        cleanUp();
+        for (int i = 0; i < CELLS; i++) {
+            Cell cell = new Cell();
+            cell.setBlock(BLOCK);
+            cell.setCellNumber("B-" + i);
+            cell.setCapacity(CAPACITY);
+            cell.setCurrentOccupancy(0);
+            cell.setStatus("Available");
+            cell.setInmates(new ArrayList<>());
+            mongoTemplate.insert(cell);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        mongoTemplate.remove(query(where("block").is(BLOCK)), Cell.class);
+        mongoTemplate.remove(query(where("block").is(BLOCK)), Inmate.class);
+    }
+
+    @Test
+    void admissionStoresWhatItReportsAndNothingElse() {
+        List<Inmate> batch = new ArrayList<>();
+        for (int i = 0; i < CAPACITY + 1; i++) {
+            batch.add(inmate("BA-" + i, "B-0"));
+        }
+        batch.add(inmate("BA-0", "B-1"));
+        batch.add(inmate("BA-9", "B-404"));
+
+        List<BatchItemResult> results = batchService.admit(batch, NO_OPTIONS);
+
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(
+                Outcome.ADMITTED, Outcome.ADMITTED, Outcome.ADMITTED, Outcome.ADMITTED, Outcome.CELL_FULL,
+                Outcome.DUPLICATE, Outcome.CELL_NOT_FOUND);
+        assertThat(cell("B-0").getInmates()).containsExactly("BA-0", "BA-1", "BA-2", "BA-3");
+        assertThat(cell("B-0").getCurrentOccupancy()).isEqualTo(CAPACITY);
+        assertThat(cell("B-1").getInmates()).isEmpty();
+        assertThat(storedInmateIds()).containsExactlyInAnyOrder("BA-0", "BA-1", "BA-2", "BA-3");
+    }
+
+    @Test
+    void transferMovesTheBedAndTheInmateTogether() {
+        batchService.admit(List.of(inmate("BT-0", "B-0"), inmate("BT-1", "B-0")), NO_OPTIONS);
+
+        List<BatchItemResult> results = batchService.transfer(List.of(
+                new TransferRequest("BT-0", BLOCK, "B-1", null),
+                new TransferRequest("BT-1", BLOCK, "B-0", null),
+                new TransferRequest("BT-404", BLOCK, "B-1", null)));
+
+        assertThat(results).extracting(BatchItemResult::outcome)
+                .containsExactly(Outcome.TRANSFERRED, Outcome.UNCHANGED, Outcome.INMATE_NOT_FOUND);
+        assertThat(cell("B-0").getInmates()).containsExactly("BT-1");
+        assertThat(cell("B-0").getCurrentOccupancy()).isEqualTo(1);
+        assertThat(cell("B-1").getInmates()).containsExactly("BT-0");
+        assertThat(cell("B-1").getCurrentOccupancy()).isEqualTo(1);
+        Inmate moved = mongoTemplate.findOne(query(where("inmateId").is("BT-0")), Inmate.class);
+        assertThat(moved.getCellNumber()).isEqualTo("B-1");
+    }
+
+    @Test
+    void parallelBatchesNeverOverbookOrLoseInmates() throws InterruptedException {
+        ConcurrentLinkedQueue<String> admitted = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(16)) {
+            for (int t = 0; t < 16; t++) {
+                List<Inmate> batch = new ArrayList<>();
+                for (int i = 0; i < CELLS; i++) {
+                    batch.add(inmate("BP-" + t + "-" + i, "B-" + i));
+                }
+                pool.submit(() -> {
+                    start.await();
+                    batchService.admit(batch, NO_OPTIONS).stream()
+                            .filter(result -> result.outcome() == Outcome.ADMITTED)
+                            .forEach(result -> admitted.add(result.inmateId()));
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        }
+
+        Set<String> listed = new HashSet<>();
+        for (int i = 0; i < CELLS; i++) {
+            Cell cell = cell("B-" + i);
+            assertThat(cell.getInmates()).hasSize(CAPACITY);
+            assertThat(cell.getCurrentOccupancy()).isEqualTo(CAPACITY);
+            listed.addAll(cell.getInmates());
+        }
+        assertThat(listed).containsExactlyInAnyOrderElementsOf(admitted);
+        assertThat(storedInmateIds()).containsExactlyInAnyOrderElementsOf(admitted);
+    }
+
+    private Cell cell(String cellNumber) {
+        return mongoTemplate.findOne(query(where("block").is(BLOCK).and("cellNumber").is(cellNumber)), Cell.class);
+    }
+
+    private List<String> storedInmateIds() {
+        return mongoTemplate.find(query(where("block").is(BLOCK)), Inmate.class).stream()
+                .map(Inmate::getInmateId)
+                .toList();
+    }
+
+    private static Inmate inmate(String inmateId, String cellNumber) {
+        Inmate inmate = new Inmate();
+        inmate.setInmateId(inmateId);
+        inmate.setName("Test Inmate");
+        inmate.setBlock(BLOCK);
+        inmate.setCellNumber(cellNumber);
+        return inmate;
+    }
+}
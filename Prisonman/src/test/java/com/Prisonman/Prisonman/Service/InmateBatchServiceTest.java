@@ -0,0 +1,238 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.ActivityKind;
+import com.Prisonman.Prisonman.Model.BatchItemResult;
+import com.Prisonman.Prisonman.Model.BatchItemResult.Outcome;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.TransferRequest;
+import com.Prisonman.Prisonman.Repository.CellRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Batch admissions and transfers against a mocked CellRepository and MongoTemplate: the cells and
+ * inmates below stand in for the collections, and every guarded reservation succeeds unless a
+ * test says otherwise.
+ */
+class InmateBatchServiceTest {
+
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final CellRepository cellRepository = mock(CellRepository.class);
+    private final CellBlockStatsService cellBlockStatsService = mock(CellBlockStatsService.class);
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final BulkOperations inmateUpdates = mock(BulkOperations.class);
+    private final OccupancyService occupancy = new OccupancyService(mongoTemplate, false);
+
+    private final List<Cell> cells = new ArrayList<>();
+    private final List<Inmate> inmates = new ArrayList<>();
+
+    private InmateBatchService batchService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void wireService() {
+        TransactionRunner transactions = new TransactionRunner(mock(ObjectProvider.class), 5, Duration.ZERO);
+        batchService = new InmateBatchService(mongoTemplate, cellRepository, cellBlockStatsService,
+                mock(LookupCache.class), activityService, mock(ChangeEventBus.class), occupancy,
+                new PlacementService(occupancy, mongoTemplate), transactions, 100);
+
+        cells.add(cell("A", "A-1", 2, "INM-1"));
+        cells.add(cell("A", "A-2", 2, "INM-1"));
+        cells.add(cell("B", "B-1", 2, "INM-3"));
+        cells.add(cell("C", "C-1", 1, "INM-4"));
+        Cell closed = cell("D", "D-1", 2);
+        closed.setStatus("Maintenance");
+        cells.add(closed);
+        inmates.add(inmate("doc-1", "INM-1", "A", "A-1"));
+        inmates.add(inmate("doc-2", "INM-1", "A", "A-2"));
+        inmates.add(inmate("doc-3", "INM-3", "B", "B-1"));
+        inmates.add(inmate("doc-4", "INM-4", "C", "C-1"));
+
+        when(mongoTemplate.find(any(Query.class), eq(Cell.class))).thenAnswer(invocation -> cells);
+        when(mongoTemplate.find(any(Query.class), eq(Inmate.class))).thenAnswer(invocation -> {
+            Document filter = ((Query) invocation.getArgument(0)).getQueryObject();
+            boolean byDocumentId = filter.containsKey("_id");
+            Collection<?> wanted = (Collection<?>) ((Document) filter.get(byDocumentId ? "_id" : "inmateId")).get("$in");
+            return inmates.stream()
+                    .filter(inmate -> wanted.contains(byDocumentId ? inmate.getId() : inmate.getInmateId()))
+                    .toList();
+        });
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Inmate.class))).thenReturn(inmateUpdates);
+        when(cellRepository.reserveSlots(anyMap()))
+                .thenAnswer(invocation -> ((Map<String, List<String>>) invocation.getArgument(0)).keySet());
+    }
+
+    @Test
+    void admissionReportsEveryItemAndWritesOnlyThoseAdmitted() {
+        List<Inmate> batch = new ArrayList<>();
+        batch.add(inmate(null, "INM-10", "A", "A-1"));
+        batch.add(inmate(null, null, "A", "A-1"));
+        batch.add(inmate(null, "INM-10", "B", "B-1"));
+        batch.add(inmate(null, "INM-11", "Z", "Z-1"));
+        batch.add(inmate(null, "INM-12", "C", "C-1"));
+        batch.add(inmate(null, "INM-13", "D", "D-1"));
+        batch.add(inmate(null, "INM-14", "A", "A-1"));
+        batch.add(inmate(null, "INM-1", "A", "A-2"));
+
+        List<BatchItemResult> results = batchService.admit(batch, NO_OPTIONS);
+
+        assertThat(results).extracting(BatchItemResult::index).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(
+                Outcome.ADMITTED, Outcome.INVALID, Outcome.DUPLICATE, Outcome.CELL_NOT_FOUND,
+                Outcome.CELL_FULL, Outcome.CELL_CLOSED, Outcome.CELL_FULL, Outcome.DUPLICATE);
+        verify(cellRepository).reserveSlots(Map.of("A/A-1", List.of("INM-10")));
+        verify(mongoTemplate).insertAll(List.of(batch.get(0)));
+        verify(cellBlockStatsService).applyOccupancyChange("A", 1);
+        verify(activityService).record(ActivityKind.ADMISSION, 1);
+    }
+
+    @Test
+    void admissionKeepsTheCellsWonWhenOthersFillUpMeanwhile() {
+        List<Inmate> batch = List.of(inmate(null, "INM-20", "A", "A-1"), inmate(null, "INM-21", "B", "B-1"));
+        when(cellRepository.reserveSlots(anyMap())).thenReturn(Set.of("B/B-1"));
+
+        List<BatchItemResult> results = batchService.admit(batch, NO_OPTIONS);
+
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(Outcome.CELL_FULL, Outcome.ADMITTED);
+        assertThat(results.get(0).message()).isEqualTo("Cell filled up while the batch was being processed.");
+        verify(mongoTemplate).insertAll(List.of(batch.get(1)));
+        verify(cellBlockStatsService).applyOccupancyChange("B", 1);
+        verify(cellBlockStatsService, never()).applyOccupancyChange(eq("A"), anyInt());
+    }
+
+    @Test
+    void admissionThatFailsWritingTheInmatesGivesTheBedsBack() {
+        List<Inmate> batch = List.of(inmate(null, "INM-20", "A", "A-1"), inmate(null, "INM-21", "B", "B-1"));
+        when(mongoTemplate.insertAll(anyCollection())).thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        assertThatThrownBy(() -> batchService.admit(batch, NO_OPTIONS)).isInstanceOf(DataAccessResourceFailureException.class);
+
+        verify(cellRepository).releaseSlots(Map.of("A/A-1", List.of("INM-20"), "B/B-1", List.of("INM-21")));
+        verify(cellBlockStatsService, never()).applyOccupancyChange(anyString(), anyInt());
+        verify(activityService, never()).record(any(), anyInt());
+    }
+
+    @Test
+    void transferReportsEveryItemAndMovesOnlyThoseTransferred() {
+        inmates.add(inmate("doc-5", "INM-5", "B", "B-1"));
+        cells.get(2).getInmates().add("INM-5");
+        cells.get(2).setCurrentOccupancy(2);
+
+        List<BatchItemResult> results = batchService.transfer(List.of(
+                new TransferRequest(null, "A", "A-1", null),
+                new TransferRequest("INM-3", "A", "A-1", null),
+                new TransferRequest("INM-3", "C", "C-1", null),
+                new TransferRequest("INM-404", "A", "A-1", null),
+                new TransferRequest("INM-4", "C", "C-1", null),
+                new TransferRequest("INM-5", "C", "C-1", null)));
+
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(
+                Outcome.INVALID, Outcome.TRANSFERRED, Outcome.DUPLICATE, Outcome.INMATE_NOT_FOUND,
+                Outcome.UNCHANGED, Outcome.CELL_FULL);
+        verify(cellRepository).reserveSlots(Map.of("A/A-1", List.of("INM-3")));
+        verify(cellRepository).releaseSlots(Map.of("B/B-1", List.of("INM-3")));
+        verify(inmateUpdates).updateOne(eq(query(where("_id").is("doc-3"))), any(Update.class));
+        verify(cellBlockStatsService).applyOccupancyChange("A", 1);
+        verify(cellBlockStatsService).applyOccupancyChange("B", -1);
+    }
+
+    @Test
+    void transferRefusesAnInmateIdSharedByTwoInmatesUnlessTheDocumentIsGiven() {
+        List<BatchItemResult> results = batchService.transfer(List.of(new TransferRequest("INM-1", "B", "B-1", null)));
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(Outcome.AMBIGUOUS_INMATE);
+
+        results = batchService.transfer(List.of(new TransferRequest("INM-1", "B", "B-1", "doc-2")));
+        assertThat(results).extracting(BatchItemResult::outcome).containsExactly(Outcome.TRANSFERRED);
+        verify(inmateUpdates).updateOne(eq(query(where("_id").is("doc-2"))), any(Update.class));
+        verify(cellRepository).releaseSlots(Map.of("A/A-2", List.of("INM-1")));
+    }
+
+    @Test
+    void transferThatFailsWritingTheInmatesPutsTheBedsBack() {
+        when(inmateUpdates.execute())
+                .thenThrow(new DataAccessResourceFailureException("connection reset"))
+                .thenReturn(null);
+
+        assertThatThrownBy(() -> batchService.transfer(List.of(new TransferRequest("INM-3", "A", "A-1", null))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertUndone();
+    }
+
+    @Test
+    void transferThatFailsGivingUpTheOldBedsPutsEverythingBack() {
+        doThrow(new DataAccessResourceFailureException("connection reset"))
+                .when(cellRepository).releaseSlots(Map.of("B/B-1", List.of("INM-3")));
+
+        assertThatThrownBy(() -> batchService.transfer(List.of(new TransferRequest("INM-3", "A", "A-1", null))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertUndone();
+    }
+
+    // INM-3's move from B-1 to A-1 was taken back, and nothing was counted for it
+    private void assertUndone() {
+        verify(cellRepository).releaseSlots(Map.of("A/A-1", List.of("INM-3")));
+        verify(cellRepository).reserveSlots(Map.of("B/B-1", List.of("INM-3")));
+        verify(inmateUpdates).updateOne(eq(query(where("_id").is("doc-3"))),
+                argThat(update -> "B-1".equals(update.getUpdateObject().get("$set", Document.class).get("cellNumber"))));
+        verify(cellBlockStatsService, never()).applyOccupancyChange(anyString(), anyInt());
+        verify(activityService, never()).record(any(), anyInt());
+    }
+
+    private static Cell cell(String block, String cellNumber, int capacity, String... inmateIds) {
+        Cell cell = new Cell();
+        cell.setId(block + "/" + cellNumber);
+        cell.setBlock(block);
+        cell.setCellNumber(cellNumber);
+        cell.setCapacity(capacity);
+        cell.setCurrentOccupancy(inmateIds.length);
+        cell.setStatus("Available");
+        cell.setInmates(new ArrayList<>(List.of(inmateIds)));
+        return cell;
+    }
+
+    private static Inmate inmate(String id, String inmateId, String block, String cellNumber) {
+        Inmate inmate = new Inmate();
+        inmate.setId(id);
+        inmate.setInmateId(inmateId);
+        inmate.setName("Test Inmate");
+        inmate.setBlock(block);
+        inmate.setCellNumber(cellNumber);
+        return inmate;
+    }
+}
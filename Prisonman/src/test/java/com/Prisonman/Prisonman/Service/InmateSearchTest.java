@@ -0,0 +1,112 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.InmateStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InmateSearchTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 6, 30);
+
+    @Test
+    void noParametersMatchEverythingInIdOrder() {
+        InmateSearch search = new InmateSearch(null, " ", "", null, null, null, null);
+
+        assertThat(search.toCriteria().getCriteriaObject()).isEmpty();
+        assertThat(search.sortField()).isNull();
+    }
+
+    @Test
+    void inmateIdIsAnExactMatch() {
+        InmateSearch search = new InmateSearch("INM-7", null, null, null, null, null, null);
+
+        assertThat(search.toCriteria().getCriteriaObject()).isEqualTo(new Document("inmateId", "INM-7"));
+        assertThat(search.sortField()).isNull();
+    }
+
+    @Test
+    void nameIsAnAnchoredPrefixOnTheLowerCasedCopy() {
+        InmateSearch search = new InmateSearch(null, "  O'Brien ", null, null, null, null, null);
+
+        Document criteria = search.toCriteria().getCriteriaObject();
+
+        assertThat(criteria.keySet()).containsExactly("searchName");
+        assertThat(regex(criteria.get("searchName"))).isEqualTo("^o'brien");
+        assertThat(search.sortField()).isEqualTo("searchName");
+    }
+
+    @Test
+    void nameRegexCharactersAreEscapedOneByOne() {
+        InmateSearch search = new InmateSearch(null, "a.b*(c)", null, null, null, null, null);
+
+        assertThat(regex(search.toCriteria().getCriteriaObject().get("searchName"))).isEqualTo("^a\\.b\\*\\(c\\)");
+    }
+
+    @Test
+    void statusIsMatchedByLabelInAnyCase() {
+        InmateSearch search = new InmateSearch(null, null, "restricted", null, null, null, null);
+
+        assertThat(search.toCriteria().getCriteriaObject()).isEqualTo(new Document("status", InmateStatus.RESTRICTED));
+        assertThat(search.sortField()).isNull();
+    }
+
+    @Test
+    void unknownStatusIsABadRequest() {
+        InmateSearch search = new InmateSearch(null, null, "Napping", null, null, null, null);
+
+        assertThatThrownBy(search::toCriteria)
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void blockAndChargesAreExactMatches() {
+        InmateSearch search = new InmateSearch(null, null, null, "A", "Fraud", null, null);
+
+        assertThat(search.toCriteria().getCriteriaObject()).isEqualTo(new Document("block", "A").append("charges", "Fraud"));
+        assertThat(search.sortField()).isNull();
+    }
+
+    @Test
+    void admissionRangeIsInclusiveAndEitherEndIsOptional() {
+        assertThat(new InmateSearch(null, null, null, null, null, FROM, TO).toCriteria().getCriteriaObject())
+                .isEqualTo(new Document("$and", List.of(new Document("admissionDate", new Document("$gte", FROM).append("$lte", TO)))));
+        assertThat(new InmateSearch(null, null, null, null, null, FROM, null).toCriteria().getCriteriaObject())
+                .isEqualTo(new Document("$and", List.of(new Document("admissionDate", new Document("$gte", FROM)))));
+        assertThat(new InmateSearch(null, null, null, null, null, null, TO).toCriteria().getCriteriaObject())
+                .isEqualTo(new Document("$and", List.of(new Document("admissionDate", new Document("$lte", TO)))));
+        assertThat(new InmateSearch(null, null, null, null, null, null, TO).sortField()).isEqualTo("admissionDate");
+    }
+
+    @Test
+    void parametersCombineWithAnd() {
+        InmateSearch search = new InmateSearch(null, "smi", "Active", "B", null, FROM, null);
+
+        Document criteria = search.toCriteria().getCriteriaObject();
+
+        assertThat(criteria.keySet()).containsExactly("searchName", "status", "block", "$and");
+        assertThat(criteria.get("status")).isEqualTo(InmateStatus.ACTIVE);
+        assertThat(criteria.get("block")).isEqualTo("B");
+        assertThat(search.sortField()).isEqualTo("searchName");
+    }
+
+    @Test
+    void inmateIdPagesByIdEvenWithOtherFilters() {
+        assertThat(new InmateSearch("INM-7", "smi", null, null, null, FROM, TO).sortField()).isNull();
+    }
+
+    private static String regex(Object value) {
+        return ((Pattern) value).pattern();
+    }
+}
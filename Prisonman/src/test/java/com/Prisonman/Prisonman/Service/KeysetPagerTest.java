@@ -0,0 +1,208 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class KeysetPagerTest {
+
+    private static final String ID_1 = "665f1c2a9b1e8a0012345671";
+    private static final String ID_2 = "665f1c2a9b1e8a0012345672";
+    private static final String ID_3 = "665f1c2a9b1e8a0012345673";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final KeysetPager pager = new KeysetPager(mongoTemplate, new ObjectMapper().findAndRegisterModules(), 1000, 5000);
+
+    @BeforeEach
+    void converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+    }
+
+    @Test
+    void limitDefaultsTo1000AndIsCappedAt5000() {
+        assertThat(pager.resolveLimit(null)).isEqualTo(1000);
+        assertThat(pager.resolveLimit(10)).isEqualTo(10);
+        assertThat(pager.resolveLimit(5000)).isEqualTo(5000);
+        assertThat(pager.resolveLimit(20000)).isEqualTo(5000);
+        assertBadRequest(() -> pager.resolveLimit(0));
+    }
+
+    @Test
+    void readsOneRowMoreThanTheLimitToKnowWhetherAnotherPageFollows() {
+        found(inmate(ID_1, "Adams"), inmate(ID_2, "Baker"), inmate(ID_3, "Clark"));
+
+        CursorPage<Object> page = pager.page(Inmate.class, new PageQuery(2, null, null, null));
+
+        Query query = lastQuery();
+        assertThat(query.getLimit()).isEqualTo(3);
+        assertThat(query.getSortObject()).isEqualTo(new Document("_id", 1));
+        assertThat(query.getQueryObject()).isEmpty();
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.nextCursor()).isEqualTo(ID_2);
+        assertThat(page.total()).isNull();
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        found(inmate(ID_1, "Adams"), inmate(ID_2, "Baker"));
+
+        CursorPage<Object> page = pager.page(Inmate.class, new PageQuery(2, null, null, null));
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void idCursorStartsStrictlyAfterThatId() {
+        found();
+
+        pager.page(Inmate.class, new PageQuery(null, ID_2, null, null));
+
+        assertThat(lastQuery().getQueryObject()).isEqualTo(new Document("_id", new Document("$gt", new ObjectId(ID_2))));
+    }
+
+    @Test
+    void stringIdCursorAlsoLetsEveryObjectIdThrough() {
+        assertThat(KeysetPager.afterId("legacy-7").getCriteriaObject()).isEqualTo(Document.parse(
+                "{$or: [{_id: {$gt: 'legacy-7'}}, {_id: {$type: 7}}]}"));
+    }
+
+    @Test
+    void keyCursorRoundTripsAndBreaksTiesOnId() {
+        found(inmate(ID_1, "Smith"), inmate(ID_2, "Smith"));
+        Criteria filter = where("block").is("A");
+
+        String cursor = pager.page(Inmate.class, filter, "searchName", new PageQuery(1, null, null, null)).nextCursor();
+        pager.page(Inmate.class, filter, "searchName", new PageQuery(1, cursor, null, null));
+
+        Query query = lastQuery();
+        assertThat(query.getSortObject()).isEqualTo(new Document("searchName", 1).append("_id", 1));
+        assertThat(query.getQueryObject()).isEqualTo(Document.parse("""
+                {$and: [
+                  {block: 'A'},
+                  {$or: [
+                    {searchName: {$gt: 'smith'}},
+                    {$and: [{searchName: 'smith'}, {_id: {$gt: {$oid: '%s'}}}]}
+                  ]}
+                ]}""".formatted(ID_1)));
+    }
+
+    @Test
+    void keyCursorKeepsTheKeysBsonType() {
+        Inmate admitted = inmate(ID_1, "Adams");
+        admitted.setAdmissionDate(LocalDate.of(2025, 3, 14));
+        found(admitted, inmate(ID_2, "Baker"));
+
+        String cursor = pager.page(Inmate.class, new Criteria(), "admissionDate", new PageQuery(1, null, null, null)).nextCursor();
+        pager.page(Inmate.class, new Criteria(), "admissionDate", new PageQuery(1, cursor, null, null));
+
+        Document greaterKey = lastQuery().getQueryObject().getList("$or", Document.class).get(0);
+        assertThat(greaterKey.get("admissionDate", Document.class).get("$gt")).isInstanceOf(Date.class);
+    }
+
+    @Test
+    void keyCursorFromARowWithoutTheKeyContinuesWithRowsThatHaveOne() {
+        found(inmate(ID_1, null), inmate(ID_2, "Baker"));
+
+        String cursor = pager.page(Inmate.class, new Criteria(), "searchName", new PageQuery(1, null, null, null)).nextCursor();
+        pager.page(Inmate.class, new Criteria(), "searchName", new PageQuery(1, cursor, null, null));
+
+        Document greaterKey = lastQuery().getQueryObject().getList("$or", Document.class).get(0);
+        assertThat(greaterKey).isEqualTo(new Document("searchName", new Document("$ne", null)));
+    }
+
+    @Test
+    void malformedKeyCursorIsABadRequest() {
+        assertBadRequest(() -> pager.page(Inmate.class, new Criteria(), "searchName", new PageQuery(null, "not a cursor!", null, null)));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Inmate.class));
+    }
+
+    @Test
+    void projectionReturnsOnlyTheRequestedFieldsAndTheId() {
+        found(inmate(ID_1, "Adams"));
+
+        CursorPage<Object> page = pager.page(Inmate.class, new PageQuery(null, null, "name, block", null));
+
+        assertThat(lastQuery().getFieldsObject()).isEqualTo(new Document("name", 1).append("block", 1).append("id", 1));
+        assertThat(page.items()).containsExactly(Map.of("name", "Adams", "block", "A", "id", ID_1));
+    }
+
+    @Test
+    void unknownProjectedFieldIsABadRequest() {
+        assertBadRequest(() -> pager.page(Inmate.class, new PageQuery(null, null, "name,shoeSize", null)));
+    }
+
+    @Test
+    void countIsTakenOverTheFilterWithoutTheCursor() {
+        found(inmate(ID_1, "Adams"));
+        Criteria filter = where("block").is("A");
+        when(mongoTemplate.count(any(Query.class), eq(Inmate.class))).thenReturn(42L);
+
+        CursorPage<Object> page = pager.page(Inmate.class, filter, null, new PageQuery(null, ID_1, null, true));
+
+        ArgumentCaptor<Query> counted = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).count(counted.capture(), eq(Inmate.class));
+        assertThat(counted.getValue().getQueryObject()).isEqualTo(new Document("block", "A"));
+        assertThat(page.total()).isEqualTo(42L);
+    }
+
+    private void found(Inmate... inmates) {
+        when(mongoTemplate.find(any(Query.class), eq(Inmate.class))).thenReturn(List.of(inmates));
+    }
+
+    private Query lastQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).find(query.capture(), eq(Inmate.class));
+        return query.getValue();
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private static Inmate inmate(String id, String name) {
+        Inmate inmate = new Inmate();
+        inmate.setId(id);
+        inmate.setName(name);
+        inmate.setBlock("A");
+        return inmate;
+    }
+}
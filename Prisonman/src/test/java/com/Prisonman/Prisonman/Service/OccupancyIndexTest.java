@@ -0,0 +1,128 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OccupancyIndexTest {
+
+    @Test
+    void takesBedsUntilFullAndFindsTheNextFreeCell() {
+        OccupancyIndex index = new OccupancyIndex(List.of(
+                cell("A", "A-2", 1, 0), cell("A", "A-1", 2, 1), cell("B", "B-1", 3, 3)));
+        int a1 = index.cell("A", "A-1");
+        int a2 = index.cell("A", "A-2");
+        int a = index.block("A");
+
+        assertThat(index.firstFree(a)).isEqualTo(a1);
+        assertThat(index.tryTake(a1)).isTrue();
+        assertThat(index.tryTake(a1)).isFalse();
+        assertThat(index.firstFree(a)).isEqualTo(a2);
+        assertThat(index.blockOccupied(a)).isEqualTo(2);
+        assertThat(index.utilization(a)).isEqualTo(66);
+
+        index.giveBack(a1);
+        assertThat(index.firstFree(a)).isEqualTo(a1);
+        assertThat(index.nextFree(a1)).isEqualTo(a2);
+
+        assertThat(index.firstFree(index.block("B"))).isEqualTo(OccupancyIndex.UNKNOWN);
+        assertThat(index.cell("B", "B-9")).isEqualTo(OccupancyIndex.UNKNOWN);
+        assertThat(index.block("C")).isEqualTo(OccupancyIndex.UNKNOWN);
+    }
+
+    @Test
+    void firstFreeLooksPastFullWordsAndStaysInsideTheBlock() {
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            cells.add(cell("A", String.format("A-%03d", i), 1, i == 150 ? 0 : 1));
+        }
+        cells.add(cell("B", "B-1", 1, 0));
+        OccupancyIndex index = new OccupancyIndex(cells);
+
+        int free = index.firstFree(index.block("A"));
+        assertThat(index.cellNumber(free)).isEqualTo("A-150");
+        assertThat(index.nextFree(free)).isEqualTo(OccupancyIndex.UNKNOWN);
+
+        index.add(free, 1);
+        assertThat(index.firstFree(index.block("A"))).isEqualTo(OccupancyIndex.UNKNOWN);
+        assertThat(index.blockOccupied(index.block("A"))).isEqualTo(200);
+    }
+
+    @Test
+    void observeKeepsBedsStillBeingWritten() {
+        OccupancyIndex index = new OccupancyIndex(List.of(cell("A", "A-1", 2, 0)));
+        int cell = index.cell("A", "A-1");
+
+        index.tryTake(cell);
+        index.observe(cell, 3, 1);
+        assertThat(index.occupied(cell)).isEqualTo(2);
+        assertThat(index.blockCapacity(index.block("A"))).isEqualTo(3);
+
+        index.confirm(cell);
+        index.observe(cell, 3, 2);
+        assertThat(index.occupied(cell)).isEqualTo(2);
+        assertThat(index.blockOccupied(index.block("A"))).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentAdmissionsNeverOverfillACell() throws InterruptedException {
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cells.add(cell("A", "A-" + i, 4, 0));
+        }
+        OccupancyIndex index = new OccupancyIndex(cells);
+        int block = index.block("A");
+
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int attempt = 0; attempt < 200; attempt++) {
+                        int cell = index.firstFree(block);
+                        while (cell != OccupancyIndex.UNKNOWN && !index.tryTake(cell)) {
+                            cell = index.nextFree(cell);
+                        }
+                        if (cell != OccupancyIndex.UNKNOWN) {
+                            taken.incrementAndGet();
+                            index.confirm(cell);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(taken.get()).isEqualTo(400);
+        assertThat(index.blockOccupied(block)).isEqualTo(400);
+        assertThat(index.firstFree(block)).isEqualTo(OccupancyIndex.UNKNOWN);
+        for (int i = 0; i < 100; i++) {
+            assertThat(index.occupied(index.cell("A", "A-" + i))).isEqualTo(4);
+        }
+    }
+
+    private static Cell cell(String block, String cellNumber, int capacity, int occupied) {
+        Cell cell = new Cell();
+        cell.setId(block + "/" + cellNumber);
+        cell.setBlock(block);
+        cell.setCellNumber(cellNumber);
+        cell.setCapacity(capacity);
+        cell.setCurrentOccupancy(occupied);
+        return cell;
+    }
+}
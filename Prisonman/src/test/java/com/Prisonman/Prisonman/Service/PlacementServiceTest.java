@@ -0,0 +1,126 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlacementServiceTest {
+
+    private static final PlacementOptions NO_OPTIONS = new PlacementOptions(null, null, null);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final OccupancyService occupancy = new OccupancyService(mongoTemplate, false);
+    private final PlacementService placement = new PlacementService(occupancy, mongoTemplate);
+
+    @BeforeEach
+    void cells() {
+        // A is half full, B a quarter, C full
+        when(mongoTemplate.find(any(Query.class), eq(Cell.class))).thenReturn(List.of(
+                cell("A", "A-1", 2, 2), cell("A", "A-2", 2, 0),
+                cell("B", "B-1", 2, 1), cell("B", "B-2", 2, 0),
+                cell("C", "C-1", 2, 2)));
+    }
+
+    @Test
+    void placesInTheLeastUtilizedAllowedBlock() {
+        Inmate first = new Inmate();
+        OccupancyService.Hold bed = placement.place(first, NO_OPTIONS, Set.of());
+        assertThat(bed.full()).isFalse();
+        assertThat(first.getCellNumber()).isEqualTo("B-1");
+
+        Inmate restricted = new Inmate();
+        placement.place(restricted, new PlacementOptions(List.of("A", "C"), null, null), Set.of());
+        assertThat(restricted.getCellNumber()).isEqualTo("A-2");
+
+        Inmate own = new Inmate();
+        own.setBlock("C");
+        assertThat(placement.place(own, NO_OPTIONS, Set.of()).full()).isTrue();
+    }
+
+    @Test
+    void keepsApartFromTheGivenInmatesAndSkipsRefusedCells() {
+        Inmate codefendant = new Inmate();
+        codefendant.setInmateId("INM-7");
+        codefendant.setBlock("B");
+        codefendant.setCellNumber("B-1");
+        when(mongoTemplate.find(any(Query.class), eq(Inmate.class))).thenReturn(List.of(codefendant));
+
+        Inmate inmate = new Inmate();
+        placement.place(inmate, new PlacementOptions(null, List.of("INM-7"), null), Set.of());
+        assertThat(inmate.getCellNumber()).isEqualTo("B-2");
+
+        Inmate next = new Inmate();
+        placement.place(next, NO_OPTIONS, Set.of("B/B-1", "B/B-2"));
+        assertThat(next.getCellNumber()).isEqualTo("A-2");
+    }
+
+    @Test
+    void batchEvensOutBlocksAndCanKeepItsMembersApart() {
+        List<Inmate> inmates = new ArrayList<>();
+        IntStream.range(0, 6).forEach(i -> inmates.add(new Inmate()));
+
+        Set<Integer> unplaced = placement.plan(inmates, List.of(0, 1, 2, 3, 4, 5), NO_OPTIONS);
+
+        // Five free beds: B catches up with A, then the two take turns
+        assertThat(unplaced).containsExactly(5);
+        assertThat(inmates.subList(0, 5)).extracting(Inmate::getBlock).containsExactly("B", "A", "B", "A", "B");
+
+        List<Inmate> apart = List.of(new Inmate(), new Inmate(), new Inmate(), new Inmate());
+        unplaced = placement.plan(apart, List.of(0, 1, 2, 3), new PlacementOptions(null, null, true));
+        assertThat(unplaced).containsExactly(3);
+        assertThat(apart.subList(0, 3)).extracting(Inmate::getCellNumber).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void passesOverClosedCellsUntilTheyReopen() {
+        // D is empty, so the least utilized, but its only cell is under maintenance
+        Cell closed = cell("D", "D-1", 2, 0);
+        closed.setStatus("Maintenance");
+        when(mongoTemplate.find(any(Query.class), eq(Cell.class))).thenReturn(List.of(
+                cell("A", "A-1", 2, 2), cell("A", "A-2", 2, 0),
+                cell("B", "B-1", 2, 1), cell("B", "B-2", 2, 0),
+                closed));
+
+        Inmate inmate = new Inmate();
+        assertThat(placement.place(inmate, NO_OPTIONS, Set.of()).full()).isFalse();
+        assertThat(inmate.getCellNumber()).isEqualTo("B-1");
+
+        List<Inmate> batch = List.of(new Inmate(), new Inmate());
+        assertThat(placement.plan(batch, List.of(0, 1), NO_OPTIONS)).isEmpty();
+        assertThat(batch).extracting(Inmate::getBlock).doesNotContain("D");
+
+        Inmate own = new Inmate();
+        own.setBlock("D");
+        assertThat(placement.place(own, NO_OPTIONS, Set.of()).full()).isTrue();
+
+        closed.setStatus("Available");
+        occupancy.refresh(closed);
+        Inmate reopened = new Inmate();
+        placement.place(reopened, NO_OPTIONS, Set.of());
+        assertThat(reopened.getCellNumber()).isEqualTo("D-1");
+    }
+
+    private static Cell cell(String block, String cellNumber, int capacity, int occupied) {
+        Cell cell = new Cell();
+        cell.setId(block + "/" + cellNumber);
+        cell.setBlock(block);
+        cell.setCellNumber(cellNumber);
+        cell.setCapacity(capacity);
+        cell.setCurrentOccupancy(occupied);
+        return cell;
+    }
+}
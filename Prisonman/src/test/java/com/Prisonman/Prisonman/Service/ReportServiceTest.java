@@ -0,0 +1,164 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.BlockOccupancy;
+import com.Prisonman.Prisonman.Model.Cell;
+import com.Prisonman.Prisonman.Model.Inmate;
+import com.Prisonman.Prisonman.Model.ReportRow;
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 3, 31);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final CollectionVersions collectionVersions = new CollectionVersions();
+    private final ReportService reportService = new ReportService(mongoTemplate, collectionVersions,
+            new ConcurrentMapCacheManager(ReportService.CACHE), 500);
+
+    @Test
+    void inmatesByChargePipelineGroupsAndPutsTheMostFrequentFirst() {
+        rows(Inmate.class, new Document("_id", "Fraud").append("count", 7), new Document("_id", null).append("count", 2L));
+
+        assertThat(reportService.inmatesBy("Charge"))
+                .containsExactly(new ReportRow("Fraud", 7), new ReportRow(null, 2));
+        assertThat(pipeline(Inmate.class)).isEqualTo(parse("""
+                [{$group: {_id: '$charges', count: {$sum: 1}}},
+                 {$sort: {count: -1, _id: 1}},
+                 {$limit: {$numberLong: '500'}}]"""));
+        assertThat(pipeline(Inmate.class).get(1).get("$sort", Document.class).keySet()).containsExactly("count", "_id");
+    }
+
+    @Test
+    void inmatesByStatusPipelineSortsByKey() {
+        rows(Inmate.class);
+
+        reportService.inmatesBy("status");
+
+        assertThat(pipeline(Inmate.class)).isEqualTo(parse("""
+                [{$group: {_id: '$status', count: {$sum: 1}}},
+                 {$sort: {_id: 1}},
+                 {$limit: {$numberLong: '500'}}]"""));
+    }
+
+    @Test
+    void visitsByDayPipelineMatchesTheRangeAndReadsDaysAsDates() {
+        Date midnight = Date.from(LocalDate.of(2025, 3, 14).atStartOfDay(ZoneOffset.UTC).toInstant());
+        rows(Visitor.class, new Document("_id", midnight).append("count", 3), new Document("_id", "2025-03-15").append("count", 1));
+
+        assertThat(reportService.visitsBy("day", FROM, TO))
+                .containsExactly(new ReportRow("2025-03-14", 3), new ReportRow("2025-03-15", 1));
+        List<Document> pipeline = pipeline(Visitor.class);
+        assertThat(pipeline.get(0)).isEqualTo(new Document("$match",
+                new Document("visitDate", new Document("$gte", FROM).append("$lte", TO))));
+        assertThat(pipeline.subList(1, pipeline.size())).isEqualTo(parse("""
+                [{$group: {_id: '$visitDate', count: {$sum: 1}}},
+                 {$sort: {_id: 1}},
+                 {$limit: {$numberLong: '500'}}]"""));
+    }
+
+    @Test
+    void visitsWithoutARangeAreNotMatched() {
+        rows(Visitor.class);
+
+        reportService.visitsBy("status", null, null);
+
+        assertThat(pipeline(Visitor.class).get(0)).containsKey("$group");
+    }
+
+    @Test
+    void unknownGroupingIsABadRequest() {
+        assertBadRequest(() -> reportService.inmatesBy("age"));
+        assertBadRequest(() -> reportService.visitsBy("visitor", null, null));
+    }
+
+    @Test
+    void occupancyByBlockComputesUtilizationFromTheSums() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Cell.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "A").append("cells", 3).append("availableCells", 1)
+                                .append("capacity", 6).append("occupied", 5),
+                        new Document("_id", "B").append("cells", 1).append("availableCells", 0)
+                                .append("capacity", 0).append("occupied", 0)), new Document()));
+
+        assertThat(reportService.occupancyByBlock()).containsExactly(
+                new BlockOccupancy("A", 3, 1, 6, 5, 83),
+                new BlockOccupancy("B", 1, 0, 0, 0, 0));
+    }
+
+    @Test
+    void reportIsCachedUntilItsCollectionChanges() {
+        rows(Inmate.class, new Document("_id", "Active").append("count", 4));
+
+        reportService.inmatesBy("status");
+        reportService.inmatesBy("status");
+        collectionVersions.changed("visitors");
+        reportService.inmatesBy("status");
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(Inmate.class), eq(Document.class));
+
+        collectionVersions.changed("inmates");
+        reportService.inmatesBy("status");
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(Inmate.class), eq(Document.class));
+
+        collectionVersions.expire();
+        reportService.inmatesBy("status");
+        verify(mongoTemplate, times(3)).aggregate(any(Aggregation.class), eq(Inmate.class), eq(Document.class));
+    }
+
+    @Test
+    void reportsWithDifferentParametersAreCachedApart() {
+        rows(Visitor.class);
+
+        reportService.visitsBy("day", FROM, TO);
+        reportService.visitsBy("day", FROM, null);
+        reportService.visitsBy("status", FROM, TO);
+        reportService.visitsBy("day", FROM, TO);
+
+        verify(mongoTemplate, times(3)).aggregate(any(Aggregation.class), eq(Visitor.class), eq(Document.class));
+    }
+
+    private void rows(Class<?> type, Document... rows) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(type), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(rows), new Document()));
+    }
+
+    private List<Document> pipeline(Class<?> type) {
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(type), eq(Document.class));
+        return aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+
+    private static List<Document> parse(String pipeline) {
+        return Document.parse("{pipeline: " + pipeline + "}").getList("pipeline", Document.class);
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
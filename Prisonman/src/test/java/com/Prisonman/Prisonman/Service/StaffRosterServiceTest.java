@@ -0,0 +1,75 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.DutyStatus;
+import com.Prisonman.Prisonman.Model.Staff;
+import com.Prisonman.Prisonman.Model.StaffShift;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StaffRosterServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final StaffRosterService rosterService = new StaffRosterService(mongoTemplate);
+
+    @Test
+    void writesMadeWhileTheRosterLoadsAreKept() {
+        // The read returns s1 and s2 as they were when it started; s1 goes and s3 comes meanwhile
+        when(mongoTemplate.stream(any(Query.class), eq(Staff.class))).thenAnswer(invocation -> {
+            rosterService.remove("s1");
+            rosterService.put(staff("s3", StaffShift.DAY));
+            return Stream.of(staff("s1", StaffShift.DAY), staff("s2", StaffShift.NIGHT));
+        });
+
+        assertThat(rosterService.onDuty("Security", null)).containsExactlyInAnyOrder("s2", "s3");
+    }
+
+    @Test
+    void writesMadeWhileTheRosterReloadsAreKept() {
+        when(mongoTemplate.stream(any(Query.class), eq(Staff.class)))
+                .thenAnswer(invocation -> Stream.of(staff("s1", StaffShift.DAY)));
+        assertThat(rosterService.onDuty("Security", "Day")).containsExactly("s1");
+
+        when(mongoTemplate.stream(any(Query.class), eq(Staff.class))).thenAnswer(invocation -> {
+            rosterService.put(staff("s1", StaffShift.NIGHT));
+            rosterService.put(staff("s2", StaffShift.DAY));
+            return Stream.of(staff("s1", StaffShift.DAY));
+        });
+        rosterService.reload();
+
+        assertThat(rosterService.onDuty("Security", "Day")).containsExactly("s2");
+        assertThat(rosterService.onDuty("Security", "Night")).containsExactly("s1");
+    }
+
+    @Test
+    void loadThatAnImportOvertookIsReadAgain() {
+        when(mongoTemplate.stream(any(Query.class), eq(Staff.class)))
+                .thenAnswer(invocation -> {
+                    rosterService.invalidate();
+                    return Stream.of(staff("s1", StaffShift.DAY));
+                })
+                .thenAnswer(invocation -> Stream.of(staff("s1", StaffShift.DAY), staff("s2", StaffShift.DAY)));
+
+        assertThat(rosterService.onDuty("Security", "Day")).containsExactly("s1", "s2");
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(Staff.class));
+    }
+
+    private static Staff staff(String id, StaffShift shift) {
+        Staff staff = new Staff();
+        staff.setId(id);
+        staff.setDepartment("Security");
+        staff.setShift(shift);
+        staff.setStatus(DutyStatus.ON_DUTY);
+        return staff;
+    }
+}
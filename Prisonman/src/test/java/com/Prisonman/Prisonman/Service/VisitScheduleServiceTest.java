@@ -0,0 +1,43 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.Visitor;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitScheduleServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final VisitScheduleService scheduleService = new VisitScheduleService(mongoTemplate, 30,
+            LocalTime.of(8, 0), LocalTime.of(20, 0), 20, 2, 4, ZONE);
+
+    @Test
+    void loadsOnlyVisitsFromTheStartOfTheCurrentWeek() {
+        when(mongoTemplate.stream(any(Query.class), eq(Visitor.class))).thenAnswer(invocation -> Stream.empty());
+
+        scheduleService.freeSlots("INM001", null, 1);
+
+        ArgumentCaptor<Query> loaded = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(loaded.capture(), eq(Visitor.class));
+        assertThat(loaded.getValue().getQueryObject().get("visitDate", Document.class).get("$gte"))
+                .isEqualTo(VisitScheduleService.weekStart(LocalDate.now(ZONE)));
+        assertThat(VisitScheduleService.weekStart(LocalDate.of(2025, 1, 30))).isEqualTo(LocalDate.of(2025, 1, 27));
+        assertThat(VisitScheduleService.weekStart(LocalDate.of(2025, 1, 27))).isEqualTo(LocalDate.of(2025, 1, 27));
+    }
+}
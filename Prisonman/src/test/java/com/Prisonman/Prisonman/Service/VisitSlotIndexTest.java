@@ -0,0 +1,133 @@
+package com.Prisonman.Prisonman.Service;
+
+import com.Prisonman.Prisonman.Model.VisitSlot;
+import com.Prisonman.Prisonman.Service.VisitSlotIndex.Booking;
+import com.Prisonman.Prisonman.Service.VisitSlotIndex.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class VisitSlotIndexTest {
+
+    // Monday
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 20);
+    private static final LocalDateTime NOW = DAY.atStartOfDay();
+
+    // 30-minute slots from 09:00 to 12:00, two seats per slot, one session a day and two a week per inmate
+    private final VisitSlotIndex index = new VisitSlotIndex(30, LocalTime.of(9, 0), LocalTime.of(12, 0), 2, 1, 2);
+
+    @Test
+    void fullSlotRejectsFurtherVisitorsUntilOneLeaves() {
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 10, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v2", "INM002", "B", 10, 15), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v3", "INM003", "C", 10, 29), null, NOW)).isEqualTo(Result.SLOT_FULL);
+
+        index.remove("v1");
+
+        assertThat(index.tryBook(visit("v3", "INM003", "C", 10, 29), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.booked(DAY.atTime(10, 0))).isEqualTo(2);
+    }
+
+    @Test
+    void enforcesVisitingHoursAndVisitorConflicts() {
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 8, 45), null, NOW)).isEqualTo(Result.OUTSIDE_VISITING_HOURS);
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 12, 0), null, NOW)).isEqualTo(Result.OUTSIDE_VISITING_HOURS);
+
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v2", "INM002", "A", 9, 10), null, NOW)).isEqualTo(Result.VISITOR_DOUBLE_BOOKED);
+    }
+
+    @Test
+    void limitsCountSessionsNotVisitors() {
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        // A second visitor in the same session is fine; a second session the same day is not
+        assertThat(index.tryBook(visit("v2", "INM001", "B", 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v3", "INM001", "C", 11, 0), null, NOW)).isEqualTo(Result.INMATE_DAILY_LIMIT);
+
+        assertThat(index.tryBook(visit("v3", "INM001", "C", DAY.plusDays(2), 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v4", "INM001", "D", DAY.plusDays(4), 9, 0), null, NOW)).isEqualTo(Result.INMATE_WEEKLY_LIMIT);
+        // Next Monday starts a new week
+        assertThat(index.tryBook(visit("v4", "INM001", "D", DAY.plusDays(7), 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+    }
+
+    @Test
+    void reschedulingDoesNotCountTheOldBookingAgainstTheNewOne() {
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 9, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 11, 0), null, NOW)).isEqualTo(Result.ACCEPTED);
+
+        assertThat(index.booked(DAY.atTime(9, 0))).isZero();
+        assertThat(index.booked(DAY.atTime(11, 0))).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void freeSlotsLeaveOutFullSlotsAndDaysAtTheLimit() {
+        index.tryBook(visit("v1", "INM002", "A", 9, 0), null, NOW);
+        index.tryBook(visit("v2", "INM003", "B", 9, 0), null, NOW);
+        index.tryBook(visit("v3", "INM001", "C", DAY.plusDays(1), 10, 0), null, NOW);
+
+        List<VisitSlot> free = index.freeSlots("INM001", DAY, DAY.plusDays(2), DAY.atStartOfDay());
+
+        // Monday: 09:00 is full; Tuesday: only the slot of the existing session can take another visitor
+        assertThat(free).extracting(VisitSlot::date, VisitSlot::time).containsExactly(
+                tuple(DAY, LocalTime.of(9, 30)),
+                tuple(DAY, LocalTime.of(10, 0)),
+                tuple(DAY, LocalTime.of(10, 30)),
+                tuple(DAY, LocalTime.of(11, 0)),
+                tuple(DAY, LocalTime.of(11, 30)),
+                tuple(DAY.plusDays(1), LocalTime.of(10, 0)));
+        assertThat(free.get(free.size() - 1).remaining()).isEqualTo(1);
+    }
+
+    @Test
+    void slotThatHasStartedCannotBeBooked() {
+        LocalDateTime now = DAY.atTime(10, 5);
+
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 9, 0), null, now)).isEqualTo(Result.SLOT_STARTED);
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 10, 20), null, now)).isEqualTo(Result.SLOT_STARTED);
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 10, 30), null, now)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.booked(DAY.atTime(10, 0))).isZero();
+
+        // A visit already booked in a past slot can still be saved unchanged, e.g. to mark it completed
+        LocalDateTime later = DAY.atTime(11, 0);
+        assertThat(index.tryBook(visit("v1", "INM001", "A", 10, 30), null, later)).isEqualTo(Result.ACCEPTED);
+        // or edited while it stays in that slot, but not moved into another past one
+        assertThat(index.tryBook(visit("v1", "INM002", "B", 10, 45), null, later)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v1", "INM002", "B", 10, 0), null, later)).isEqualTo(Result.SLOT_STARTED);
+
+        // A visit from before the loaded weeks is not held: its stored slot is passed in
+        Booking old = visit("v9", "INM001", "A", DAY.minusDays(10), 9, 0);
+        assertThat(index.tryBook(visit("v9", "INM003", "A", DAY.minusDays(10), 9, 0), old, later)).isEqualTo(Result.ACCEPTED);
+        assertThat(index.tryBook(visit("v9", "INM003", "A", DAY.minusDays(10), 10, 0), old, later)).isEqualTo(Result.SLOT_STARTED);
+        assertThat(index.tryBook(visit("v8", "INM003", "A", DAY.minusDays(10), 9, 0), null, later)).isEqualTo(Result.SLOT_STARTED);
+    }
+
+    @Test
+    void reloadKeepsChangesMadeWhileReading() {
+        index.tryBook(visit("v1", "INM001", "A", 9, 0), null, NOW);
+        index.beginReload();
+        index.tryBook(visit("v2", "INM002", "B", 10, 0), null, NOW);
+        index.remove("v1");
+
+        // The database read saw v1 but not v2
+        index.finishReload(List.of(visit("v1", "INM001", "A", 9, 0)));
+
+        assertThat(index.booked(DAY.atTime(9, 0))).isZero();
+        assertThat(index.booked(DAY.atTime(10, 0))).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    private static Booking visit(String id, String inmateId, String visitor, int hour, int minute) {
+        return visit(id, inmateId, visitor, DAY, hour, minute);
+    }
+
+    private static Booking visit(String id, String inmateId, String visitor, LocalDate date, int hour, int minute) {
+        return new Booking(id, inmateId, visitor, LocalDateTime.of(date, LocalTime.of(hour, minute)));
+    }
+}
@@ -71,7 +71,8 @@ const DashboardCharts = () => {
   const [weeklyActivityData, setWeeklyActivityData] = useState([]);
 
   useEffect(() => {
-    fetch("http://localhost:8080/api/cell-block")
+    // Summed per block by the server from the cells
+    fetch("http://localhost:8080/api/reports/occupancy")
       .then((res) => res.json())
       .then((data) => {
         console.log("Fetched Cell Block Data:", data);
@@ -126,12 +127,12 @@ const DashboardCharts = () => {
                 }}
               >
                 <CartesianGrid strokeDasharray="3 3" />
-                <XAxis dataKey="name" />
+                <XAxis dataKey="block" />
                 <YAxis />
                 <Tooltip content={<CustomTooltip />} />
                 <Legend />
                 <Bar
-                  dataKey="current"
+                  dataKey="occupied"
                   name="Current Inmates"
                   fill={COLORS.blue}
                 />
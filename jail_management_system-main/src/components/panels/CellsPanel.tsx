@@ -26,6 +26,8 @@ import {
   SelectValue,
 } from '@/components/ui/select';
 import { toast } from '@/hooks/use-toast';
+import { applyChange, useChangeEvents } from '@/hooks/use-change-events';
+import { fetchAllPages } from '@/lib/paging';
 
 interface Cell {
   id: string;
@@ -53,8 +55,7 @@ const CellsPanel = () => {
   const [blockOptions, setBlockOptions] = useState<string[]>([]);
 
   useEffect(() => {
-    fetch('http://localhost:8080/api/cell-block')
-      .then((res) => res.json())
+    fetchAllPages('http://localhost:8080/api/cell-block')
       .then((data) => {
         const names = data.map((block: any) => block.name);
         setBlockOptions(names);
@@ -68,9 +69,8 @@ const CellsPanel = () => {
       );
   }, []);
 
-  useEffect(() => {
-    fetch('http://localhost:8080/api/cells')
-      .then((res) => res.json())
+  const loadCells = () =>
+    fetchAllPages('http://localhost:8080/api/cells')
       .then((data) => setCells(data))
       .catch(() =>
         toast({
@@ -79,8 +79,24 @@ const CellsPanel = () => {
           variant: 'destructive',
         })
       );
+
+  useEffect(() => {
+    loadCells();
   }, []);
 
+  // Occupancy changes made elsewhere (admissions, transfers, other users) arrive as events
+  useChangeEvents(
+    ['cells'],
+    (event) =>
+      applyChange(
+        setCells,
+        event,
+        loadCells,
+        (id) => fetch(`http://localhost:8080/api/cells/${id}`).then((res) => (res.ok ? res.json() : null))
+      ),
+    loadCells
+  );
+
   const filteredCells = cells.filter((cell) => {
     const matchesSearch =
       (cell.cellNumber?.toLowerCase().includes(searchTerm.toLowerCase()) ?? false) ||
@@ -116,7 +132,8 @@ const CellsPanel = () => {
     })
       .then((res) => res.json())
       .then((newCell) => {
-        setCells([...cells, newCell]);
+        // The change event for it may have arrived first
+        setCells((current) => (current.some((c) => c.id === newCell.id) ? current : [...current, newCell]));
         setNewCell({ cellNumber: '', block: '', capacity: '', status: 'Available' });
         setIsAddDialogOpen(false);
         toast({
@@ -144,7 +161,7 @@ const CellsPanel = () => {
     })
       .then((res) => res.json())
       .then((updated) => {
-        setCells(cells.map((c) => (c.id === id ? updated : c)));
+        setCells((current) => current.map((c) => (c.id === id ? updated : c)));
         toast({
           title: 'Success',
           description: `Cell status updated to ${newStatus}`,
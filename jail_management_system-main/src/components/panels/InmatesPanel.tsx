@@ -26,12 +26,18 @@ import {
   SelectValue,
 } from '@/components/ui/select';
 import { toast } from '@/hooks/use-toast';
+import { fetchAllPages } from '@/lib/paging';
+import { applyChange, useChangeEvents } from '@/hooks/use-change-events';
+
+// Cell choice that leaves the cell to the server
+const AUTO_ASSIGN = 'auto';
 
 interface Inmate {
+  id?: string;
   name: string;
   inmateId: string;
   age: number;
-  cellNumber: string;
+  cellNumber?: string;
   admissionDate: string;
   status: 'Active' | 'Released' | 'Transferred';
   charges: string;
@@ -39,6 +45,7 @@ interface Inmate {
 }
 
 interface Cell {
+  id?: string;
   cellNumber: string;
   block: string;
   capacity: number;
@@ -46,6 +53,8 @@ interface Cell {
   status: string;
 }
 
+const isAvailable = (cell: Cell) => cell.status === 'Available' && cell.currentOccupancy < cell.capacity;
+
 const InmatesPanel = () => {
   const [inmates, setInmates] = useState<Inmate[]>([]);
   const [searchTerm, setSearchTerm] = useState('');
@@ -63,9 +72,8 @@ const InmatesPanel = () => {
     block: '',
   });
 
-  useEffect(() => {
-    fetch('http://localhost:8080/api/inmates')
-      .then((res) => res.json())
+  const loadInmates = () =>
+    fetchAllPages<Inmate>('http://localhost:8080/api/inmates')
       .then((data) => setInmates(data))
       .catch((err) => {
         console.error('Error fetching inmates:', err);
@@ -76,14 +84,9 @@ const InmatesPanel = () => {
         });
       });
 
-    fetch('http://localhost:8080/api/cells')
-      .then((res) => res.json())
-      .then((data) => {
-        const availableCells = data.filter(
-          (cell: Cell) => cell.status === 'Available' && cell.currentOccupancy < cell.capacity
-        );
-        setCells(availableCells);
-      })
+  const loadCells = () =>
+    fetchAllPages<Cell>('http://localhost:8080/api/cells')
+      .then((data) => setCells(data.filter(isAvailable)))
       .catch((err) => {
         console.error('Error fetching cells:', err);
         toast({
@@ -92,8 +95,32 @@ const InmatesPanel = () => {
           variant: 'destructive',
         });
       });
+
+  useEffect(() => {
+    loadInmates();
+    loadCells();
   }, []);
 
+  // Inmates and bed availability changed elsewhere arrive as events
+  useChangeEvents(
+    ['inmates', 'cells'],
+    (event) => {
+      if (event.collection === 'inmates') {
+        applyChange(setInmates, event, loadInmates);
+      } else if (event.document) {
+        // Only cells with a free bed are offered
+        const cell = event.document as Cell;
+        setCells((current) => [...current.filter((c) => c.id !== cell.id), ...(isAvailable(cell) ? [cell] : [])]);
+      } else {
+        applyChange(setCells, event, loadCells);
+      }
+    },
+    () => {
+      loadInmates();
+      loadCells();
+    }
+  );
+
   useEffect(() => {
     if (newInmate.block) {
       const filtered = cells
@@ -135,18 +162,23 @@ const InmatesPanel = () => {
         inmateId: newInmateId,
         name: newInmate.name,
         age: parseInt(newInmate.age),
-        cellNumber: newInmate.cellNumber,
+        // Left out for Auto-assign: the server picks the least occupied cell in the block
+        cellNumber: newInmate.cellNumber === AUTO_ASSIGN ? undefined : newInmate.cellNumber,
         charges: newInmate.charges,
         status: newInmate.status,
         admissionDate: new Date().toISOString().split('T')[0],
         block: newInmate.block,
       };
 
-      const res = await fetch('http://localhost:8080/api/inmates', {
-        method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify(inmate),
-      });
+      // Same key on the resend, so a request that got through before the connection dropped is not admitted twice
+      const idempotencyKey = crypto.randomUUID();
+      const post = () =>
+        fetch('http://localhost:8080/api/inmates', {
+          method: 'POST',
+          headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
+          body: JSON.stringify(inmate),
+        });
+      const res = await post().catch(() => post());
 
       if (!res.ok) {
         const err = await res.text();
@@ -154,7 +186,10 @@ const InmatesPanel = () => {
       }
 
       const savedInmate = await res.json();
-      setInmates([...inmates, savedInmate]);
+      // The change event for it may have arrived first
+      setInmates((current) =>
+        current.some((i) => i.inmateId === savedInmate.inmateId) ? current : [...current, savedInmate]
+      );
       setNewInmate({ name: '', age: '', cellNumber: '', charges: '', status: 'Active', block: '' });
       setIsAddDialogOpen(false);
 
@@ -182,7 +217,7 @@ const InmatesPanel = () => {
         throw new Error('Failed to delete inmate');
       }
 
-      setInmates(inmates.filter((inmate) => inmate.inmateId !== inmateId));
+      setInmates((current) => current.filter((inmate) => inmate.inmateId !== inmateId));
 
       toast({
         title: 'Success',
@@ -266,6 +301,7 @@ const InmatesPanel = () => {
                     <SelectValue placeholder="Select cell number" />
                   </SelectTrigger>
                   <SelectContent>
+                    <SelectItem value={AUTO_ASSIGN}>Auto-assign</SelectItem>
                     {cellOptions.map((cellNum) => (
                       <SelectItem key={cellNum} value={cellNum}>
                         {cellNum}
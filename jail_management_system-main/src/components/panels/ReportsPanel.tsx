@@ -17,16 +17,21 @@ const ReportsPanel = () => {
     { id: 'cell-occupancy', name: 'Cell Occupancy Report', description: 'Current cell assignments and availability' },
   ];
 
+  // Summaries are grouped and counted by the server; only the staff roster is a plain listing
   const endpointMap: Record<string, string> = {
-    'inmate-summary': 'inmates',
+    'inmate-summary': 'reports/inmates?by=status',
     'staff-schedule': 'staff',
-    'visitor-log': 'visitors',
-    'cell-occupancy': 'cells',
+    'visitor-log': 'reports/visits?by=day',
+    'cell-occupancy': 'reports/occupancy',
   };
 
   const fetchData = async () => {
-    const endpoint = endpointMap[selectedReport];
+    let endpoint = endpointMap[selectedReport];
     if (!endpoint) return [];
+    if (selectedReport === 'visitor-log') {
+      if (dateRange.start) endpoint += `&from=${dateRange.start}`;
+      if (dateRange.end) endpoint += `&to=${dateRange.end}`;
+    }
 
     try {
       const response = await fetch(`http://localhost:8080/api/${endpoint}`);
@@ -26,6 +26,7 @@ import {
   SelectValue,
 } from '@/components/ui/select';
 import { toast } from '@/hooks/use-toast';
+import { fetchAllPages } from '@/lib/paging';
 
 interface Staff {
   id: string;
@@ -57,8 +58,7 @@ const StaffPanel = () => {
 
   const fetchStaff = useCallback(async () => {
     try {
-      const res = await fetch('http://localhost:8080/api/staff');
-      const data = await res.json();
+      const data = await fetchAllPages('http://localhost:8080/api/staff');
       setStaff(data);
     } catch (err) {
       toast({
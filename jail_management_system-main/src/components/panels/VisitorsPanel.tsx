@@ -26,6 +26,7 @@ import {
   SelectValue,
 } from '@/components/ui/select';
 import { toast } from '@/hooks/use-toast';
+import { fetchAllPages } from '@/lib/paging';
 
 interface Visitor {
   id: string;
@@ -56,8 +57,7 @@ const VisitorsPanel = () => {
   });
 
   useEffect(() => {
-    fetch("http://localhost:8080/api/visitors")
-      .then((res) => res.json())
+    fetchAllPages("http://localhost:8080/api/visitors")
       .then((data) => {
         const formatted = data.map((v: any) => ({
           id: v._id,
@@ -193,8 +193,8 @@ fetch("http://localhost:8080/api/visitors", {
   //   });
   // };
 
-  const checkInmateExists = async (inmateName: string) => {
-    const res = await fetch(`http://localhost:8080/api/inmates?name=${encodeURIComponent(inmateName)}`);
+  const checkInmateExists = async (inmateId: string) => {
+    const res = await fetch(`http://localhost:8080/api/inmates?inmateId=${encodeURIComponent(inmateId)}&fields=inmateId&limit=1`);
       if (!res.ok) return false;
       const data = await res.json();
       return data.length > 0;
@@ -0,0 +1,71 @@
+import * as React from "react"
+
+const EVENTS_URL = "http://localhost:8080/api/events"
+
+export interface ChangeEvent<T = unknown> {
+  seq: number
+  collection: string
+  operation: "CHANGED" | "DELETED" | "RELOADED"
+  id: string | null
+  document: T | null
+  at: string
+}
+
+/**
+ * Keeps a view current from /api/events instead of refetching it. onReset is called when events
+ * were missed (the browser was offline too long, or the server restarted): fetch the data again.
+ * The browser reconnects by itself and the server replays what it missed in between.
+ */
+export function useChangeEvents(
+  collections: string[],
+  onEvent: (event: ChangeEvent) => void,
+  onReset: () => void
+) {
+  const handlers = React.useRef({ onEvent, onReset })
+  handlers.current = { onEvent, onReset }
+  const key = collections.join(",")
+
+  React.useEffect(() => {
+    const source = new EventSource(`${EVENTS_URL}?collections=${encodeURIComponent(key)}`)
+    const onMessage = (e: MessageEvent) => handlers.current.onEvent(JSON.parse(e.data))
+    const onReset = () => handlers.current.onReset()
+
+    key.split(",").forEach((collection) => source.addEventListener(collection, onMessage))
+    source.addEventListener("reset", onReset)
+    return () => source.close()
+  }, [key])
+}
+
+/**
+ * Applies a change to a list keyed by the document id. Changes that come without the document
+ * (bulk updates) are fetched with fetchOne, or trigger a reload when there is no way to fetch
+ * one document; RELOADED calls reload.
+ */
+export function applyChange<T extends { id?: string }>(
+  setItems: React.Dispatch<React.SetStateAction<T[]>>,
+  event: ChangeEvent,
+  reload: () => void,
+  fetchOne?: (id: string) => Promise<T | null>
+) {
+  if (event.operation === "RELOADED" || event.id == null) {
+    reload()
+  } else if (event.operation === "DELETED") {
+    setItems((items) => items.filter((item) => item.id !== event.id))
+  } else if (event.document) {
+    upsert(setItems, event.document as T)
+  } else if (fetchOne) {
+    fetchOne(event.id).then((item) => {
+      if (item) upsert(setItems, item)
+    })
+  } else {
+    reload()
+  }
+}
+
+function upsert<T extends { id?: string }>(setItems: React.Dispatch<React.SetStateAction<T[]>>, item: T) {
+  setItems((items) =>
+    items.some((existing) => existing.id === item.id)
+      ? items.map((existing) => (existing.id === item.id ? item : existing))
+      : [...items, item]
+  )
+}
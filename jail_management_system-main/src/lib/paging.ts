@@ -0,0 +1,21 @@
+const NEXT_CURSOR_HEADER = "X-Next-Cursor"
+
+/**
+ * Fetches every page of a list endpoint. The server returns at most prisonman.paging.default-limit
+ * items per call and says where to continue in X-Next-Cursor, so a single fetch would show only the
+ * first page of a large list.
+ */
+export async function fetchAllPages<T = any>(url: string): Promise<T[]> {
+  const items: T[] = []
+  const separator = url.includes("?") ? "&" : "?"
+  let cursor: string | null = null
+  do {
+    const res = await fetch(cursor == null ? url : `${url}${separator}after=${encodeURIComponent(cursor)}`)
+    if (!res.ok) {
+      throw new Error(`GET ${url} failed with ${res.status}`)
+    }
+    items.push(...(await res.json()))
+    cursor = res.headers.get(NEXT_CURSOR_HEADER)
+  } while (cursor)
+  return items
+}